@@ -0,0 +1,83 @@
+package p2.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import p2.Logging.Route;
+import p2.Logging.Train;
+import p2.TrainRegistration;
+import p2.TrainSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdvanceBenchmark advances a train system with every train registered to a route, one time instant per call.
+ * <p>
+ * Advancing uses the system up, as its trains reach the end of their routes, so each iteration starts from a newly
+ * loaded system and advances it TICKS time instants, whose time is reported as a whole.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = AdvanceBenchmark.TICKS)
+@Measurement(iterations = 10, batchSize = AdvanceBenchmark.TICKS)
+@Fork(1)
+public class AdvanceBenchmark {
+    // The number of time instants an iteration advances the system
+    static final int TICKS = 50;
+
+    // The number of stations of the network
+    @Param({"1000", "10000", "100000"})
+    public int stations;
+
+    // The scenario of the network
+    private Path file;
+    // The train system being advanced
+    private TrainSystem system;
+
+    @Setup(Level.Trial)
+    public void writeNetwork() throws IOException {
+        file = Networks.write(stations);
+    }
+
+    @Setup(Level.Iteration)
+    public void registerTrains() throws IOException {
+        system = Networks.load(file);
+        ArrayList<Route> routes = system.getRoutes();
+        ArrayList<Train> trains = system.getTrains();
+        List<TrainRegistration> registrations = new ArrayList<>(trains.size());
+        for (int i = 0; i < trains.size(); i++) {
+            registrations.add(new TrainRegistration(trains.get(i).getName(),
+                    routes.get(i % routes.size()).getName(), new String[0]));
+        }
+        system.setToWorking();
+        system.incrementTime();
+        system.registerTrains(registrations);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteNetwork() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object advance() {
+        system.incrementTime();
+        return system.advance();
+    }
+}
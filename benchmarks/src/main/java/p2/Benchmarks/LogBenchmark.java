@@ -0,0 +1,92 @@
+package p2.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import p2.Enums.Action;
+import p2.Events.CFOSEvent;
+import p2.Events.Event;
+import p2.Events.EventPattern;
+import p2.Events.MoveEvent;
+import p2.Logging.Simulator;
+import p2.TrainSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LogBenchmark queries an event log of trains moving and segments closing over a hundred time instants. The
+ * sequences looked for are three events near the end of the log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+    // The number of events in the log
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    // The log
+    private Simulator log;
+    // The sequence looked for, as the log prints it and as patterns
+    private ArrayList<String> sequence;
+    private List<EventPattern<Event>> patterns;
+    // The number of queries run so far
+    private int queries;
+
+    @Setup
+    public void fillLog() {
+        log = new Simulator(new TrainSystem());
+        for (int i = 0; i < size; i++) log.addToLog(event(i));
+        sequence = new ArrayList<>();
+        patterns = new ArrayList<>();
+        for (int i = size - 4; i < size - 1; i++) {
+            sequence.add(event(i).toString());
+            patterns.add(EventPattern.of(event(i)));
+        }
+    }
+
+    @Benchmark
+    public List<String> getEventsAtTime() {
+        return log.getEvents(queries++ % 100);
+    }
+
+    @Benchmark
+    public List<String> getEventsOfObject() {
+        return log.getEvents("T" + queries++ % 100);
+    }
+
+    @Benchmark
+    public boolean containsInSequence() {
+        return log.containsInSequence(sequence);
+    }
+
+    @Benchmark
+    public int indexOfSequence() {
+        return log.indexOfSequence(patterns);
+    }
+
+    /**
+     * Returns an event of the log.
+     *
+     * @param index the index of the event in the log
+     * @return the event
+     */
+    private Event event(int index) {
+        int time = (int) ((long) index * 100 / size);
+        return index % 10 == 0 ? new CFOSEvent("g" + index % 50, time, Action.Close)
+                : new MoveEvent("T" + index % 100, time, "S" + index, "S" + (index + 1));
+    }
+}
@@ -0,0 +1,109 @@
+package p2.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import p2.Logging.Route;
+import p2.Logging.Segment;
+import p2.Logging.Station;
+import p2.Logging.Train;
+import p2.TrainSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * LookupBenchmark looks the stations, segments, routes and trains of a network up by name, one name after the other.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    // The number of stations of the network
+    @Param({"1000", "10000", "100000"})
+    public int stations;
+
+    // The train system, loaded once
+    private TrainSystem system;
+    // The names of the stations, segments, routes and trains of the system
+    private String[] stationNames;
+    private String[] segmentNames;
+    private String[] routeNames;
+    private String[] trainNames;
+    // The index of the next name to look up
+    private int next;
+
+    @Setup
+    public void loadNetwork() throws IOException {
+        Path file = Networks.write(stations);
+        try {
+            system = Networks.load(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        stationNames = names(system.getStations(), Station::getName);
+        segmentNames = names(system.getSegments(), Segment::getName);
+        routeNames = names(system.getRoutes(), Route::getName);
+        trainNames = names(system.getTrains(), Train::getName);
+    }
+
+    @Benchmark
+    public Station getStationByName() {
+        return system.getStationByName(stationNames[next(stationNames.length)]);
+    }
+
+    @Benchmark
+    public Segment getSegmentByName() {
+        return system.getSegmentByName(segmentNames[next(segmentNames.length)]);
+    }
+
+    @Benchmark
+    public Route getRouteByName() {
+        return system.getRouteByName(routeNames[next(routeNames.length)]);
+    }
+
+    @Benchmark
+    public Train getTrainByName() {
+        return system.getTrainByName(trainNames[next(trainNames.length)]);
+    }
+
+    /**
+     * Returns the index of the next name to look up.
+     *
+     * @param count the number of names
+     * @return the index
+     */
+    private int next(int count) {
+        if (++next >= count) next = 0;
+        return next;
+    }
+
+    /**
+     * Returns the names of the stations, segments, routes or trains of a train system.
+     *
+     * @param entities the entities
+     * @param name     returns the name of an entity
+     * @param <T>      the type of the entities
+     * @return their names
+     */
+    private static <T> String[] names(List<T> entities, Function<T, String> name) {
+        String[] names = new String[entities.size()];
+        for (int i = 0; i < names.length; i++) names[i] = name.apply(entities.get(i));
+        return names;
+    }
+}
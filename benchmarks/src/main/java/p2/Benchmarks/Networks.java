@@ -0,0 +1,52 @@
+package p2.Benchmarks;
+
+import p2.Enums.NetworkShape;
+import p2.Logging.Simulator;
+import p2.Test.ScenarioGenerator;
+import p2.TrainSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Networks writes the scenarios the benchmarks run on and loads them.
+ */
+final class Networks {
+    private Networks() {
+    }
+
+    /**
+     * Writes a scenario to a temporary file whose network is a grid of a given number of stations, with a route for
+     * every hundred stations and a train for every ten. The scenario registers no train: the benchmarks register them
+     * themselves.
+     *
+     * @param stations the number of stations
+     * @return the path to the scenario
+     * @throws IOException if the scenario cannot be written
+     */
+    static Path write(int stations) throws IOException {
+        ScenarioGenerator generator = new ScenarioGenerator(NetworkShape.Grid, 1);
+        generator.setStations(stations);
+        generator.setRoutes(Math.max(1, stations / 100));
+        generator.setRouteLength(20);
+        generator.setTrains(Math.max(1, stations / 10));
+        generator.setBlocks(0);
+        Path file = Files.createTempFile("network-" + stations, ".txt");
+        generator.write(file.toString());
+        return file;
+    }
+
+    /**
+     * Loads the network of a scenario into a new train system.
+     *
+     * @param file the path to the scenario
+     * @return the train system
+     * @throws IOException if the scenario cannot be read
+     */
+    static TrainSystem load(Path file) throws IOException {
+        TrainSystem system = new TrainSystem();
+        new Simulator(system).initialise(file.toString());
+        return system;
+    }
+}
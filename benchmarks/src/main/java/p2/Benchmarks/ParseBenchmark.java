@@ -0,0 +1,53 @@
+package p2.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import p2.TrainSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParseBenchmark loads the network of a scenario into a new train system.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    // The number of stations of the network
+    @Param({"1000", "10000", "100000"})
+    public int stations;
+
+    // The scenario of the network
+    private Path file;
+
+    @Setup
+    public void writeNetwork() throws IOException {
+        file = Networks.write(stations);
+    }
+
+    @TearDown
+    public void deleteNetwork() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public TrainSystem initialise() throws IOException {
+        return Networks.load(file);
+    }
+}
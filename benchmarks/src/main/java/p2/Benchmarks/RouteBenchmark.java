@@ -0,0 +1,77 @@
+package p2.Benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import p2.Logging.Route;
+import p2.Logging.Station;
+import p2.TrainSystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RouteBenchmark looks up the station after, or before, each station of one long route.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+    // The number of segments of the route
+    @Param({"10", "100", "1000"})
+    public int segments;
+
+    // The route
+    private Route route;
+    // The names of the stations of the route
+    private String[] stations;
+    // The index of the next station to look up
+    private int next;
+
+    @Setup
+    public void buildRoute() {
+        TrainSystem system = new TrainSystem();
+        String[] names = new String[segments];
+        stations = new String[segments + 1];
+        for (int s = 0; s <= segments; s++) {
+            stations[s] = "S" + s;
+            system.addStation(stations[s]);
+        }
+        for (int g = 0; g < segments; g++) {
+            names[g] = "g" + g;
+            system.addSegment(names[g], stations[g], stations[g + 1]);
+        }
+        system.addRoute("R", false, names);
+        route = system.getRouteByName("R");
+    }
+
+    @Benchmark
+    public Station getNextStation() {
+        return route.getNextStation(nextStation());
+    }
+
+    @Benchmark
+    public Station getPreviousStation() {
+        return route.getPreviousStation(nextStation(), false);
+    }
+
+    /**
+     * Returns the name of the next station to look up.
+     *
+     * @return the name
+     */
+    private String nextStation() {
+        if (++next >= stations.length) next = 0;
+        return stations[next];
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * The JMH benchmarks of the hot paths of the simulation: advancing the train system, looking entities up by name,
+ * walking a route, querying the event log and parsing a scenario.
+ * <p>
+ * Build them with mvn package from the root of the project, then run them with their allocation rates as
+ * java -jar benchmarks/target/benchmarks.jar -prof gc, adding a regular expression to run only the benchmarks whose
+ * name it matches and -p to pick the sizes. Networks are written by the ScenarioGenerator with a fixed seed, so runs
+ * are comparable.
+ */
+package p2.Benchmarks;
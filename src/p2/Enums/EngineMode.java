@@ -0,0 +1,40 @@
+package p2.Enums;
+
+/**
+ * The EngineMode enum represents the ways the simulator can move the clock forward.
+ * Both modes produce the same event log.
+ */
+public enum EngineMode {
+    /**
+     * The TickByTick mode advances the system once for every time instant.
+     */
+    TickByTick("Tick by tick"),
+
+    /**
+     * The EventDriven mode jumps straight to the next time instant at which something can change.
+     */
+    EventDriven("Event driven");
+
+    /**
+     * The description of the engine mode.
+     */
+    private final String description;
+
+    /**
+     * Constructs a new EngineMode with the given description.
+     *
+     * @param description the description of the engine mode
+     */
+    EngineMode(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the description of the engine mode.
+     *
+     * @return the description of the engine mode
+     */
+    public String getDescription() {
+        return description;
+    }
+}
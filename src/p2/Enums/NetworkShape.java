@@ -0,0 +1,50 @@
+package p2.Enums;
+
+/**
+ * The NetworkShape enum represents the layouts of the networks the scenario generator builds.
+ * Each shape arranges the stations into lines, and the segments of a line join its stations one after the other.
+ */
+public enum NetworkShape {
+    /**
+     * The Linear shape puts every station on one line.
+     */
+    Linear("Linear"),
+
+    /**
+     * The HubAndSpoke shape starts every line at the same hub station and spreads the other stations over the lines.
+     */
+    HubAndSpoke("Hub and spoke"),
+
+    /**
+     * The Grid shape lays the stations out in a square grid, with one line per row and one per column.
+     */
+    Grid("Grid"),
+
+    /**
+     * The Disconnected shape spreads the stations over lines that share no station.
+     */
+    Disconnected("Disconnected");
+
+    /**
+     * The description of the network shape.
+     */
+    private final String description;
+
+    /**
+     * Constructs a new NetworkShape with the given description.
+     *
+     * @param description the description of the network shape
+     */
+    NetworkShape(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the description of the network shape.
+     *
+     * @return the description of the network shape
+     */
+    public String getDescription() {
+        return description;
+    }
+}
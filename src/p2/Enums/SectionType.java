@@ -0,0 +1,55 @@
+package p2.Enums;
+
+/**
+ * The SectionType enum represents the sections of a scenario file.
+ * Each section starts with a header line made of its keyword and the number of lines that follow.
+ */
+public enum SectionType {
+    /**
+     * The Stations section lists one station name per line.
+     */
+    Stations("Stations"),
+
+    /**
+     * The Segments section lists one segment and its two stations per line.
+     */
+    Segments("Segments"),
+
+    /**
+     * The Routes section lists one route, whether it is a round trip, and its segments per line.
+     */
+    Routes("Routes"),
+
+    /**
+     * The Events section lists one opening or closing of a station, segment or route per line.
+     */
+    Events("Events"),
+
+    /**
+     * The Trains section lists one train, its start time, route and stops per line.
+     */
+    Trains("Trains");
+
+    /**
+     * The keyword that starts the header line of the section.
+     */
+    private final String description;
+
+    /**
+     * Constructs a new SectionType with the given keyword.
+     *
+     * @param description the keyword of the section
+     */
+    SectionType(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the keyword that starts the header line of the section.
+     *
+     * @return the keyword of the section
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,40 @@
+package p2.Enums;
+
+/**
+ * The ViolationType enum represents the rules of an event log that the log validator checks.
+ */
+public enum ViolationType {
+    /**
+     * The Duplicate violation is an event equal to the last event of its class for its object.
+     */
+    Duplicate("Duplicate event"),
+
+    /**
+     * The Limit violation is an event of the same kind as the last event of its class for its object, in the same
+     * time instant.
+     */
+    Limit("Too many events in a time instant");
+
+    /**
+     * The description of the violation type.
+     */
+    private final String description;
+
+    /**
+     * Constructs a new ViolationType with the given description.
+     *
+     * @param description the description of the violation type
+     */
+    ViolationType(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the description of the violation type.
+     *
+     * @return the description of the violation type
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,136 @@
+package p2;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The EventScheduler class decides which time instant the simulation has to visit next.
+ * After every instant it collects the instants at which the train system or the scenario file can next change
+ * something, and the earliest of them is where the clock jumps to.
+ */
+public final class EventScheduler {
+    /**
+     * Returned when nothing is scheduled, meaning that no instant can change the event log any more.
+     */
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    /**
+     * The Reason enum represents why a time instant was scheduled.
+     */
+    public enum Reason {
+        /**
+         * A registered train finishes waiting for its start time.
+         */
+        TrainStart,
+
+        /**
+         * A train finishes dwelling at a station and can enter its next segment.
+         */
+        DwellExpiry,
+
+        /**
+         * A train can leave an occupied segment.
+         */
+        SegmentRelease,
+
+        /**
+         * The scenario file has a time instance block for the instant.
+         */
+        TimeInstanceBlock,
+
+        /**
+         * Something changes at the next instant that does not fit any other reason.
+         */
+        Immediate
+    }
+
+    /**
+     * A time instant scheduled for a given reason.
+     */
+    public static final class Wakeup {
+        // The scheduled time instant
+        private final int instant;
+        // The reason the instant was scheduled
+        private final Reason reason;
+
+        /**
+         * Constructs a new Wakeup.
+         *
+         * @param instant the scheduled time instant
+         * @param reason  the reason the instant was scheduled
+         */
+        Wakeup(int instant, Reason reason) {
+            this.instant = instant;
+            this.reason = reason;
+        }
+
+        /**
+         * Returns the scheduled time instant.
+         *
+         * @return the scheduled time instant
+         */
+        public int getInstant() {
+            return instant;
+        }
+
+        /**
+         * Returns the reason the instant was scheduled.
+         *
+         * @return the reason the instant was scheduled
+         */
+        public Reason getReason() {
+            return reason;
+        }
+    }
+
+    // The pending wakeups, earliest first
+    private final PriorityQueue<Wakeup> queue = new PriorityQueue<>(Comparator.comparingInt(Wakeup::getInstant));
+    // The wakeup the clock last jumped to
+    private Wakeup last;
+
+    /**
+     * Schedules a time instant.
+     *
+     * @param instant the time instant
+     * @param reason  the reason the instant is scheduled
+     */
+    void schedule(int instant, Reason reason) {
+        if (instant != NEVER)
+            queue.add(new Wakeup(instant, reason));
+    }
+
+    /**
+     * Returns the earliest time instant scheduled so far.
+     *
+     * @return the earliest scheduled instant, or NEVER if nothing is scheduled
+     */
+    int earliest() {
+        Wakeup head = queue.peek();
+        return head == null ? NEVER : head.getInstant();
+    }
+
+    /**
+     * Computes the next time instant the simulation has to visit.
+     *
+     * @param system       the train system being simulated
+     * @param blockInstant the instant of the next time instance block in the scenario file, or NEVER if there is none
+     * @return the next instant to visit, or NEVER if no instant can change the event log any more
+     */
+    public int next(TrainSystem system, int blockInstant) {
+        queue.clear();
+        if (blockInstant > system.getCurrentTime())
+            schedule(blockInstant, Reason.TimeInstanceBlock);
+        system.scheduleWakeups(this);
+        last = queue.peek();
+        return earliest();
+    }
+
+    /**
+     * Returns the wakeup the clock last jumped to.
+     *
+     * @return the last wakeup, or null if nothing was scheduled
+     */
+    public Wakeup lastWakeup() {
+        return last;
+    }
+}
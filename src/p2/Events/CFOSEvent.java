@@ -22,6 +22,15 @@ public class CFOSEvent extends Event {
         this.action = action;
     }
 
+    /**
+     * Returns the action associated with this event.
+     *
+     * @return the action associated with this event
+     */
+    public Action getAction() {
+        return action;
+    }
+
     /**
      * Checks if the provided object is equal to this CFOSEvent.
      * Two CFOSEvents are considered equal if they have the same object name, time, and action.
@@ -36,6 +45,26 @@ public class CFOSEvent extends Event {
         return false;
     }
 
+    /**
+     * Returns a hash code for the CFOSEvent, consistent with equals.
+     *
+     * @return a hash code for the CFOSEvent
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + action.ordinal();
+    }
+
+    /**
+     * Returns the kind of the CFOSEvent, which is its action.
+     *
+     * @return the name of the action
+     */
+    @Override
+    public String getKind() {
+        return action.name();
+    }
+
     /**
      * Returns a string representation of the CFOSEvent.
      * The string representation is in the format "Action Event [Object=[objectName], Time()=[time]]".
@@ -53,6 +53,26 @@ public abstract class Event {
         return false;
     }
 
+    /**
+     * Returns a hash code for the event, consistent with equals.
+     * Events of every subclass combine this hash code with the hash codes of their own fields.
+     *
+     * @return a hash code for the event
+     */
+    @Override
+    public int hashCode() {
+        return 31 * objectName.hashCode() + time;
+    }
+
+    /**
+     * Returns the kind of the event. Within a time instant, an object does not log two events of one kind in a row.
+     *
+     * @return the kind of the event, which is the name of its class unless a subclass distinguishes further
+     */
+    public String getKind() {
+        return getClass().getSimpleName();
+    }
+
     /**
      * Returns a string representation of the event.
      * The string representation is in the format "Object=[objectName], Time()=[time]".
@@ -0,0 +1,174 @@
+package p2.Events;
+
+import java.util.function.Predicate;
+
+/**
+ * EventPattern describes the events a query on an event log looks for: events of a class, optionally of one object,
+ * in a range of time instants and with fields that meet a condition.
+ * Patterns are matched against the logged events themselves, so no event has to be turned into a string.
+ * A pattern is immutable; object, at, between and where return a narrower pattern.
+ *
+ * @param <E> the class of the events the pattern matches
+ */
+public final class EventPattern<E extends Event> {
+    // The class of the events
+    private final Class<E> type;
+    // The name of the object of the events, or null for any object
+    private final String objectName;
+    // The first time instant of the events
+    private final int fromTime;
+    // The last time instant of the events
+    private final int toTime;
+    // The condition on the fields of the events, or null for none
+    private final Predicate<? super E> condition;
+
+    /**
+     * Constructs a pattern.
+     *
+     * @param type       the class of the events
+     * @param objectName the name of the object of the events, or null for any object
+     * @param fromTime   the first time instant of the events
+     * @param toTime     the last time instant of the events
+     * @param condition  the condition on the fields of the events, or null for none
+     */
+    private EventPattern(Class<E> type, String objectName, int fromTime, int toTime, Predicate<? super E> condition) {
+        this.type = type;
+        this.objectName = objectName;
+        this.fromTime = fromTime;
+        this.toTime = toTime;
+        this.condition = condition;
+    }
+
+    /**
+     * Returns a pattern that matches every event of a class.
+     *
+     * @param type the class of the events, such as MoveEvent.class, or Event.class for every event
+     * @param <E>  the class of the events
+     * @return the pattern
+     */
+    public static <E extends Event> EventPattern<E> of(Class<E> type) {
+        if (type == null) throw new IllegalArgumentException("The class of the events cannot be null.");
+        return new EventPattern<>(type, null, Integer.MIN_VALUE, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Returns a pattern that matches the events equal to an event.
+     *
+     * @param event the event
+     * @return the pattern
+     */
+    public static EventPattern<Event> of(Event event) {
+        if (event == null) throw new IllegalArgumentException("The event cannot be null.");
+        return new EventPattern<>(Event.class, event.getObjectName(), event.getTime(), event.getTime(), event::equals);
+    }
+
+    /**
+     * Returns a pattern that matches the events the log prints as a given text.
+     * The object and the time instant are read from the text, so that only the events of that object in that time
+     * instant are printed to be compared.
+     *
+     * @param text the event, as the log prints it
+     * @return the pattern, which matches no event if the text is not the text of an event
+     */
+    public static EventPattern<Event> text(String text) {
+        int object = text == null ? -1 : text.indexOf("Object=");
+        int time = object < 0 ? -1 : text.indexOf(", Time()=", object);
+        if (time < 0) return new EventPattern<>(Event.class, null, 0, -1, null);
+        int digits = time + ", Time()=".length();
+        int end = digits < text.length() && text.charAt(digits) == '-' ? digits + 1 : digits;
+        while (end < text.length() && Character.isDigit(text.charAt(end))) end++;
+        int instant;
+        try {
+            instant = Integer.parseInt(text.substring(digits, end));
+        } catch (NumberFormatException e) {
+            return new EventPattern<>(Event.class, null, 0, -1, null);
+        }
+        return new EventPattern<>(Event.class, text.substring(object + "Object=".length(), time), instant, instant,
+                event -> text.equals(event.toString()));
+    }
+
+    /**
+     * Returns a pattern that also requires the events to be of an object.
+     *
+     * @param objectName the name of the object
+     * @return the pattern
+     */
+    public EventPattern<E> object(String objectName) {
+        return new EventPattern<>(type, objectName, fromTime, toTime, condition);
+    }
+
+    /**
+     * Returns a pattern that also requires the events to be in a time instant.
+     *
+     * @param time the time instant
+     * @return the pattern
+     */
+    public EventPattern<E> at(int time) {
+        return between(time, time);
+    }
+
+    /**
+     * Returns a pattern that also requires the events to be in a range of time instants.
+     *
+     * @param from the first time instant of the range
+     * @param to   the last time instant of the range
+     * @return the pattern
+     */
+    public EventPattern<E> between(int from, int to) {
+        return new EventPattern<>(type, objectName, Math.max(fromTime, from), Math.min(toTime, to), condition);
+    }
+
+    /**
+     * Returns a pattern that also requires the fields of the events to meet a condition,
+     * such as event -> event.getAction() == Action.Close for a pattern of CFOSEvents.
+     *
+     * @param condition the condition
+     * @return the pattern
+     */
+    public EventPattern<E> where(Predicate<? super E> condition) {
+        if (condition == null) throw new IllegalArgumentException("The condition cannot be null.");
+        Predicate<? super E> before = this.condition;
+        Predicate<E> both = before == null ? condition::test : event -> before.test(event) && condition.test(event);
+        return new EventPattern<>(type, objectName, fromTime, toTime, both);
+    }
+
+    /**
+     * Returns the name of the object of the events.
+     *
+     * @return the name of the object, or null if the pattern matches events of any object
+     */
+    public String getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Returns the first time instant of the events.
+     *
+     * @return the first time instant
+     */
+    public int getFromTime() {
+        return fromTime;
+    }
+
+    /**
+     * Returns the last time instant of the events.
+     *
+     * @return the last time instant, before the first one if the pattern matches no event
+     */
+    public int getToTime() {
+        return toTime;
+    }
+
+    /**
+     * Checks if an event matches the pattern.
+     *
+     * @param event the event
+     * @return true if the event matches the pattern, false otherwise
+     */
+    public boolean matches(Event event) {
+        if (!type.isInstance(event)) return false;
+        if (event.getTime() < fromTime || event.getTime() > toTime) return false;
+        if (objectName != null && !objectName.equals(event.getObjectName())) return false;
+        return condition == null || condition.test(type.cast(event));
+    }
+}
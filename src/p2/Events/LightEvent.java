@@ -26,6 +26,24 @@ public class LightEvent extends Event {
         this.toColour = toColour;
     }
 
+    /**
+     * Returns the color of the light before the event.
+     *
+     * @return the initial color of the light
+     */
+    public Light getFromColour() {
+        return fromColour;
+    }
+
+    /**
+     * Returns the color of the light after the event.
+     *
+     * @return the final color of the light
+     */
+    public Light getToColour() {
+        return toColour;
+    }
+
     /**
      * Returns a string representation of the LightEvent.
      * The string representation is in the format "LightEvent [Object=[objectName], Time()=[time], From colour=[fromColour], To colour=[toColour]]".
@@ -52,4 +70,24 @@ public class LightEvent extends Event {
                     && toColour == ((LightEvent) event).toColour;
         return false;
     }
+
+    /**
+     * Returns a hash code for the LightEvent, consistent with equals.
+     *
+     * @return a hash code for the LightEvent
+     */
+    @Override
+    public int hashCode() {
+        return (31 * super.hashCode() + fromColour.ordinal()) * 31 + toColour.ordinal();
+    }
+
+    /**
+     * Returns the kind of the LightEvent, which is the change of colour.
+     *
+     * @return the colours before and after the event
+     */
+    @Override
+    public String getKind() {
+        return "LightEvent " + fromColour.name() + "->" + toColour.name();
+    }
 }
\ No newline at end of file
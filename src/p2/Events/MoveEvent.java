@@ -24,6 +24,24 @@ public class MoveEvent extends Event {
         this.toStation = toStation;
     }
 
+    /**
+     * Returns the station from which the object is moving.
+     *
+     * @return the station from which the object is moving
+     */
+    public String getFromStation() {
+        return fromStation;
+    }
+
+    /**
+     * Returns the station to which the object is moving.
+     *
+     * @return the station to which the object is moving
+     */
+    public String getToStation() {
+        return toStation;
+    }
+
     /**
      * Returns a string representation of the MoveEvent.
      * The string representation is in the format "MoveEvent [Object=[objectName], Time()=[time], From Station=[fromStation], To Station=[toStation]]".
@@ -49,4 +67,14 @@ public class MoveEvent extends Event {
                     && toStation.equals(((MoveEvent) event).toStation);
         return false;
     }
+
+    /**
+     * Returns a hash code for the MoveEvent, consistent with equals.
+     *
+     * @return a hash code for the MoveEvent
+     */
+    @Override
+    public int hashCode() {
+        return (31 * super.hashCode() + fromStation.hashCode()) * 31 + toStation.hashCode();
+    }
 }
\ No newline at end of file
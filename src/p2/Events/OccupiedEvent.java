@@ -24,6 +24,24 @@ public class OccupiedEvent extends Event {
         this.isEntry = isEntry;
     }
 
+    /**
+     * Returns the train involved in this event.
+     *
+     * @return the name of the train
+     */
+    public String getTrain() {
+        return train;
+    }
+
+    /**
+     * Returns whether the train is entering or exiting the station.
+     *
+     * @return true if the train is entering, false if it is exiting
+     */
+    public boolean isEntry() {
+        return isEntry;
+    }
+
     /**
      * Checks if the provided object is equal to this OccupiedEvent.
      * Two OccupiedEvents are considered equal if they have the same object name, time, train, and entry status.
@@ -39,6 +57,26 @@ public class OccupiedEvent extends Event {
         return false;
     }
 
+    /**
+     * Returns a hash code for the OccupiedEvent, consistent with equals.
+     *
+     * @return a hash code for the OccupiedEvent
+     */
+    @Override
+    public int hashCode() {
+        return (31 * super.hashCode() + train.hashCode()) * 31 + (isEntry ? 1 : 0);
+    }
+
+    /**
+     * Returns the kind of the OccupiedEvent, which is whether the train entered or left.
+     *
+     * @return Enter or Left
+     */
+    @Override
+    public String getKind() {
+        return isEntry ? "Enter" : "Left";
+    }
+
     /**
      * Returns a string representation of the OccupiedEvent.
      * The string representation is in the format "Enter Station Event [Object=[objectName], Time()=[time], Train=[train]]" if the train is entering the station,
@@ -0,0 +1,19 @@
+package p2.Interfaces;
+
+/**
+ * Interface representing a read-only view of the simulation time.
+ * The time seen through a view never goes backwards and can be read from any thread.
+ */
+public interface ClockView {
+    /**
+     * A view that always reads time instant 0, used by entities that do not belong to a train system.
+     */
+    ClockView STOPPED = () -> 0;
+
+    /**
+     * Method to read the current time instant.
+     *
+     * @return An int value representing the current time instant.
+     */
+    int now();
+}
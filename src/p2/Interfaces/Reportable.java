@@ -0,0 +1,17 @@
+package p2.Interfaces;
+
+import java.io.IOException;
+
+/**
+ * Interface representing an object whose report can be streamed.
+ * The report is the text toString() returns, written piece by piece so that it is never held in memory whole.
+ */
+public interface Reportable {
+    /**
+     * Method to write the report of the object.
+     *
+     * @param out The destination of the report, such as a Writer or a StringBuilder.
+     * @throws IOException If the destination cannot be written to.
+     */
+    void report(Appendable out) throws IOException;
+}
@@ -0,0 +1,21 @@
+package p2.Interfaces;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Interface representing where the lines of a scenario come from.
+ * A source hands out one channel, which is read on the thread that prefetches the time instance blocks, so a read
+ * may block until the source has more lines. Closing the source ends the feed: a read that is blocked returns the
+ * end of the input once the lines already handed to the source have been read.
+ */
+public interface ScenarioSource extends Closeable {
+    /**
+     * Method to open the channel the lines of the scenario are read from.
+     *
+     * @return The channel, which the caller closes once it has read it.
+     * @throws IOException If the source cannot be opened.
+     */
+    ReadableByteChannel open() throws IOException;
+}
@@ -5,8 +5,8 @@ import p2.Enums.ObjectType;
 import p2.Enums.RSStatus;
 import p2.Events.CFOSEvent;
 import p2.Events.Event;
+import p2.Interfaces.ClockView;
 import p2.Interfaces.IsVerifiable;
-import p2.TrainSystem;
 
 /**
  * AbstractEntity is an abstract class that implements the IsVerifiable interface.
@@ -18,7 +18,8 @@ abstract class AbstractEntity extends Logable implements IsVerifiable {
     private final String name;
     // The status of the entity
     private RSStatus status = RSStatus.Open;
-    private int currentTime;
+    // The clock the entity reads the current time from
+    private final ClockView clock;
 
     /**
      * Constructs a new AbstractEntity with the given name.
@@ -28,16 +29,27 @@ abstract class AbstractEntity extends Logable implements IsVerifiable {
      * @param name the name of the entity
      */
     public AbstractEntity(String name) {
+        this(name, ClockView.STOPPED);
+    }
+
+    /**
+     * Constructs a new AbstractEntity with the given name that reads the time from the given clock.
+     *
+     * @param name  the name of the entity
+     * @param clock the clock shared by the train system the entity belongs to
+     */
+    public AbstractEntity(String name, ClockView clock) {
         this.name = name;
+        this.clock = clock;
     }
 
     /**
-     * This method is used to set the current time of the object.
+     * This method is used to get the clock the object reads the current time from.
      *
-     * @param currentTime This is the current time of the object.
+     * @return ClockView This returns the clock of the object.
      */
-    public void setCurrentTime(int currentTime) {
-        this.currentTime = currentTime;
+    public ClockView getClock() {
+        return clock;
     }
 
     /**
@@ -46,7 +58,7 @@ abstract class AbstractEntity extends Logable implements IsVerifiable {
      * @return int This returns the current time of the object.
      */
     public int getCurrentTime() {
-        return currentTime;
+        return clock.now();
     }
 
     /**
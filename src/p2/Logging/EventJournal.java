@@ -0,0 +1,483 @@
+package p2.Logging;
+
+import p2.Enums.Action;
+import p2.Enums.Light;
+import p2.Events.CFOSEvent;
+import p2.Events.Event;
+import p2.Events.LightEvent;
+import p2.Events.MoveEvent;
+import p2.Events.OccupiedEvent;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * EventJournal writes events to an append-only binary file as they are logged, so that a run can be examined
+ * later without simulating it again.
+ * <p>
+ * The events are handed to a writer thread, which encodes every event queued since its last write and writes them
+ * together: one write, and one force to disk if asked for, commits the whole group. The writer waits for a group
+ * of GROUP_SIZE events, or for LINGER_MILLIS, so that it is not woken up by every event; the thread that logs the
+ * events only waits if the writer falls more than MAX_PENDING events behind. Every name is written once, the first
+ * time an event uses it, and referred to by its index afterwards; times are written as the difference from the time
+ * of the event before. The journal is read back through a memory mapping, either into a log or as text; a journal whose
+ * last record was cut short, by a crash for instance, is read up to the last whole record.
+ * <p>
+ * The layout is:
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   then records, each a varint length followed by that many bytes:
+ *     byte NAME,     then the UTF-8 bytes of the next name
+ *     byte CFOS,     varint time difference, varint object, byte action
+ *     byte LIGHT,    varint time difference, varint object, byte from colour, byte to colour
+ *     byte MOVE,     varint time difference, varint object, varint from station, varint to station
+ *     byte OCCUPIED, varint time difference, varint object, varint train, byte 1 on entry and 0 on exit
+ * </pre>
+ * The time differences are zigzag encoded, so that small negative differences are short too.
+ */
+public final class EventJournal implements Closeable {
+    // The first bytes of every journal: "ATMJ"
+    private static final int MAGIC = 0x41544D4A;
+    // The version of the layout, changed whenever the layout or the order of the enums it stores changes
+    private static final int VERSION = 1;
+    // The types of the records
+    private static final byte NAME = 1;
+    private static final byte CFOS = 2;
+    private static final byte LIGHT = 3;
+    private static final byte MOVE = 4;
+    private static final byte OCCUPIED = 5;
+    // The number of events that can wait for the writer before append() waits too
+    private static final int MAX_PENDING = 1 << 16;
+    // The number of events the writer waits for before it writes a group, unless LINGER_MILLIS pass first
+    private static final int GROUP_SIZE = 1 << 12;
+    // The longest time an event waits for its group to fill, in milliseconds
+    private static final long LINGER_MILLIS = 20;
+    // The size of the buffer the records are encoded into before they are written
+    private static final int BUFFER_SIZE = 1 << 16;
+    // The largest part of a journal mapped at once
+    private static final long WINDOW = 1L << 30;
+
+    // The file the journal is written to
+    private final FileChannel channel;
+    // Whether each group of events is forced to disk once written
+    private final boolean force;
+    // The thread writing the events
+    private final Thread writer;
+    // The events appended and not taken by the writer yet
+    private List<Event> pending = new ArrayList<>();
+    // Whether the writer waits for a first event, and must be woken up by it
+    private boolean idle;
+    // The number of threads waiting in flush()
+    private int flushing;
+    // The number of events appended, and the number of them written
+    private long appended;
+    private long committed;
+    // Whether the journal has been closed
+    private boolean closed;
+    // The exception that stopped the writer, or null
+    private IOException failure;
+
+    // The index of each name written so far; only used by the writer
+    private final HashMap<String, Integer> names = new HashMap<>();
+    // The time of the last event written; only used by the writer
+    private int lastTime;
+    // The records encoded and not written yet; only used by the writer
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // The record being encoded; only used by the writer
+    private final ByteBuffer record = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Creates a journal, replacing any file at its path, and starts its writer.
+     *
+     * @param journalFile the path of the journal
+     * @param force       whether each group of events is forced to disk once written, so that it survives a crash
+     *                    of the machine and not only of the program
+     * @throws IOException if the file cannot be created
+     */
+    public EventJournal(String journalFile, boolean force) throws IOException {
+        this.channel = FileChannel.open(Path.of(journalFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.force = force;
+        buffer.putInt(MAGIC).putInt(VERSION);
+        this.writer = new Thread(this::run, "event-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an event to be written.
+     *
+     * @param event the event, of one of the four event classes
+     * @throws IllegalArgumentException if the event is of another class
+     * @throws IllegalStateException    if the journal is closed
+     * @throws UncheckedIOException     if an earlier group of events could not be written
+     */
+    public synchronized void append(Event event) {
+        Class<?> type = event.getClass();
+        if (type != CFOSEvent.class && type != LightEvent.class && type != MoveEvent.class
+                && type != OccupiedEvent.class)
+            throw new IllegalArgumentException("Events of " + type.getName() + " cannot be journaled.");
+        while (pending.size() >= MAX_PENDING && failure == null && !closed) waitForWriter();
+        if (failure != null) throw new UncheckedIOException("The event journal could not be written", failure);
+        if (closed) throw new IllegalStateException("The event journal is closed.");
+        pending.add(event);
+        appended++;
+        // The writer is only woken up by the first event and by a full group, not by every event
+        if (idle || pending.size() == GROUP_SIZE) {
+            idle = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every event appended so far is written, and forced to disk if the journal forces its groups.
+     *
+     * @throws UncheckedIOException if the events could not be written
+     */
+    public synchronized void flush() {
+        long target = appended;
+        flushing++;
+        notifyAll();
+        try {
+            while (committed < target && failure == null) waitForWriter();
+        } finally {
+            flushing--;
+        }
+        if (failure != null) throw new UncheckedIOException("The event journal could not be written", failure);
+    }
+
+    /**
+     * Writes the events appended so far, stops the writer and closes the file.
+     *
+     * @throws IOException if the events could not be written or the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Waits for the writer to take or write events.
+     */
+    private void waitForWriter() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the event journal", e);
+        }
+    }
+
+    /**
+     * Takes the events appended since the last group and writes them as one group, until the journal is closed.
+     */
+    private void run() {
+        List<Event> group = new ArrayList<>();
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (pending.isEmpty() && !closed) {
+                        idle = true;
+                        wait();
+                    }
+                    idle = false;
+                    // Wait a little for more events, so that they are written together
+                    long deadline = System.currentTimeMillis() + LINGER_MILLIS;
+                    long left = LINGER_MILLIS;
+                    while (pending.size() < GROUP_SIZE && flushing == 0 && !closed && left > 0) {
+                        wait(left);
+                        left = deadline - System.currentTimeMillis();
+                    }
+                    if (pending.isEmpty() && buffer.position() == 0) return;
+                    List<Event> taken = pending;
+                    pending = group;
+                    group = taken;
+                    // Appenders waiting for room can go on
+                    notifyAll();
+                }
+                for (Event event : group) encode(event);
+                drain();
+                if (force) channel.force(false);
+                synchronized (this) {
+                    committed += group.size();
+                    notifyAll();
+                }
+                group.clear();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                failure = new IOException("The event journal writer was interrupted", e);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Encodes an event into the buffer, after the names it uses for the first time.
+     *
+     * @param event the event
+     * @throws IOException if the buffer had to be written and could not be
+     */
+    private void encode(Event event) throws IOException {
+        int object = name(event.getObjectName());
+        record.clear();
+        int time = event.getTime();
+        if (event instanceof CFOSEvent) {
+            record.put(CFOS);
+            header(time, object);
+            record.put((byte) ((CFOSEvent) event).getAction().ordinal());
+        } else if (event instanceof LightEvent) {
+            LightEvent light = (LightEvent) event;
+            record.put(LIGHT);
+            header(time, object);
+            record.put((byte) light.getFromColour().ordinal()).put((byte) light.getToColour().ordinal());
+        } else if (event instanceof MoveEvent) {
+            MoveEvent move = (MoveEvent) event;
+            int from = name(move.getFromStation());
+            int to = name(move.getToStation());
+            record.clear();
+            record.put(MOVE);
+            header(time, object);
+            putVarint(record, from);
+            putVarint(record, to);
+        } else {
+            OccupiedEvent occupied = (OccupiedEvent) event;
+            int train = name(occupied.getTrain());
+            record.clear();
+            record.put(OCCUPIED);
+            header(time, object);
+            putVarint(record, train);
+            record.put((byte) (occupied.isEntry() ? 1 : 0));
+        }
+        lastTime = time;
+        writeRecord();
+    }
+
+    /**
+     * Encodes the time and object of an event into the record.
+     *
+     * @param time   the time of the event
+     * @param object the index of the name of its object
+     */
+    private void header(int time, int object) {
+        int difference = time - lastTime;
+        putVarint(record, (difference << 1) ^ (difference >> 31));
+        putVarint(record, object);
+    }
+
+    /**
+     * Returns the index of a name, writing a NAME record first if the name has not been written yet.
+     *
+     * @param name the name
+     * @return the index of the name
+     * @throws IOException if the buffer had to be written and could not be
+     */
+    private int name(String name) throws IOException {
+        Integer index = names.get(name);
+        if (index != null) return index;
+        byte[] bytes = String.valueOf(name).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length + 1 > BUFFER_SIZE - 10)
+            throw new IOException("The name " + name.substring(0, 40) + "... is too long for the event journal");
+        record.clear();
+        record.put(NAME).put(bytes);
+        writeRecord();
+        names.put(name, names.size());
+        return names.size() - 1;
+    }
+
+    /**
+     * Appends the record, after its length, to the buffer, writing the buffer first if it has no room.
+     *
+     * @throws IOException if the buffer could not be written
+     */
+    private void writeRecord() throws IOException {
+        record.flip();
+        if (buffer.remaining() < record.remaining() + 5) drain();
+        putVarint(buffer, record.remaining());
+        buffer.put(record);
+    }
+
+    /**
+     * Writes the buffer to the file.
+     *
+     * @throws IOException if the buffer could not be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Encodes an unsigned varint: seven bits per byte, the lowest first, with the high bit set on every byte but
+     * the last.
+     *
+     * @param out   the buffer
+     * @param value the value, read as unsigned
+     */
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Reads a journal through a memory mapping and replays its events into a log, in the order they were written.
+     *
+     * @param journalFile the path of the journal
+     * @param log         the log the events are added to, whose queries then answer for the journaled run
+     * @return the number of events replayed
+     * @throws FileNotFoundException    if the journal cannot be opened
+     * @throws IllegalArgumentException if the file is not a journal of this version, or is corrupt
+     */
+    public static long replay(String journalFile, Logable log) throws FileNotFoundException {
+        return read(journalFile, log::addToLog);
+    }
+
+    /**
+     * Reads a journal through a memory mapping and writes its events as text, one per line, as the text log shows
+     * them.
+     *
+     * @param journalFile the path of the journal
+     * @param out         the destination of the text
+     * @return the number of events written
+     * @throws FileNotFoundException    if the journal cannot be opened
+     * @throws IllegalArgumentException if the file is not a journal of this version, or is corrupt
+     * @throws UncheckedIOException     if the destination cannot be written to
+     */
+    public static long render(String journalFile, Appendable out) throws FileNotFoundException {
+        return read(journalFile, event -> {
+            try {
+                out.append(event.toString()).append('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads a journal through a memory mapping and hands each of its events to a consumer.
+     * The journal is mapped a window at a time, so journals larger than a mapping can be read. A record cut short
+     * at the end of the file ends the journal.
+     *
+     * @param journalFile the path of the journal
+     * @param consumer    the consumer of the events, in the order they were written
+     * @return the number of events read
+     * @throws FileNotFoundException    if the journal cannot be opened
+     * @throws IllegalArgumentException if the file is not a journal of this version, or is corrupt
+     */
+    public static long read(String journalFile, Consumer<? super Event> consumer) throws FileNotFoundException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(Path.of(journalFile), StandardOpenOption.READ);
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(journalFile, e);
+        }
+        try (channel) {
+            long size = channel.size();
+            if (size < 8) throw new IllegalArgumentException(journalFile + " is not an event journal");
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, WINDOW));
+            if (in.getInt() != MAGIC) throw new IllegalArgumentException(journalFile + " is not an event journal");
+            int version = in.getInt();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported event journal version: " + version);
+
+            List<String> names = new ArrayList<>();
+            long base = 0;
+            int time = 0;
+            long events = 0;
+            byte[] scratch = new byte[64];
+            while (base + in.position() < size) {
+                int start = in.position();
+                int length = getVarint(in);
+                if (length < 0 || in.remaining() < length) {
+                    // The record runs past the window: map the next window from its start, or stop at a torn tail
+                    long offset = base + start;
+                    if (base + in.limit() >= size) break;
+                    base = offset;
+                    in = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(size - base, WINDOW));
+                    continue;
+                }
+                int end = in.position() + length;
+                byte type = in.get();
+                if (type == NAME) {
+                    int bytes = end - in.position();
+                    if (bytes > scratch.length) scratch = new byte[Math.max(bytes, scratch.length * 2)];
+                    in.get(scratch, 0, bytes);
+                    names.add(new String(scratch, 0, bytes, StandardCharsets.UTF_8));
+                    continue;
+                }
+                int difference = getVarint(in);
+                time += (difference >>> 1) ^ -(difference & 1);
+                String object = names.get(getVarint(in));
+                Event event = switch (type) {
+                    case CFOS -> new CFOSEvent(object, time, Action.values()[in.get()]);
+                    case LIGHT -> new LightEvent(object, time, Light.values()[in.get()], Light.values()[in.get()]);
+                    case MOVE -> new MoveEvent(object, time, names.get(getVarint(in)), names.get(getVarint(in)));
+                    case OCCUPIED -> new OccupiedEvent(object, time, names.get(getVarint(in)), in.get() == 1);
+                    default -> throw new IllegalArgumentException(journalFile + " has a record of unknown type "
+                            + type + " at " + (base + start));
+                };
+                if (in.position() != end)
+                    throw new IllegalArgumentException(journalFile + " has a corrupt record at " + (base + start));
+                consumer.accept(event);
+                events++;
+            }
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IndexOutOfBoundsException | java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException(journalFile + " is a corrupt event journal", e);
+        }
+    }
+
+    /**
+     * Decodes an unsigned varint.
+     *
+     * @param in the buffer
+     * @return the value, or -1 if the buffer ends before the varint does
+     */
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) return -1;
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("A varint of the event journal is too long");
+    }
+}
@@ -0,0 +1,534 @@
+package p2.Logging;
+
+import p2.Enums.Action;
+import p2.Enums.Light;
+import p2.Events.CFOSEvent;
+import p2.Events.Event;
+import p2.Events.LightEvent;
+import p2.Events.MoveEvent;
+import p2.Events.OccupiedEvent;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * EventStore holds an event log in columns of primitives rather than as event objects.
+ * <p>
+ * Each event is a kind, the id of its object and the id of its payload. Names are interned in one dictionary and
+ * referred to by id, the action of a CFOSEvent, the colours of a LightEvent and the direction of an OccupiedEvent
+ * are folded into the kind, and the two stations of a MoveEvent are interned as one pair. While events are logged
+ * in time order, their time instants are kept once per instant rather than once per event. The columns grow in
+ * chunks, so they are never copied and waste at most one chunk. An event is rebuilt from the columns each time it
+ * is asked for, so the events returned are equal to the ones logged, but not the same objects. Events of other
+ * classes are kept as they are.
+ * <p>
+ * The positions of the events of each object are indexed when they are first asked for, and then only the events
+ * added since are indexed, each appended to the positions of its object. Events are only ever added; add and
+ * postings are synchronized so that a thread that synchronizes on the store sees every event added before.
+ */
+final class EventStore extends AbstractList<Event> implements RandomAccess {
+    // The kinds: a CFOSEvent for each action, then a LightEvent for each pair of colours, then the others
+    private static final Action[] ACTIONS = Action.values();
+    private static final Light[] LIGHTS = Light.values();
+    private static final int LIGHT = ACTIONS.length;
+    private static final int MOVE = LIGHT + LIGHTS.length * LIGHTS.length;
+    private static final int ENTER = MOVE + 1;
+    private static final int LEFT = MOVE + 2;
+    private static final int OTHER = MOVE + 3;
+    // The number of events in a chunk of the columns, as a power of two
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    // The kind of each event, by chunk
+    private byte[][] kinds = new byte[4][];
+    // The id of the name of the object of each event, by chunk
+    private int[][] objects = new int[4][];
+    // The id of the payload of each event, by chunk: a pair of stations, a train, or an event of another class
+    private int[][] payloads = new int[4][];
+    // The time instant of each event, by chunk, or null while the events are in time order
+    private int[][] times;
+    // The number of events
+    private int size;
+
+    // The distinct time instants, in increasing order while the events are in time order
+    private int[] instants = new int[16];
+    // The position of the first event of each of those time instants
+    private int[] starts = new int[16];
+    // The number of distinct time instants
+    private int instantCount;
+
+    // The name of each id
+    private String[] names = new String[16];
+    // The number of names
+    private int nameCount;
+    // The ids of the names plus one, by hash of the name, or 0 for a free slot
+    private int[] nameTable = new int[32];
+    // The ids of the two stations of each pair, one after the other
+    private int[] pairs = new int[32];
+    // The number of pairs
+    private int pairCount;
+    // The ids of the pairs plus one, by hash of the two ids, or 0 for a free slot
+    private int[] pairTable = new int[32];
+    // The events of other classes
+    private final List<Event> others = new ArrayList<>();
+
+    // The ids of the objects, in the order their first events were logged
+    private int[] objectOrder = new int[16];
+    // The number of objects
+    private int objectCount;
+    // Whether each id is the name of an object with events
+    private boolean[] isObject = new boolean[16];
+    // The positions of the events of each name, by id, or null until they are asked for
+    private int[][] positions;
+    // The number of positions of each name, by id
+    private int[] positionCounts;
+    // The number of events whose positions have been indexed
+    private int indexed;
+
+    /**
+     * Adds an event at the end of the log.
+     *
+     * @param event the event
+     * @return true
+     */
+    @Override
+    public synchronized boolean add(Event event) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == kinds.length) {
+            kinds = Arrays.copyOf(kinds, chunk * 2);
+            objects = Arrays.copyOf(objects, chunk * 2);
+            payloads = Arrays.copyOf(payloads, chunk * 2);
+            if (times != null) times = Arrays.copyOf(times, chunk * 2);
+        }
+        if (kinds[chunk] == null) {
+            kinds[chunk] = new byte[CHUNK];
+            objects[chunk] = new int[CHUNK];
+            payloads[chunk] = new int[CHUNK];
+            if (times != null) times[chunk] = new int[CHUNK];
+        }
+
+        int kind;
+        int payload = 0;
+        // Subclasses of the event classes are kept as they are, so that they are returned as themselves
+        Class<?> type = event.getClass();
+        if (type == CFOSEvent.class) {
+            kind = ((CFOSEvent) event).getAction().ordinal();
+        } else if (type == LightEvent.class) {
+            LightEvent light = (LightEvent) event;
+            kind = LIGHT + light.getFromColour().ordinal() * LIGHTS.length + light.getToColour().ordinal();
+        } else if (type == MoveEvent.class) {
+            kind = MOVE;
+            payload = pair(id(((MoveEvent) event).getFromStation()), id(((MoveEvent) event).getToStation()));
+        } else if (type == OccupiedEvent.class) {
+            kind = ((OccupiedEvent) event).isEntry() ? ENTER : LEFT;
+            payload = id(((OccupiedEvent) event).getTrain());
+        } else {
+            kind = OTHER;
+            payload = others.size();
+            others.add(event);
+        }
+        int object = id(event.getObjectName());
+        int slot = size & (CHUNK - 1);
+        kinds[chunk][slot] = (byte) kind;
+        objects[chunk][slot] = object;
+        payloads[chunk][slot] = payload;
+        addTime(event.getTime());
+        if (!isObject[object]) {
+            isObject[object] = true;
+            if (objectCount == objectOrder.length) objectOrder = Arrays.copyOf(objectOrder, objectCount * 2);
+            objectOrder[objectCount++] = object;
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Records the time instant of the event being added.
+     *
+     * @param time the time instant
+     */
+    private void addTime(int time) {
+        if (times == null && instantCount > 0 && time < instants[instantCount - 1]) {
+            // From now on the time instant of each event is kept
+            int[][] times = new int[kinds.length][];
+            for (int chunk = 0; chunk <= size >>> CHUNK_BITS; chunk++) times[chunk] = new int[CHUNK];
+            for (int i = 0; i < size; i++) times[i >>> CHUNK_BITS][i & (CHUNK - 1)] = time(i);
+            this.times = times;
+        }
+        if (times != null) {
+            times[size >>> CHUNK_BITS][size & (CHUNK - 1)] = time;
+        } else if (instantCount == 0 || time > instants[instantCount - 1]) {
+            if (instantCount == instants.length) {
+                instants = Arrays.copyOf(instants, instantCount * 2);
+                starts = Arrays.copyOf(starts, instantCount * 2);
+            }
+            instants[instantCount] = time;
+            starts[instantCount++] = size;
+        }
+    }
+
+    /**
+     * Returns the id of a name, interning the name if it has none yet.
+     *
+     * @param name the name
+     * @return the id
+     */
+    private int id(String name) {
+        int mask = nameTable.length - 1;
+        int slot = hash(name) & mask;
+        for (int id; (id = nameTable[slot]) != 0; slot = (slot + 1) & mask)
+            if (Objects.equals(names[id - 1], name)) return id - 1;
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+            isObject = Arrays.copyOf(isObject, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameTable[slot] = ++nameCount;
+        if (nameCount * 2 > nameTable.length) {
+            nameTable = new int[nameTable.length * 2];
+            for (int id = 0; id < nameCount; id++) place(nameTable, hash(names[id]), id);
+        }
+        return nameCount - 1;
+    }
+
+    /**
+     * Returns the id of a name without interning it.
+     *
+     * @param name the name
+     * @return the id, or -1 if the name has none
+     */
+    private int find(String name) {
+        int mask = nameTable.length - 1;
+        int slot = hash(name) & mask;
+        for (int id; (id = nameTable[slot]) != 0; slot = (slot + 1) & mask)
+            if (Objects.equals(names[id - 1], name)) return id - 1;
+        return -1;
+    }
+
+    /**
+     * Returns the id of a pair of stations, interning the pair if it has none yet.
+     *
+     * @param from the id of the station moved from
+     * @param to   the id of the station moved to
+     * @return the id
+     */
+    private int pair(int from, int to) {
+        int mask = pairTable.length - 1;
+        int slot = mix(from * 31 + to) & mask;
+        for (int id; (id = pairTable[slot]) != 0; slot = (slot + 1) & mask)
+            if (pairs[(id - 1) * 2] == from && pairs[(id - 1) * 2 + 1] == to) return id - 1;
+        if (pairCount * 2 == pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        pairs[pairCount * 2] = from;
+        pairs[pairCount * 2 + 1] = to;
+        pairTable[slot] = ++pairCount;
+        if (pairCount * 2 > pairTable.length) {
+            pairTable = new int[pairTable.length * 2];
+            for (int id = 0; id < pairCount; id++) place(pairTable, mix(pairs[id * 2] * 31 + pairs[id * 2 + 1]), id);
+        }
+        return pairCount - 1;
+    }
+
+    /**
+     * Puts an id into the first free slot of a hash table from its hash.
+     *
+     * @param table the table
+     * @param hash  the mixed hash of the key of the id
+     * @param id    the id
+     */
+    private static void place(int[] table, int hash, int id) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = id + 1;
+    }
+
+    /**
+     * Returns the mixed hash of a name.
+     *
+     * @param name the name, which may be null
+     * @return the mixed hash
+     */
+    private static int hash(String name) {
+        return mix(name == null ? 0 : name.hashCode());
+    }
+
+    /**
+     * Spreads the bits of a hash code, so that keys that differ in their high bits use different slots.
+     *
+     * @param hash the hash code
+     * @return the mixed hash
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns an event of the log, rebuilt from the columns.
+     *
+     * @param i the position of the event
+     * @return an event equal to the one logged at that position
+     */
+    @Override
+    public Event get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        int chunk = i >>> CHUNK_BITS;
+        int slot = i & (CHUNK - 1);
+        int kind = kinds[chunk][slot];
+        int payload = payloads[chunk][slot];
+        if (kind == OTHER) return others.get(payload);
+        String object = names[objects[chunk][slot]];
+        int time = time(i);
+        if (kind < LIGHT) return new CFOSEvent(object, time, ACTIONS[kind]);
+        if (kind < MOVE) {
+            int colours = kind - LIGHT;
+            return new LightEvent(object, time, LIGHTS[colours / LIGHTS.length], LIGHTS[colours % LIGHTS.length]);
+        }
+        if (kind == MOVE) return new MoveEvent(object, time, names[pairs[payload * 2]], names[pairs[payload * 2 + 1]]);
+        return new OccupiedEvent(object, time, names[payload], kind == ENTER);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the time instant of an event, without rebuilding it.
+     *
+     * @param i the position of the event
+     * @return the time instant
+     */
+    int time(int i) {
+        if (times != null) return times[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+        int low = 0;
+        int high = instantCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= i) low = middle + 1;
+            else high = middle;
+        }
+        return instants[low - 1];
+    }
+
+    /**
+     * Returns the name of the object of an event, without rebuilding it.
+     *
+     * @param i the position of the event
+     * @return the name of the object
+     */
+    String objectName(int i) {
+        return names[objects[i >>> CHUNK_BITS][i & (CHUNK - 1)]];
+    }
+
+    /**
+     * Returns the id of the name of the object of an event, without rebuilding it.
+     *
+     * @param i the position of the event
+     * @return the id, less than the number of names
+     */
+    int objectId(int i) {
+        return objects[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+    }
+
+    /**
+     * Returns the number of names interned, so that the ids of the objects are less than it.
+     *
+     * @return the number of names
+     */
+    synchronized int nameCount() {
+        return nameCount;
+    }
+
+    /**
+     * Returns the class of an event among the classes the columns fold, without rebuilding it.
+     *
+     * @param i the position of the event
+     * @return 0 for a CFOSEvent, 1 for a LightEvent, 2 for a MoveEvent, 3 for an OccupiedEvent, or -1 for an event
+     * of another class
+     */
+    int eventClass(int i) {
+        int kind = kinds[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+        if (kind < LIGHT) return 0;
+        if (kind < MOVE) return 1;
+        if (kind == MOVE) return 2;
+        return kind == OTHER ? -1 : 3;
+    }
+
+    /**
+     * Checks if two events are equal, without rebuilding them.
+     *
+     * @param i the position of an event
+     * @param j the position of the other event
+     * @return true if the events are equal, false otherwise
+     */
+    boolean equalEvents(int i, int j) {
+        int kind = kinds[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+        if (kind != kinds[j >>> CHUNK_BITS][j & (CHUNK - 1)]) return false;
+        int payload = payloads[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+        int otherPayload = payloads[j >>> CHUNK_BITS][j & (CHUNK - 1)];
+        if (kind == OTHER) return others.get(payload).equals(others.get(otherPayload));
+        return payload == otherPayload && objectId(i) == objectId(j) && time(i) == time(j);
+    }
+
+    /**
+     * Checks if two events are of the same kind, as Event.getKind() tells, without rebuilding them.
+     *
+     * @param i the position of an event
+     * @param j the position of the other event
+     * @return true if the events are of the same kind, false otherwise
+     */
+    boolean sameKind(int i, int j) {
+        int kind = kinds[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+        int other = kinds[j >>> CHUNK_BITS][j & (CHUNK - 1)];
+        if (kind == OTHER || other == OTHER) {
+            return kind == other && others.get(payloads[i >>> CHUNK_BITS][i & (CHUNK - 1)]).getKind()
+                    .equals(others.get(payloads[j >>> CHUNK_BITS][j & (CHUNK - 1)]).getKind());
+        }
+        // The kind of every other event is folded into its kind in the columns
+        return kind == other;
+    }
+
+    /**
+     * Returns whether every event was logged at or after the time instant of the event before it.
+     *
+     * @return true if the events are in time order, false otherwise
+     */
+    boolean isOrdered() {
+        return times == null;
+    }
+
+    /**
+     * Returns the position of the first event after a given time, while the events are in time order.
+     *
+     * @param time the time
+     * @return the position, or the number of events if there is none
+     */
+    int after(long time) {
+        int low = 0;
+        int high = instantCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (instants[middle] <= time) low = middle + 1;
+            else high = middle;
+        }
+        return low < instantCount ? starts[low] : size;
+    }
+
+    /**
+     * Returns the positions of the events of an object, indexing first the events added since the last time.
+     *
+     * @param object the name of the object
+     * @return the positions, or null if the object has no events
+     */
+    synchronized Postings postings(String object) {
+        int id = find(object);
+        if (id < 0 || !isObject[id]) return null;
+        if (indexed != size) index();
+        return new Postings(positions[id], positionCounts[id]);
+    }
+
+    /**
+     * Appends the positions of the events added since the last time to the positions of their objects.
+     */
+    private void index() {
+        if (positions == null || positions.length < nameCount) {
+            int names = Math.max(nameCount, 16);
+            positions = positions == null ? new int[names][] : Arrays.copyOf(positions, names * 2);
+            positionCounts = positionCounts == null ? new int[names] : Arrays.copyOf(positionCounts, names * 2);
+        }
+        for (int i = indexed; i < size; i++) {
+            int object = objects[i >>> CHUNK_BITS][i & (CHUNK - 1)];
+            int count = positionCounts[object];
+            if (positions[object] == null) positions[object] = new int[8];
+            else if (count == positions[object].length) positions[object] = Arrays.copyOf(positions[object], count * 2);
+            positions[object][count] = i;
+            positionCounts[object] = count + 1;
+        }
+        indexed = size;
+    }
+
+    /**
+     * Returns the names of the objects, in the order their first events were logged.
+     *
+     * @return the names
+     */
+    List<String> objectNames() {
+        List<String> objects = new ArrayList<>(objectCount);
+        for (int i = 0; i < objectCount; i++) objects.add(names[objectOrder[i]]);
+        return objects;
+    }
+
+    /**
+     * Returns the number of objects with events.
+     *
+     * @return the number of objects
+     */
+    int objectCount() {
+        return objectCount;
+    }
+
+    /**
+     * Postings are the positions in the log of the events of one object, in increasing order, as they were when the
+     * postings were made. The positions of an object are only ever appended to, or copied into a larger array, so
+     * the postings keep reading the array they were made from.
+     */
+    final class Postings {
+        // The positions of the object
+        private final int[] positions;
+        // The number of positions
+        private final int size;
+
+        /**
+         * Constructs the postings of an object.
+         *
+         * @param positions the positions of the object
+         * @param size      the number of positions
+         */
+        Postings(int[] positions, int size) {
+            this.positions = positions;
+            this.size = size;
+        }
+
+        /**
+         * Returns a position.
+         *
+         * @param i the index of the position
+         * @return the position in the log
+         */
+        int get(int i) {
+            return positions[i];
+        }
+
+        /**
+         * Returns the number of positions.
+         *
+         * @return the number of events of the object
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the first position whose event is after a given time, while the log is in time order.
+         *
+         * @param time the time
+         * @return the index of that position, or the number of positions if there is none
+         */
+        int after(long time) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (time(get(middle)) <= time) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
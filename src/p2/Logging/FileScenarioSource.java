@@ -0,0 +1,70 @@
+package p2.Logging;
+
+import p2.Interfaces.ScenarioSource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FileScenarioSource reads a scenario file once, from a given offset to its end.
+ */
+public final class FileScenarioSource implements ScenarioSource {
+    // The path of the scenario file
+    private final String file;
+    // The offset of the first line to read
+    private final long offset;
+    // The channel handed out, or null if none has been opened
+    private FileChannel channel;
+
+    /**
+     * Constructs a source over a whole scenario file.
+     *
+     * @param file the path of the scenario file
+     */
+    public FileScenarioSource(String file) {
+        this(file, 0);
+    }
+
+    /**
+     * Constructs a source over a scenario file, starting at the given offset, which must be the start of a line.
+     *
+     * @param file   the path of the scenario file
+     * @param offset the offset of the first line to read
+     */
+    public FileScenarioSource(String file, long offset) {
+        this.file = file;
+        this.offset = offset;
+    }
+
+    /**
+     * Opens the scenario file at the offset.
+     *
+     * @return the channel
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    @Override
+    public synchronized ReadableByteChannel open() throws FileNotFoundException {
+        try {
+            channel = FileChannel.open(Path.of(file), StandardOpenOption.READ);
+            channel.position(offset);
+            return channel;
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(file, e);
+        }
+    }
+
+    /**
+     * Closes the channel, if one was opened.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+}
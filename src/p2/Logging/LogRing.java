@@ -0,0 +1,126 @@
+package p2.Logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LogRing hands the lines of the text log from the threads that log them to the thread that shows them, without
+ * locks.
+ * <p>
+ * The ring has a fixed number of slots. Each slot has a sequence number that tells whose turn it is: a thread that
+ * logs a line claims the next slot by moving the tail with a compare-and-set, fills it and advances its sequence, and
+ * the reader takes the lines in the order the slots were claimed. A line is either the position of an event in the
+ * event store or a message. The threads logging lines never wait: when the reader has fallen a whole ring behind,
+ * the line is dropped and counted instead. There may be any number of threads logging lines, but only one reading
+ * them at a time.
+ */
+final class LogRing {
+    // The number of slots, a power of two, and the mask that turns a sequence into a slot
+    private final int capacity;
+    private final int mask;
+    // The sequence of each slot: its turn when it is free, and its turn + 1 once its line is published
+    private final AtomicLongArray sequences;
+    // The line of each slot: the position of an event in the store, or -1 for a message
+    private final int[] lines;
+    // The message of each slot, or null for an event
+    private final String[] messages;
+    // The turn of the next slot to claim
+    private final AtomicLong tail = new AtomicLong();
+    // The turn of the next slot to read; only used by the reader
+    private long head;
+    // The number of lines dropped because the ring was full
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param capacity the number of lines the ring holds, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is less than 1 or more than 2^30
+     */
+    LogRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("The capacity of the log ring must be between 1 and 2^30.");
+        int slots = 1;
+        while (slots < capacity) slots <<= 1;
+        this.capacity = slots;
+        this.mask = slots - 1;
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) sequences.set(i, i);
+        this.lines = new int[slots];
+        this.messages = new String[slots];
+    }
+
+    /**
+     * Publishes a line, or drops it if the ring is full.
+     *
+     * @param line    the position of an event in the store, or -1 for a message
+     * @param message the message, or null for an event
+     * @return true if the line was published, false if it was dropped
+     */
+    boolean offer(int line, String message) {
+        while (true) {
+            long turn = tail.get();
+            int slot = (int) turn & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == turn) {
+                if (!tail.compareAndSet(turn, turn + 1)) continue;
+                lines[slot] = line;
+                messages[slot] = message;
+                // The line and the message are visible to the reader once it sees the new sequence
+                sequences.lazySet(slot, turn + 1);
+                return true;
+            }
+            if (sequence < turn) {
+                // The slot still holds the line of the previous round: the reader is a whole ring behind
+                dropped.incrementAndGet();
+                return false;
+            }
+            // Another thread claimed the slot first
+        }
+    }
+
+    /**
+     * Takes every line published so far, in order, and hands it to a consumer.
+     * Only one thread at a time may call this.
+     *
+     * @param consumer the consumer of the lines
+     * @return the number of lines taken
+     */
+    int drain(LineConsumer consumer) {
+        int taken = 0;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) return taken;
+            int line = lines[slot];
+            String message = messages[slot];
+            messages[slot] = null;
+            // The slot is free for the next round
+            sequences.lazySet(slot, head + capacity);
+            head++;
+            taken++;
+            consumer.accept(line, message);
+        }
+    }
+
+    /**
+     * Returns the number of lines dropped because the ring was full.
+     *
+     * @return the number of lines dropped
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * LineConsumer takes the lines drained from the ring.
+     */
+    interface LineConsumer {
+        /**
+         * Takes a line.
+         *
+         * @param line    the position of an event in the store, or -1 for a message
+         * @param message the message, or null for an event
+         */
+        void accept(int line, String message);
+    }
+}
@@ -0,0 +1,319 @@
+package p2.Logging;
+
+import p2.Enums.ViolationType;
+import p2.Events.Event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * LogValidator checks an event log in one pass over its events.
+ * <p>
+ * An object logs the events of one class in alternating kinds: a segment closes and opens, a train enters and
+ * leaves it, its light turns red and green. Within one time instant a segment may close, open and close again, so
+ * equal events are not an error in themselves. An event is a violation if it is equal to the last event of its class
+ * for its object (a duplicate), or if that last event is of the same kind in the same time instant (over the limit
+ * of the instant). Every rule compares events of one object only, so a large log can be split by object and the
+ * objects checked on several threads; the violations are reported in log order either way.
+ * <p>
+ * The log of a Logable is an event store, which is checked from its columns: the last event of each class of each
+ * object is kept as its position, and events are compared without being rebuilt, so only the events of the
+ * violations are. Any other list is checked through its events, keeping their positions only.
+ */
+public final class LogValidator {
+    // The smallest log that is split over several threads
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    // The number of classes of events the columns of an event store fold
+    private static final int STORE_CLASSES = 4;
+
+    // The number of violations reported at most
+    private final int maxViolations;
+    // The number of threads the objects are checked on
+    private final int parallelism;
+
+    /**
+     * Constructs a validator.
+     *
+     * @param maxViolations the number of violations reported at most; the validation stops once it has found them
+     * @param parallelism   the number of threads the objects of a large log are checked on, 1 for the calling thread
+     */
+    public LogValidator(int maxViolations, int parallelism) {
+        if (maxViolations < 1) throw new IllegalArgumentException("At least 1 violation must be reported.");
+        if (parallelism < 1) throw new IllegalArgumentException("At least 1 thread is needed.");
+        this.maxViolations = maxViolations;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Checks an event log.
+     *
+     * @param log the events, in the order they were logged
+     * @return the first violations, in log order, or an empty list if the log is valid
+     */
+    public List<Violation> validate(List<Event> log) {
+        if (log instanceof EventStore) return validate((EventStore) log);
+        if (parallelism == 1 || log.size() < PARALLEL_THRESHOLD) return check(log, null);
+        List<int[]> objects = positionsByObject(log);
+        return checkInParallel(objects.stream().map(positions -> (Callable<List<Violation>>) () -> check(log, positions))
+                .toList());
+    }
+
+    /**
+     * Checks the events of an event store, as many as it holds when the check starts.
+     *
+     * @param store the store
+     * @return the first violations, in log order, or an empty list if the log is valid
+     */
+    private List<Violation> validate(EventStore store) {
+        int size;
+        int names;
+        synchronized (store) {
+            size = store.size();
+            names = store.nameCount();
+        }
+        if (parallelism == 1 || size < PARALLEL_THRESHOLD) return check(store, null, size, names);
+        List<Callable<List<Violation>>> tasks = new ArrayList<>();
+        for (String object : store.objectNames()) {
+            EventStore.Postings postings = store.postings(object);
+            tasks.add(() -> check(store, postings, size, names));
+        }
+        return checkInParallel(tasks);
+    }
+
+    /**
+     * Checks the objects of a log on several threads.
+     *
+     * @param tasks the check of each object
+     * @return the first violations, in log order
+     */
+    private List<Violation> checkInParallel(List<Callable<List<Violation>>> tasks) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<List<Violation>>> adapted = new ArrayList<>(tasks.size());
+            for (Callable<List<Violation>> task : tasks) adapted.add(ForkJoinTask.adapt(task));
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(adapted)));
+            // Each object reports its own first violations, so the first of the log are among them
+            List<Violation> violations = new ArrayList<>();
+            for (ForkJoinTask<List<Violation>> task : adapted) violations.addAll(task.join());
+            violations.sort(Comparator.comparingInt(Violation::getPosition));
+            return violations.size() > maxViolations ? new ArrayList<>(violations.subList(0, maxViolations)) : violations;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the positions of the events of each object.
+     *
+     * @param log the events
+     * @return the positions of the events of each object, in increasing order
+     */
+    private static List<int[]> positionsByObject(List<Event> log) {
+        HashMap<String, int[]> counts = new HashMap<>();
+        for (Event event : log) counts.computeIfAbsent(event.getObjectName(), name -> new int[1])[0]++;
+        // The positions of each object, followed by the number of them filled so far
+        HashMap<String, int[]> positions = new HashMap<>(counts.size() * 2);
+        counts.forEach((name, count) -> positions.put(name, new int[count[0] + 1]));
+        for (int i = 0; i < log.size(); i++) {
+            int[] object = positions.get(log.get(i).getObjectName());
+            object[object[object.length - 1]++] = i;
+        }
+        List<int[]> objects = new ArrayList<>(positions.size());
+        for (int[] object : positions.values()) objects.add(Arrays.copyOf(object, object.length - 1));
+        return objects;
+    }
+
+    /**
+     * Checks some of the events of a log.
+     *
+     * @param log       the events
+     * @param positions the positions of the events to check, in increasing order, or null to check every event
+     * @return the first violations among those events, in log order
+     */
+    private List<Violation> check(List<Event> log, int[] positions) {
+        int size = positions == null ? log.size() : positions.length;
+        // The position of the last event of each class of each object
+        HashMap<Slot, Integer> last = new HashMap<>();
+        List<Violation> violations = new ArrayList<>();
+        for (int i = 0; i < size && violations.size() < maxViolations; i++) {
+            int position = positions == null ? i : positions[i];
+            Event event = log.get(position);
+            Integer earlier = last.put(new Slot(event), position);
+            if (earlier == null) continue;
+            Event previous = log.get(earlier);
+            if (previous.equals(event))
+                violations.add(new Violation(ViolationType.Duplicate, position, earlier, event));
+            else if (previous.getTime() == event.getTime() && previous.getKind().equals(event.getKind()))
+                violations.add(new Violation(ViolationType.Limit, position, earlier, event));
+        }
+        return violations;
+    }
+
+    /**
+     * Checks some of the events of an event store from its columns.
+     *
+     * @param store    the store
+     * @param postings the positions of the events of one object, or null to check every event
+     * @param size     the number of events of the store to check
+     * @param names    the number of names of the store when the check started
+     * @return the first violations among those events, in log order
+     */
+    private List<Violation> check(EventStore store, EventStore.Postings postings, int size, int names) {
+        int count = postings == null ? size : countBelow(postings, size);
+        // The position of the last event of each folded class, of each object or of the one object, plus one
+        int[] last = new int[(postings == null ? names : 1) * STORE_CLASSES];
+        // The position of the last event of each other class of each object
+        HashMap<Slot, Integer> lastOther = new HashMap<>();
+        List<Violation> violations = new ArrayList<>();
+        for (int i = 0; i < count && violations.size() < maxViolations; i++) {
+            int position = postings == null ? i : postings.get(i);
+            int type = store.eventClass(position);
+            int earlier;
+            if (type < 0) {
+                Integer other = lastOther.put(new Slot(store.get(position)), position);
+                earlier = other == null ? -1 : other;
+            } else {
+                int slot = (postings == null ? store.objectId(position) * STORE_CLASSES : 0) + type;
+                earlier = last[slot] - 1;
+                last[slot] = position + 1;
+            }
+            if (earlier < 0) continue;
+            if (store.equalEvents(earlier, position))
+                violations.add(new Violation(ViolationType.Duplicate, position, earlier, store.get(position)));
+            else if (store.time(earlier) == store.time(position) && store.sameKind(earlier, position))
+                violations.add(new Violation(ViolationType.Limit, position, earlier, store.get(position)));
+        }
+        return violations;
+    }
+
+    /**
+     * Returns the number of positions of postings that are less than a position.
+     *
+     * @param postings the postings, in increasing order
+     * @param position the position
+     * @return the number of positions before it
+     */
+    private static int countBelow(EventStore.Postings postings, int position) {
+        int low = 0;
+        int high = postings.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (postings.get(middle) < position) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Slot is a class of events of an object, whose events alternate in kind.
+     */
+    private static final class Slot {
+        // The name of the object
+        private final String objectName;
+        // The class of the events
+        private final Class<?> type;
+
+        /**
+         * Constructs the slot of an event.
+         *
+         * @param event the event
+         */
+        Slot(Event event) {
+            this.objectName = event.getObjectName();
+            this.type = event.getClass();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Slot)) return false;
+            Slot slot = (Slot) other;
+            return type == slot.type && objectName.equals(slot.objectName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * objectName.hashCode() + type.hashCode();
+        }
+    }
+
+    /**
+     * Violation is an event that breaks a rule of the event log.
+     */
+    public static final class Violation {
+        // The rule the event breaks
+        private final ViolationType type;
+        // The position of the event in the log
+        private final int position;
+        // The position of the event logged before it that it clashes with
+        private final int earlierPosition;
+        // The event
+        private final Event event;
+
+        /**
+         * Constructs a violation.
+         *
+         * @param type            the rule the event breaks
+         * @param position        the position of the event in the log
+         * @param earlierPosition the position of the event logged before it that it clashes with
+         * @param event           the event
+         */
+        Violation(ViolationType type, int position, int earlierPosition, Event event) {
+            this.type = type;
+            this.position = position;
+            this.earlierPosition = earlierPosition;
+            this.event = event;
+        }
+
+        /**
+         * Returns the rule the event breaks.
+         *
+         * @return the type of the violation
+         */
+        public ViolationType getType() {
+            return type;
+        }
+
+        /**
+         * Returns the position of the event in the log.
+         *
+         * @return the position, counted from 0
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns the position of the event logged before this one that it clashes with.
+         *
+         * @return the position, counted from 0
+         */
+        public int getEarlierPosition() {
+            return earlierPosition;
+        }
+
+        /**
+         * Returns the event.
+         *
+         * @return the event
+         */
+        public Event getEvent() {
+            return event;
+        }
+
+        /**
+         * Returns a string representation of the violation.
+         *
+         * @return the type of the violation, the positions and the event
+         */
+        @Override
+        public String toString() {
+            return type.getDescription() + " at " + position + " (first at " + earlierPosition + "): " + event;
+        }
+    }
+}
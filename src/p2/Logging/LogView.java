@@ -0,0 +1,143 @@
+package p2.Logging;
+
+import p2.Events.Event;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * LogView is the events of an event log that match a filter, as a list that is not copied.
+ * <p>
+ * The view reads the event store: its rows are a range of positions while the log is in time order and no object is
+ * asked for, the postings of the object otherwise, and only when the log is out of time order and a time range is
+ * asked for are the matching positions collected. An event is rebuilt from the store each time a row is asked for,
+ * so a view over millions of events costs nothing until its rows are shown. The view holds the events logged when
+ * it was made; a view made later also holds the events logged since.
+ */
+public final class LogView extends AbstractList<Event> implements RandomAccess {
+    // The store the events are read from
+    private final EventStore store;
+    // The postings of the object asked for, or null for every object
+    private final EventStore.Postings postings;
+    // The positions of the rows, or null if they are read from the postings or from a range
+    private final int[] positions;
+    // The first row in the postings or in the log, when the positions are not collected
+    private final int first;
+    // The number of rows
+    private final int size;
+    // The number of events in the log when the view was made
+    private final int logSize;
+
+    /**
+     * Constructs a view of the events of a store that match a filter.
+     *
+     * @param store  the store
+     * @param object the name of the object of the events, or null for every object
+     * @param from   the first time instant of the events
+     * @param to     the last time instant of the events
+     */
+    LogView(EventStore store, String object, int from, int to) {
+        this.store = store;
+        synchronized (store) {
+            this.logSize = store.size();
+            this.postings = object == null ? null : store.postings(object);
+            int count = object == null ? logSize : postings == null ? 0 : postings.size();
+            if (from > to || count == 0) {
+                positions = null;
+                first = 0;
+                size = 0;
+            } else if (store.isOrdered()) {
+                positions = null;
+                first = postings == null ? store.after(from - 1L) : postings.after(from - 1L);
+                size = (postings == null ? store.after(to) : postings.after(to)) - first;
+            } else {
+                int[] matching = new int[16];
+                int found = 0;
+                for (int i = 0; i < count; i++) {
+                    int position = postings == null ? i : postings.get(i);
+                    int time = store.time(position);
+                    if (time < from || time > to) continue;
+                    if (found == matching.length) matching = Arrays.copyOf(matching, found * 2);
+                    matching[found++] = position;
+                }
+                positions = matching;
+                first = 0;
+                size = found;
+            }
+        }
+    }
+
+    /**
+     * Returns the position in the log of the event of a row.
+     *
+     * @param row the row
+     * @return the position, counted from 0
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    public int position(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+        if (positions != null) return positions[row];
+        return postings == null ? first + row : postings.get(first + row);
+    }
+
+    /**
+     * Returns the event of a row.
+     *
+     * @param row the row
+     * @return the event, rebuilt from the store
+     * @throws IndexOutOfBoundsException if there is no such row
+     */
+    @Override
+    public Event get(int row) {
+        int position = position(row);
+        synchronized (store) {
+            return store.get(position);
+        }
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of events that match the filter
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of events in the log when the view was made, so that a caller can tell whether events have
+     * been logged since.
+     *
+     * @return the number of events of the log
+     */
+    public int getLogSize() {
+        return logSize;
+    }
+
+    /**
+     * Returns the first row in or after a time instant: by binary search while the log is in time order, by a scan
+     * otherwise.
+     *
+     * @param time the time instant
+     * @return the row, or the number of rows if every event is before the time instant
+     */
+    public int indexOfTime(int time) {
+        synchronized (store) {
+            if (store.isOrdered()) {
+                int low = 0;
+                int high = size;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (store.time(position(middle)) < time) low = middle + 1;
+                    else high = middle;
+                }
+                return low;
+            }
+            for (int row = 0; row < size; row++)
+                if (store.time(position(row)) >= time) return row;
+            return size;
+        }
+    }
+}
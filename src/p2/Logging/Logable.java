@@ -1,54 +1,280 @@
 package p2.Logging;
 
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import javafx.beans.binding.StringBinding;
+import javafx.beans.value.ObservableStringValue;
 import p2.Events.Event;
+import p2.Events.EventPattern;
+import p2.Interfaces.Reportable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public abstract class Logable {
+public abstract class Logable implements Reportable {
+    /**
+     * The number of lines the text log keeps unless setLogRetention() says otherwise.
+     */
+    public static final int DEFAULT_LOG_RETENTION = 100_000;
+    /**
+     * The number of lines the logging threads can get ahead of the JavaFX application thread before lines are
+     * dropped from the text log.
+     */
+    public static final int LOG_RING_CAPACITY = 1 << 16;
 
-    private final StringProperty log = new SimpleStringProperty(this, "log", "");
+    // The store read in place of the store of a log that has no events yet; nothing is ever added to it
+    private static final EventStore EMPTY = new EventStore();
+
+    // The events, held in columns, with where the events of each time instant and of each object are, or null until
+    // the first event is logged, so that the objects of the network that never log an event pay nothing for it
+    private volatile EventStore store;
+    // The text log, which prints the events from the store when it is shown, or null until it is first used
+    private volatile TextLog log;
+    // Whether the messages are appended to the text log
+    private boolean textLogEnabled = true;
     /* once an event is added to the log, it cannot be removed or changed. */
-    protected List<Event> events = new ArrayList<Event>();
+    protected List<Event> events = List.of();
 
     public void addToLog(Event event) {
-        events.add(event);
+        addToLog(event, false);
+    }
+
+    /**
+     * Adds an event to the log, and to the text log if asked to. The text log only records the position of the
+     * event, and prints it when the text log is shown.
+     *
+     * @param event the event, or null if an action was refused and produced no event
+     * @param print whether the event is also appended to the text log
+     */
+    public void addToLog(Event event, boolean print) {
+        // An action that was refused produces no event
+        if (event == null) return;
+        EventStore store = this.store;
+        if (store == null) store = createStore();
+        store.add(event);
+        if (print && textLogEnabled) textLog().add(store.size() - 1, null);
     }
 
+    /**
+     * Creates the store when the first event is logged.
+     *
+     * @return the store
+     */
+    private synchronized EventStore createStore() {
+        if (store == null) {
+            EventStore created = new EventStore();
+            events = created;
+            store = created;
+        }
+        return store;
+    }
+
+    /**
+     * Returns the store to read the events from.
+     *
+     * @return the store, or an empty store if no event has been logged
+     */
+    private EventStore store() {
+        EventStore store = this.store;
+        return store == null ? EMPTY : store;
+    }
+
+    /**
+     * Returns the text log, creating it when it is first used.
+     *
+     * @return the text log
+     */
+    private TextLog textLog() {
+        TextLog log = this.log;
+        if (log != null) return log;
+        synchronized (this) {
+            if (this.log == null) this.log = new TextLog();
+            return this.log;
+        }
+    }
+
+    /**
+     * Returns the number of events logged. The store is synchronized on, so that a thread other than the one
+     * logging the events, such as the JavaFX application thread, reads the number of events added so far.
+     *
+     * @return the number of events
+     */
     public int logSize() {
-        return events.size();
+        EventStore store = store();
+        synchronized (store) {
+            return store.size();
+        }
     }
 
     public boolean contains(ArrayList<String> events) {
-        ArrayList<String> logEvents = getEvents();
-        return logEvents.containsAll(events);
+        return contains(patterns(events));
     }
 
     public boolean containsInSequence(ArrayList<String> events) {
-        ArrayList<String> logEvents = getEvents();
-        return Collections.indexOfSubList(logEvents, events) != -1;
+        return indexOfSequence(patterns(events)) != -1;
     }
 
-    public boolean validate() {
-        /*
-         * 1. for the UI/GUI that you use, print information to show what step in the
-         * validation you are doing. You must print the result of that step. This must
-         * also be done in overridden methods in the concrete subclasses.
-         *
-         * 2. No duplicate events in log, aliases or otherwise.
-         *
-         * 3. Ask yourself, how many events can each object have per time instant?
-         * Ensure that you check for that here.
-         *
-         * 4. ensure that you return the correct result
-         */
+    /**
+     * Returns the patterns that match the events a log prints as given texts.
+     *
+     * @param events the events, as the log prints them
+     * @return the patterns, in the same order
+     */
+    private static List<EventPattern<Event>> patterns(List<String> events) {
+        List<EventPattern<Event>> patterns = new ArrayList<>(events.size());
+        for (String event : events) patterns.add(EventPattern.text(event));
+        return patterns;
+    }
 
+    /**
+     * Checks if every pattern matches an event of the log.
+     *
+     * @param patterns the patterns
+     * @return true if each pattern matches at least one event, false otherwise
+     */
+    public boolean contains(List<? extends EventPattern<?>> patterns) {
+        for (EventPattern<?> pattern : patterns)
+            if (indexOf(pattern) == -1) return false;
         return true;
     }
 
+    /**
+     * Returns the position of the first event that matches a pattern.
+     * Only the events of the object of the pattern, or of its time instants, are looked at.
+     *
+     * @param pattern the pattern
+     * @return the position of the event in the log, or -1 if no event matches
+     */
+    public int indexOf(EventPattern<?> pattern) {
+        EventStore store = store();
+        if (pattern.getFromTime() > pattern.getToTime()) return -1;
+        if (pattern.getObjectName() != null) {
+            EventStore.Postings postings = store.postings(pattern.getObjectName());
+            if (postings == null) return -1;
+            int first = store.isOrdered() ? postings.after(pattern.getFromTime() - 1L) : 0;
+            for (int i = first; i < postings.size(); i++) {
+                if (store.isOrdered() && store.time(postings.get(i)) > pattern.getToTime()) break;
+                if (matches(pattern, postings.get(i))) return postings.get(i);
+            }
+            return -1;
+        }
+        int from = 0;
+        int to = store.size();
+        if (store.isOrdered()) {
+            from = store.after(pattern.getFromTime() - 1L);
+            to = store.after(pattern.getToTime());
+        }
+        for (int i = from; i < to; i++)
+            if (matches(pattern, i)) return i;
+        return -1;
+    }
+
+    /**
+     * Checks if an event of the log matches a pattern. The object and the time instant are checked on the store,
+     * so that the event is only rebuilt if they match.
+     *
+     * @param pattern the pattern
+     * @param i       the position of the event
+     * @return true if the event matches the pattern, false otherwise
+     */
+    private boolean matches(EventPattern<?> pattern, int i) {
+        EventStore store = store();
+        if (pattern.getObjectName() != null && !pattern.getObjectName().equals(store.objectName(i))) return false;
+        int time = store.time(i);
+        if (time < pattern.getFromTime() || time > pattern.getToTime()) return false;
+        return pattern.matches(store.get(i));
+    }
+
+    /**
+     * Returns the position of the first run of consecutive events that match a sequence of patterns, one event per
+     * pattern.
+     * <p>
+     * The log is read once by a shift-and automaton: bit j of its state is set after an event if the events up to
+     * it match the first j + 1 patterns. An event is only matched against the patterns that follow a set bit, so
+     * the search is linear in the length of the log unless many partial matches overlap. While no match is under
+     * way and the first pattern names an object, the automaton skips to the next event of that object, and while
+     * the log is in time order it starts at the first time instant of the first pattern.
+     *
+     * @param sequence the patterns
+     * @return the position of the first event of the run, 0 if the sequence is empty, or -1 if no run matches
+     */
+    public int indexOfSequence(List<? extends EventPattern<?>> sequence) {
+        EventStore store = store();
+        int length = sequence.size();
+        if (length == 0) return 0;
+        if (length > this.events.size()) return -1;
+        EventPattern<?>[] patterns = sequence.toArray(new EventPattern<?>[0]);
+        EventStore.Postings starts = null;
+        if (patterns[0].getObjectName() != null) {
+            starts = store.postings(patterns[0].getObjectName());
+            if (starts == null) return -1;
+        }
+
+        // While the log is in time order, no run starts before the first time instant of the first pattern
+        int start = starts != null && store.isOrdered() ? starts.after(patterns[0].getFromTime() - 1L) : 0;
+        int first = starts == null && store.isOrdered() ? store.after(patterns[0].getFromTime() - 1L) : 0;
+
+        long[] state = new long[(length + 63) >>> 6];
+        long[] next = new long[state.length];
+        boolean active = false;
+        for (int i = first; i < this.events.size(); i++) {
+            if (!active && starts != null) {
+                while (start < starts.size() && starts.get(start) < i) start++;
+                if (start == starts.size()) return -1;
+                i = starts.get(start);
+            }
+            boolean matched = false;
+            if (matches(patterns[0], i)) {
+                if (length == 1) return i;
+                next[0] = 1L;
+                matched = true;
+            }
+            if (active) {
+                for (int word = 0; word < state.length; word++) {
+                    long bits = state[word];
+                    state[word] = 0;
+                    while (bits != 0) {
+                        int j = (word << 6) + Long.numberOfTrailingZeros(bits) + 1;
+                        bits &= bits - 1;
+                        if (j == length || !matches(patterns[j], i)) continue;
+                        if (j == length - 1) return i - j;
+                        next[j >>> 6] |= 1L << (j & 63);
+                        matched = true;
+                    }
+                }
+            }
+            long[] swap = state;
+            state = next;
+            next = swap;
+            active = matched;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that no object of the event log logs an event equal to its last event of the same class, nor two events
+     * of the same kind in one time instant.
+     *
+     * @return true if the event log is valid, false otherwise
+     */
+    public boolean validate() {
+        return getViolations(1, 1).isEmpty();
+    }
+
+    /**
+     * Returns the first events that break a rule of the event log, as validate() checks it.
+     *
+     * @param maxViolations the number of violations returned at most
+     * @param parallelism   the number of threads the objects of a large log are checked on
+     * @return the violations, in log order
+     */
+    public List<LogValidator.Violation> getViolations(int maxViolations, int parallelism) {
+        return new LogValidator(maxViolations, parallelism).validate(this.events);
+    }
+
     public ArrayList<String> getEvents() {
         ArrayList<String> events = new ArrayList<String>();
         if (this.events == null || this.events.isEmpty())
@@ -61,70 +287,327 @@ public abstract class Logable {
     }
 
     public ArrayList<String> getEvents(int time) {
-        ArrayList<String> events = new ArrayList<String>();
-
-        if (this.events != null && !this.events.isEmpty()) {
-            ArrayList<Event> ets = new ArrayList<Event>();
-            for (Event e : this.events)
-                if (e.getTime() == time)
-                    ets.add(e);
-
-            for (Event e : ets)
-                events.add(e.toString());
+        return getEvents(time, time);
+    }
 
+    /**
+     * Returns the events logged for the time instants of a range, in the order they were logged.
+     * While the events are logged in time order, the range is found by binary search on the time instants.
+     *
+     * @param from the first time instant of the range
+     * @param to   the last time instant of the range
+     * @return the events, as the log prints them
+     */
+    public ArrayList<String> getEvents(int from, int to) {
+        EventStore store = store();
+        ArrayList<String> events = new ArrayList<String>();
+        if (from > to) return events;
+        if (!store.isOrdered()) {
+            for (int i = 0; i < store.size(); i++)
+                if (store.time(i) >= from && store.time(i) <= to)
+                    events.add(store.get(i).toString());
+            return events;
         }
+        int end = store.after(to);
+        for (int i = store.after(from - 1L); i < end; i++)
+            events.add(store.get(i).toString());
         return events;
     }
 
     public ArrayList<String> getEvents(String object) {
+        EventStore store = store();
         ArrayList<String> events = new ArrayList<String>();
+        EventStore.Postings postings = store.postings(object);
+        if (postings != null)
+            for (int i = 0; i < postings.size(); i++)
+                events.add(store.get(postings.get(i)).toString());
+        return events;
+    }
 
-        if (this.events != null && !this.events.isEmpty()) {
-            ArrayList<Event> ets = new ArrayList<Event>();
-            for (Event e : this.events)
-                if (e.getObjectName().equals(object))
-                    ets.add(e);
+    /**
+     * Returns the events of an object, as a view of the log that is not copied.
+     *
+     * @param object the name of the object
+     * @return the events of the object, in the order they were logged
+     */
+    protected List<Event> eventsOf(String object) {
+        EventStore store = store();
+        EventStore.Postings postings = store.postings(object);
+        if (postings == null) return List.of();
+        int size = postings.size();
+        return new AbstractList<Event>() {
+            @Override
+            public Event get(int i) {
+                if (i >= size) throw new IndexOutOfBoundsException(i);
+                return store.get(postings.get(i));
+            }
 
-            for (Event e : ets)
-                events.add(e.toString());
-        }
-        return events;
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the events of an object in a range of time instants, as a view of the log that is not copied, for a
+     * viewer that only shows the rows on screen. The view holds the events logged so far; calling view() again
+     * after more events are logged returns a view that holds them too.
+     *
+     * @param object the name of the object, or null for every object
+     * @param from   the first time instant of the range
+     * @param to     the last time instant of the range
+     * @return the events, in the order they were logged
+     */
+    public LogView view(String object, int from, int to) {
+        return new LogView(store(), object, from, to);
     }
 
     public ArrayList<String> getObjects() {
-        ArrayList<String> objects = new ArrayList<String>();
-        for (Event e : events)
-            if (!objects.contains(e.getObjectName()))
-                objects.add(e.getObjectName());
-        return objects;
+        return new ArrayList<String>(store().objectNames());
     }
 
     public int distinctObjects() {
-        return getObjects().size();
+        return store().objectCount();
     }
 
     @Override
     public String toString() {
+        StringBuilder str = new StringBuilder();
+        try {
+            report(str);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return str.toString();
+    }
 
-        StringBuilder events = new StringBuilder("Events Log[");
+    /**
+     * Writes the event log, one event per line, as toString() returns it.
+     *
+     * @param out the destination of the log
+     * @throws IOException if the destination cannot be written to
+     */
+    @Override
+    public void report(Appendable out) throws IOException {
+        out.append("Events Log[");
         if (this.events == null || this.events.isEmpty())
-            events.append("no events]");
+            out.append("no events]");
         else {
-            for (Event e : this.events)
-                events.append(this.events.indexOf(e) == 0 ? "\n\t" : "\t").append(e).append(this.events.indexOf(e) != this.events.size() - 1 ? "\n" : "\n\t]");
+            for (int i = 0; i < this.events.size(); i++)
+                out.append(i == 0 ? "\n\t" : "\t").append(this.events.get(i).toString()).append(i != this.events.size() - 1 ? "\n" : "\n\t]");
         }
-        return events.toString();
     }
 
     // Method to append text to the log
     public void addToLog(String message) {
-        javafx.application.Platform.runLater(() -> {
-            log.set(log.get() + message + "\n");
-        });
+        if (!textLogEnabled) return;
+        textLog().add(-1, message);
     }
 
-    // Property getter
-    public StringProperty logProperty() {
-        return log;
+    /**
+     * Returns the text log: the last lines added, the messages and the events printed, one per line. The lines are
+     * handed to the JavaFX application thread through a ring that the logging threads never wait on, and taken from
+     * it once per pulse; the text is only built when it is read, from the events in the store. At most the retention
+     * of the text log is kept, and the text starts with the number of earlier lines skipped if there were any.
+     *
+     * @return the text log, which is invalidated on the JavaFX application thread once for each batch of lines
+     */
+    public ObservableStringValue logProperty() {
+        return textLog();
+    }
+
+    /**
+     * Sets whether messages are appended to the text log. The text log is updated on the JavaFX application
+     * thread, so it has to be disabled when no JavaFX toolkit is running; the events are logged either way.
+     *
+     * @param enabled true to append messages to the text log, false to drop them
+     */
+    public void setTextLogEnabled(boolean enabled) {
+        this.textLogEnabled = enabled;
+    }
+
+    /**
+     * Sets the number of lines the text log keeps. Once it holds that many, each new line pushes the oldest one
+     * out, so that the text log takes a bounded amount of memory and time to show however long the run is.
+     * The events themselves are kept in the event log either way.
+     *
+     * @param lines the number of lines kept, DEFAULT_LOG_RETENTION by default
+     * @throws IllegalArgumentException if the number of lines is less than 1
+     */
+    public void setLogRetention(int lines) {
+        if (lines < 1) throw new IllegalArgumentException("The text log must keep at least 1 line.");
+        textLog().setRetention(lines);
+    }
+
+    /**
+     * Returns the number of lines that never reached the text log, because the logging threads got a whole ring of
+     * LOG_RING_CAPACITY lines ahead of the JavaFX application thread.
+     *
+     * @return the number of lines dropped
+     */
+    public long getDroppedLines() {
+        TextLog log = this.log;
+        return log == null ? 0 : log.getDropped();
+    }
+
+    /**
+     * Returns the number of lines the text log no longer shows, because the retention pushed them out.
+     *
+     * @return the number of lines skipped
+     */
+    public long getSkippedLines() {
+        TextLog log = this.log;
+        return log == null ? 0 : log.getSkipped();
+    }
+
+    /**
+     * TextLog is the text log: the last lines added to it, each the position of an event in the store or a message.
+     */
+    private final class TextLog extends StringBinding {
+        // The lines added and not taken by the JavaFX application thread yet, or null until a line is added
+        private volatile LogRing ring;
+        // Whether the lines in the ring are waiting to be taken on the JavaFX application thread
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // The lines kept, oldest first from start, wrapping around: the position of an event in the store, or -1
+        private int[] lines = new int[16];
+        // The message of each line kept, or null for an event
+        private String[] messages = new String[16];
+        // The position of the oldest line kept, and the number of lines kept
+        private int start;
+        private int size;
+        // The number of lines kept at most
+        private int retention = DEFAULT_LOG_RETENTION;
+        // The number of lines pushed out by the retention
+        private long skipped;
+
+        /**
+         * Adds a line, and has the lines taken on the JavaFX application thread once for all the lines added until
+         * then. The line is dropped if the JavaFX application thread is a whole ring behind.
+         *
+         * @param line    the position of an event in the store, or -1 for a message
+         * @param message the message, or null for an event
+         */
+        void add(int line, String message) {
+            LogRing ring = this.ring;
+            if (ring == null) ring = createRing();
+            if (!ring.offer(line, message) || !scheduled.compareAndSet(false, true)) return;
+            javafx.application.Platform.runLater(() -> {
+                scheduled.set(false);
+                synchronized (this) {
+                    drain();
+                }
+                invalidate();
+            });
+        }
+
+        /**
+         * Creates the ring when the first line is added, since most objects never log a line of text.
+         *
+         * @return the ring
+         */
+        private synchronized LogRing createRing() {
+            if (ring == null) ring = new LogRing(LOG_RING_CAPACITY);
+            return ring;
+        }
+
+        /**
+         * Takes the lines in the ring and keeps them.
+         */
+        private void drain() {
+            LogRing ring = this.ring;
+            if (ring != null) ring.drain(this::keep);
+        }
+
+        /**
+         * Returns the number of lines dropped because the ring was full.
+         *
+         * @return the number of lines
+         */
+        long getDropped() {
+            LogRing ring = this.ring;
+            return ring == null ? 0 : ring.getDropped();
+        }
+
+        /**
+         * Keeps a line taken from the ring, pushing the oldest line out if the retention is reached.
+         *
+         * @param line    the position of an event in the store, or -1 for a message
+         * @param message the message, or null for an event
+         */
+        private void keep(int line, String message) {
+            if (size == retention) {
+                start = start + 1 == lines.length ? 0 : start + 1;
+                size--;
+                skipped++;
+            } else if (size == lines.length) {
+                grow(Math.min(retention, size + (size >> 1)));
+            }
+            int end = start + size < lines.length ? start + size : start + size - lines.length;
+            lines[end] = line;
+            messages[end] = message;
+            size++;
+        }
+
+        /**
+         * Moves the lines kept into arrays of another length, oldest first.
+         *
+         * @param length the length, at least the number of lines kept
+         */
+        private void grow(int length) {
+            int[] movedLines = new int[length];
+            String[] movedMessages = new String[length];
+            for (int i = 0; i < size; i++) {
+                int from = start + i < lines.length ? start + i : start + i - lines.length;
+                movedLines[i] = lines[from];
+                movedMessages[i] = messages[from];
+            }
+            lines = movedLines;
+            messages = movedMessages;
+            start = 0;
+        }
+
+        /**
+         * Sets the number of lines kept at most, pushing the oldest lines out if more are kept.
+         *
+         * @param retention the number of lines
+         */
+        synchronized void setRetention(int retention) {
+            int excess = Math.max(0, size - retention);
+            start = (start + excess) % lines.length;
+            size -= excess;
+            skipped += excess;
+            this.retention = retention;
+            if (lines.length > Math.max(16, retention)) grow(Math.max(16, retention));
+            invalidate();
+        }
+
+        /**
+         * Returns the number of lines pushed out by the retention.
+         *
+         * @return the number of lines
+         */
+        synchronized long getSkipped() {
+            return skipped;
+        }
+
+        @Override
+        protected String computeValue() {
+            StringBuilder text = new StringBuilder();
+            EventStore store = store();
+            // The store is synchronized on so that the events added before the lines are seen
+            synchronized (store) {
+                synchronized (this) {
+                    drain();
+                    if (skipped > 0) text.append("... ").append(skipped).append(" earlier lines skipped\n");
+                    for (int i = 0; i < size; i++) {
+                        int at = start + i < lines.length ? start + i : start + i - lines.length;
+                        text.append(messages[at] == null ? store.get(lines[at]).toString() : messages[at])
+                                .append('\n');
+                    }
+                }
+            }
+            return text.toString();
+        }
     }
 }
@@ -0,0 +1,261 @@
+package p2.Logging;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * NetworkSnapshot is the compiled, binary form of the first time instance of a scenario file.
+ * <p>
+ * A snapshot holds the sections of the time instance in file order, with every name stored once in a string
+ * table and referred to by its index. Loading a snapshot maps the file and decodes the string table and then every
+ * section from it, so a simulator can be started from it without reading or parsing the text of the time instance
+ * again. The later time instances are still read from the scenario file, from the offset the snapshot records, so
+ * the snapshot also records the size and the CRC-32C checksum of the scenario file to tell that it has not changed.
+ * <p>
+ * The layout is:
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   long   the size of the scenario file
+ *   long   the CRC-32C checksum of the scenario file
+ *   long   the offset of the line after the time instance
+ *   int    the last time instance line read, or -1
+ *   int    the number of strings, then for each string its length in bytes and its UTF-8 bytes
+ *   int    the number of sections, then each section as written by ScenarioSection.writeSnapshot()
+ * </pre>
+ */
+public final class NetworkSnapshot {
+    // The first bytes of every snapshot: "ATMS"
+    private static final int MAGIC = 0x41544D53;
+    // The version of the layout, changed whenever the layout or the order of the enums it stores changes
+    private static final int VERSION = 3;
+    // The number of bytes of the scenario file mapped at a time to compute its checksum
+    private static final long CHECKSUM_CHUNK = 1L << 30;
+
+    // The size of the scenario file the snapshot was compiled from
+    private final long scenarioSize;
+    // The checksum of the scenario file the snapshot was compiled from
+    private final long scenarioChecksum;
+    // The offset in the scenario file of the line after the time instance
+    private final long offset;
+    // The last time instance line read, or -1 if there was none
+    private final int timeInstance;
+    // The sections of the time instance, in file order
+    private final List<ScenarioSection> sections;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param scenarioSize     the size of the scenario file
+     * @param scenarioChecksum the checksum of the scenario file
+     * @param offset           the offset of the line after the time instance
+     * @param timeInstance     the last time instance line read, or -1
+     * @param sections         the sections of the time instance, in file order
+     */
+    private NetworkSnapshot(long scenarioSize, long scenarioChecksum, long offset, int timeInstance,
+                            List<ScenarioSection> sections) {
+        this.scenarioSize = scenarioSize;
+        this.scenarioChecksum = scenarioChecksum;
+        this.offset = offset;
+        this.timeInstance = timeInstance;
+        this.sections = sections;
+    }
+
+    /**
+     * Compiles the first time instance of a scenario file into a snapshot.
+     *
+     * @param scenarioFile the path of the scenario file
+     * @param snapshotFile the path of the snapshot to write
+     * @throws FileNotFoundException if the scenario file cannot be opened
+     * @throws IOException           if the scenario file is too large to be mapped or the snapshot cannot be written
+     * @throws RuntimeException      the exception raised while reading a line, if a line of the time instance
+     *                               could not be read
+     */
+    public static void compile(String scenarioFile, String snapshotFile) throws IOException {
+        ScenarioLoader loader = ScenarioLoader.open(scenarioFile);
+        if (loader == null) throw new IOException(scenarioFile + " is too large to be compiled");
+        List<ScenarioSection> sections = new ArrayList<>();
+        ScenarioSection section;
+        while ((section = loader.nextSection(0)) != null) sections.add(section);
+        long scenarioSize = Files.size(Path.of(scenarioFile));
+        write(new NetworkSnapshot(scenarioSize, checksum(scenarioFile), loader.offset(), loader.getTimeInstance(),
+                sections), snapshotFile);
+    }
+
+    /**
+     * Writes a snapshot, collecting the string table from the sections first.
+     *
+     * @param snapshot     the snapshot to write
+     * @param snapshotFile the path of the snapshot to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    private static void write(NetworkSnapshot snapshot, String snapshotFile) throws IOException {
+        HashMap<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        // The sections are written to memory first, as they name the strings the table must hold
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream sectionsOut = new DataOutputStream(body);
+        sectionsOut.writeInt(snapshot.sections.size());
+        for (ScenarioSection section : snapshot.sections) {
+            section.writeSnapshot(sectionsOut, name -> {
+                if (name == null) return -1;
+                return indexes.computeIfAbsent(name, key -> {
+                    strings.add(key);
+                    return strings.size() - 1;
+                });
+            });
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Path.of(snapshotFile))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.scenarioSize);
+            out.writeLong(snapshot.scenarioChecksum);
+            out.writeLong(snapshot.offset);
+            out.writeInt(snapshot.timeInstance);
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            body.writeTo(out);
+        }
+    }
+
+    /**
+     * Loads a snapshot from a memory mapping of its file.
+     *
+     * @param snapshotFile the path of the snapshot
+     * @return the snapshot
+     * @throws FileNotFoundException    if the snapshot cannot be opened
+     * @throws IllegalArgumentException if the file is not a snapshot of this version
+     */
+    public static NetworkSnapshot load(String snapshotFile) throws FileNotFoundException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFile), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException(snapshotFile + " is not a network snapshot");
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(snapshotFile, e);
+        }
+
+        try {
+            if (in.getInt() != MAGIC) throw new IllegalArgumentException(snapshotFile + " is not a network snapshot");
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported network snapshot version: " + version);
+            long scenarioSize = in.getLong();
+            long scenarioChecksum = in.getLong();
+            long offset = in.getLong();
+            int timeInstance = in.getInt();
+
+            String[] strings = new String[in.getInt()];
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+                in.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int count = in.getInt();
+            List<ScenarioSection> sections = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) sections.add(ScenarioSection.readSnapshot(in, strings));
+            return new NetworkSnapshot(scenarioSize, scenarioChecksum, offset, timeInstance, sections);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException(snapshotFile + " is a truncated or corrupt network snapshot", e);
+        }
+    }
+
+    /**
+     * Checks that the snapshot was compiled from a scenario file, by its size and then by its checksum.
+     *
+     * @param scenarioFile the path of the scenario file
+     * @throws FileNotFoundException if the scenario file cannot be opened
+     * @throws IllegalStateException if the scenario file has changed since the snapshot was compiled
+     */
+    void checkScenario(String scenarioFile) throws FileNotFoundException {
+        if (size(scenarioFile) != scenarioSize || checksum(scenarioFile) != scenarioChecksum)
+            throw new IllegalStateException("The network snapshot was not compiled from " + scenarioFile);
+    }
+
+    /**
+     * Returns the size of a scenario file.
+     *
+     * @param scenarioFile the path of the scenario file
+     * @return the size in bytes
+     * @throws FileNotFoundException if the scenario file cannot be opened
+     */
+    static long size(String scenarioFile) throws FileNotFoundException {
+        try {
+            return Files.size(Path.of(scenarioFile));
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(scenarioFile, e);
+        }
+    }
+
+    /**
+     * Computes the CRC-32C checksum of the content of a scenario file, mapping it a gigabyte at a time.
+     *
+     * @param scenarioFile the path of the scenario file
+     * @return the checksum, between 0 and 2^32 - 1
+     * @throws FileNotFoundException if the scenario file cannot be opened
+     */
+    static long checksum(String scenarioFile) throws FileNotFoundException {
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(Path.of(scenarioFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_CHUNK)
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHECKSUM_CHUNK, size - position)));
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(scenarioFile, e);
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Returns the offset in the scenario file of the line after the time instance.
+     *
+     * @return the offset of the first line not held by the snapshot
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the last time instance line read while compiling.
+     *
+     * @return the time instance, or -1 if no time instance line was read
+     */
+    public int getTimeInstance() {
+        return timeInstance;
+    }
+
+    /**
+     * Returns the sections of the time instance.
+     *
+     * @return the sections, in file order
+     */
+    public List<ScenarioSection> getSections() {
+        return sections;
+    }
+}
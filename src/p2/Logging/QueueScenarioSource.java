@@ -0,0 +1,113 @@
+package p2.Logging;
+
+import p2.Interfaces.ScenarioSource;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueueScenarioSource is a scenario fed line by line from memory, by any number of producer threads.
+ * <p>
+ * The lines wait in a bounded queue until they are read, so a producer that runs ahead of the simulation blocks
+ * in put() until there is room. Closing the source ends the feed once the queued lines have been read.
+ */
+public final class QueueScenarioSource implements ScenarioSource {
+    // How long a read waits for a line before checking whether the source was closed, in milliseconds
+    private static final long POLL_MILLIS = 50;
+
+    // The lines put and not read yet, each with its line terminator
+    private final BlockingQueue<byte[]> lines;
+    // Whether the feed has ended
+    private volatile boolean closed;
+
+    /**
+     * Constructs a source that holds up to the given number of lines not read yet.
+     *
+     * @param capacity the number of lines the queue holds
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public QueueScenarioSource(int capacity) {
+        lines = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Adds a line to the scenario, waiting for room in the queue.
+     *
+     * @param line the line to add, without its line terminator
+     * @throws IllegalStateException if the source is closed
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     */
+    public void put(String line) throws InterruptedException {
+        if (closed) throw new IllegalStateException("The scenario source is closed.");
+        lines.put((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns a channel over the lines put.
+     *
+     * @return the channel
+     */
+    @Override
+    public ReadableByteChannel open() {
+        return new LineChannel();
+    }
+
+    /**
+     * Ends the feed. The lines already put are still read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * LineChannel reads the queued lines one after the other, waiting for the next one when the queue is empty.
+     */
+    private final class LineChannel implements ReadableByteChannel {
+        // The line being read, or null if the next line has to be taken from the queue
+        private ByteBuffer current;
+        // Whether the channel is open
+        private boolean open = true;
+
+        /**
+         * Reads the rest of the current line, or waits for the next one.
+         *
+         * @param dst the buffer to read into
+         * @return the number of bytes read, or -1 once the source is closed and every line has been read
+         * @throws InterruptedIOException if the thread is interrupted while waiting
+         */
+        @Override
+        public int read(ByteBuffer dst) throws InterruptedIOException {
+            while (current == null || !current.hasRemaining()) {
+                byte[] line;
+                try {
+                    line = lines.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a scenario line");
+                }
+                if (line != null) current = ByteBuffer.wrap(line);
+                else if (closed && lines.isEmpty()) return -1;
+            }
+            int count = Math.min(dst.remaining(), current.remaining());
+            dst.put(current.array(), current.position(), count);
+            current.position(current.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
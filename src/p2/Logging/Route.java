@@ -2,9 +2,9 @@ package p2.Logging;
 
 import p2.Enums.ObjectType;
 import p2.Events.Event;
+import p2.Interfaces.ClockView;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.stream.IntStream;
 
 /**
@@ -16,6 +16,7 @@ public class Route extends AbstractEntity implements Comparable<Route> {
     private final ArrayList<Station> stations = new ArrayList<>();
     private final ArrayList<Segment> segments;
     private final ObjectType type = ObjectType.Route_;
+    private RouteTopology topology;
 
     /**
      * Constructs a new Route with the given name, round trip status, and list of segments.
@@ -25,9 +26,23 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      * @param segments    the list of segments on the route
      */
     public Route(String name, boolean isRoundTrip, ArrayList<Segment> segments) {
-        super(name);
+        this(name, isRoundTrip, segments, ClockView.STOPPED);
+    }
+
+    /**
+     * Constructs a new Route with the given name, round trip status, and list of segments
+     * that reads the time from the given clock.
+     *
+     * @param name        the name of the route
+     * @param isRoundTrip whether the route is a round trip
+     * @param segments    the list of segments on the route
+     * @param clock       the clock shared by the train system the route belongs to
+     */
+    public Route(String name, boolean isRoundTrip, ArrayList<Segment> segments, ClockView clock) {
+        super(name, clock);
         this.isRoundTrip = isRoundTrip;
         this.segments = segments;
+        this.topology = new RouteTopology(stations, segments);
     }
 
     // Getter methods
@@ -77,6 +92,16 @@ public class Route extends AbstractEntity implements Comparable<Route> {
         return this.stations;
     }
 
+    /**
+     * Returns the compiled topology of the route.
+     * The topology is rebuilt whenever the stations or segments of the route change.
+     *
+     * @return the compiled topology of the route
+     */
+    public RouteTopology getTopology() {
+        return topology;
+    }
+
     /**
      * Returns the object type of the route.
      *
@@ -96,7 +121,8 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      * @return the next station after the given station on the route, or null if there is no next station
      */
     public Station getNextStation(String station) {
-        return getStationList().stream().dropWhile(station1 -> !station1.getName().equals(station)).skip(1).findFirst().orElse(null);
+        int position = topology.positionOf(station);
+        return position < 0 ? null : topology.nextStation(position);
     }
 
     /**
@@ -110,9 +136,8 @@ public class Route extends AbstractEntity implements Comparable<Route> {
         if (isAtStart) {
             return getStart();
         } else {
-            ArrayList<Station> reversedStations = new ArrayList<>(getStationList());
-            Collections.reverse(reversedStations);
-            return reversedStations.stream().dropWhile(station1 -> !station1.getName().equals(station)).skip(1).findFirst().orElse(null);
+            int position = topology.lastPositionOf(station);
+            return position < 0 ? null : topology.previousStation(position);
         }
     }
 
@@ -123,7 +148,7 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      * @return true if it is possible to get to the given station on the route, false otherwise
      */
     public boolean canGetTo(String station) {
-        return stations.stream().filter(station1 -> station1.getName().equals(station)).allMatch(Station::isOpen);
+        return topology.isOpen(station);
     }
 
     // Methods related to segments
@@ -135,6 +160,7 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      */
     public void addSegment(Segment segment) {
         segments.add(segment);
+        topology = new RouteTopology(stations, segments);
     }
 
     /**
@@ -145,6 +171,7 @@ public class Route extends AbstractEntity implements Comparable<Route> {
     public void addStations(ArrayList<Station> stationArrayList) {
         stations.clear();
         stations.addAll(stationArrayList);
+        topology = new RouteTopology(stations, segments);
     }
 
     /**
@@ -153,7 +180,8 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      * @param segment the segment to remove
      */
     public void removeSegment(String segment) {
-        segments.removeIf(segment1 -> segment1.getName().equals(segment));
+        if (segments.removeIf(segment1 -> segment1.getName().equals(segment)))
+            topology = new RouteTopology(stations, segments);
     }
 
     /**
@@ -195,7 +223,7 @@ public class Route extends AbstractEntity implements Comparable<Route> {
      * @return the next segment from the current station name
      */
     public Segment getNextSegment(String station) {
-        return segments.stream().filter(segment -> segment.getSegmentStart().getName().equals(station)).findFirst().orElse(null);
+        return topology.segmentFrom(station);
     }
 
     // Verification methods
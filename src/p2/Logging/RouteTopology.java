@@ -0,0 +1,200 @@
+package p2.Logging;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * RouteTopology is the compiled, immutable form of a route.
+ * It holds the stations and the segment leaving each station in arrays indexed by position along the route,
+ * so that moving along the route is a matter of incrementing an index.
+ */
+public final class RouteTopology {
+    // The stations of the route, in travel order
+    private final Station[] stations;
+    // The segment leaving the station at each position, or null if there is none
+    private final Segment[] segmentAt;
+    // The position of the first station with a given name
+    private final HashMap<String, Integer> firstPosition = new HashMap<>();
+    // The position of the last station with a given name
+    private final HashMap<String, Integer> lastPosition = new HashMap<>();
+    // The first segment starting at a station with a given name
+    private final HashMap<String, Segment> segmentFrom = new HashMap<>();
+    // Whether the station at each position has the same name as the end of the route
+    private final boolean[] terminus;
+    // The id of each distinct station name, numbered in order of first appearance
+    private final HashMap<String, Integer> nameIds = new HashMap<>();
+    // The id of the name of the station at each position
+    private final int[] nameIdAt;
+    // The plan of a train stopping at every station of the route, shared by every such train
+    private final StopPlan allStops;
+
+    /**
+     * Compiles a route from its ordered stations and its segments.
+     *
+     * @param stations the stations of the route, in travel order
+     * @param segments the segments of the route
+     */
+    RouteTopology(List<Station> stations, List<Segment> segments) {
+        this.stations = stations.toArray(new Station[0]);
+        this.segmentAt = new Segment[this.stations.length];
+        this.terminus = new boolean[this.stations.length];
+        this.nameIdAt = new int[this.stations.length];
+        for (Segment segment : segments)
+            segmentFrom.putIfAbsent(segment.getSegmentStart().getName(), segment);
+        for (int i = 0; i < this.stations.length; i++) {
+            String name = this.stations[i].getName();
+            firstPosition.putIfAbsent(name, i);
+            lastPosition.put(name, i);
+            segmentAt[i] = segmentFrom.get(name);
+            nameIdAt[i] = nameIds.computeIfAbsent(name, key -> nameIds.size());
+        }
+        for (int i = 0; i < this.stations.length; i++)
+            terminus[i] = this.stations[i].getName().strip().equals(this.stations[this.stations.length - 1].getName().strip());
+        this.allStops = StopPlan.of(stations.stream().map(Station::getName).collect(Collectors.toList()), this);
+    }
+
+    /**
+     * Returns the number of stations on the route.
+     *
+     * @return the number of stations on the route
+     */
+    public int size() {
+        return stations.length;
+    }
+
+    /**
+     * Returns the station at the given position.
+     *
+     * @param position the position along the route
+     * @return the station at the given position
+     */
+    public Station stationAt(int position) {
+        return stations[position];
+    }
+
+    /**
+     * Returns the segment leaving the station at the given position.
+     *
+     * @param position the position along the route
+     * @return the segment leaving the station, or null if there is none
+     */
+    public Segment segmentAt(int position) {
+        return segmentAt[position];
+    }
+
+    /**
+     * Returns the station after the given position.
+     *
+     * @param position the position along the route
+     * @return the next station, or null if the position is the last one
+     */
+    public Station nextStation(int position) {
+        return position + 1 < stations.length ? stations[position + 1] : null;
+    }
+
+    /**
+     * Returns the station before the given position.
+     *
+     * @param position the position along the route
+     * @return the previous station, or null if the position is the first one
+     */
+    public Station previousStation(int position) {
+        return position > 0 ? stations[position - 1] : null;
+    }
+
+    /**
+     * Checks if the station at the given position has the same name as the end of the route.
+     *
+     * @param position the position along the route
+     * @return true if a train at the position has reached the end of the route, false otherwise
+     */
+    public boolean isTerminus(int position) {
+        return terminus[position];
+    }
+
+    /**
+     * Returns the number of distinct station names on the route.
+     *
+     * @return the number of distinct station names
+     */
+    public int nameCount() {
+        return nameIds.size();
+    }
+
+    /**
+     * Returns the id of a station name on the route.
+     *
+     * @param station the name of the station
+     * @return the id of the name, or -1 if no station of the route has it
+     */
+    public int nameIdOf(String station) {
+        return nameIds.getOrDefault(station, -1);
+    }
+
+    /**
+     * Returns the id of the name of the station at the given position.
+     *
+     * @param position the position along the route
+     * @return the id of the station name
+     */
+    public int nameIdAt(int position) {
+        return nameIdAt[position];
+    }
+
+    /**
+     * Returns the plan of a train that stops at every station of the route.
+     *
+     * @return the shared plan stopping at every station
+     */
+    public StopPlan allStops() {
+        return allStops;
+    }
+
+    /**
+     * Returns the position of the first station with the given name.
+     *
+     * @param station the name of the station
+     * @return the position of the station, or -1 if it is not on the route
+     */
+    public int positionOf(String station) {
+        return firstPosition.getOrDefault(station, -1);
+    }
+
+    /**
+     * Returns the position of the last station with the given name.
+     *
+     * @param station the name of the station
+     * @return the position of the station, or -1 if it is not on the route
+     */
+    public int lastPositionOf(String station) {
+        return lastPosition.getOrDefault(station, -1);
+    }
+
+    /**
+     * Returns the first segment starting at a station with the given name.
+     *
+     * @param station the name of the station
+     * @return the segment, or null if no segment of the route starts there
+     */
+    public Segment segmentFrom(String station) {
+        return segmentFrom.get(station);
+    }
+
+    /**
+     * Checks that every station on the route with the given name is open.
+     *
+     * @param station the name of the station
+     * @return true if every such station is open, or if there is none, false otherwise
+     */
+    public boolean isOpen(String station) {
+        int first = positionOf(station);
+        if (first < 0)
+            return true;
+        int last = lastPositionOf(station);
+        for (int i = first; i <= last; i++)
+            if (stations[i].getName().equals(station) && !stations[i].isOpen())
+                return false;
+        return true;
+    }
+}
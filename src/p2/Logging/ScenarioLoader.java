@@ -0,0 +1,230 @@
+package p2.Logging;
+
+import p2.Enums.SectionType;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ScenarioLoader reads the first time instance of a scenario file from a memory mapping of the file.
+ * <p>
+ * The lines between the sections are read one after the other, as the tokenizer would read them. The lines of a
+ * small section are located by skipping as many lines as its header gives. A large section is cut into chunks of
+ * bytes, each of which finds on the common fork-join pool the lines that start in it, from any byte of it; once the
+ * chunks hold as many lines as the header gives, they are parsed on the pool and joined back in file order. Every
+ * line is tokenized in place in the mapping, without being copied. Sections are handed out one at a time, so each
+ * one is applied before the lines after it are read.
+ */
+final class ScenarioLoader {
+    // Sections with fewer lines than this are parsed on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+    // The number of lines whose length tells the size of the chunks of a large section
+    private static final int SAMPLE_LINES = 1 << 10;
+    // The least number of bytes in a chunk
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+    // The mapped scenario file
+    private final ByteBuffer bytes;
+    // The first byte of the next line
+    private int position;
+    // The last time instance line read, or -1 if there was none
+    private int timeInstance = -1;
+    // Whether a line for another time instance has ended the block
+    private boolean endOfBlock;
+
+    /**
+     * Constructs a loader over a mapped scenario file.
+     *
+     * @param bytes the mapped file
+     */
+    private ScenarioLoader(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Maps a scenario file.
+     *
+     * @param file the path of the scenario file
+     * @return the loader, or null if the file is too large to be mapped as a whole
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    static ScenarioLoader open(String file) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) return null;
+            return new ScenarioLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(file, e);
+        }
+    }
+
+    /**
+     * Reads up to the next section of a time instance, skipping empty lines and lines that start no section.
+     *
+     * @param time the time instance being read
+     * @return the section, or null once a line for another time instance or the end of the file is reached
+     * @throws NumberFormatException if a time instance or a section size is not a number
+     */
+    ScenarioSection nextSection(int time) {
+        while (!endOfBlock && position < bytes.limit()) {
+            int start = position;
+            ScenarioTokenizer tokenizer = ScenarioTokenizer.over(bytes, start, nextLineStart());
+            tokenizer.nextLine();
+            if (tokenizer.isEmptyLine()) continue; // Skip empty lines
+            if (tokenizer.isTimeInstance()) {
+                timeInstance = tokenizer.lineInt();
+                endOfBlock = timeInstance != time;
+                continue;
+            }
+            tokenizer.splitKeyValue();
+            SectionType type = ScenarioSection.typeOf(tokenizer);
+            // Unknown keys or lines are ignored
+            if (type == null) continue;
+            return readSection(type, ScenarioSection.sizeOf(tokenizer), time);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last time instance line read.
+     *
+     * @return the time instance, or -1 if no time instance line has been read
+     */
+    int getTimeInstance() {
+        return timeInstance;
+    }
+
+    /**
+     * Returns the offset in the file of the next line.
+     *
+     * @return the offset of the first byte not read yet
+     */
+    long offset() {
+        return position;
+    }
+
+    /**
+     * Reads the lines of a section, in parallel chunks if the section is large.
+     *
+     * @param type the type of the section
+     * @param size the number of lines in the section
+     * @param time the time instance the section belongs to
+     * @return the section
+     */
+    private ScenarioSection readSection(SectionType type, int size, int time) {
+        int start = position;
+        int limit = bytes.limit();
+        if (size < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < size && position < limit; i++) nextLineStart();
+            return ScenarioSection.read(type, size, ScenarioTokenizer.over(bytes, start, position), time);
+        }
+
+        // Size the chunks from the length of the first lines, so that the section takes about one wave of chunks
+        int chunkCount = 4 * ForkJoinPool.getCommonPoolParallelism();
+        int sampleEnd = start;
+        int sampled = 0;
+        for (; sampled < SAMPLE_LINES && sampleEnd < limit; sampled++)
+            sampleEnd = ScenarioTokenizer.nextLineStart(bytes, sampleEnd);
+        long sectionBytes = (long) (sampleEnd - start) * size / Math.max(sampled, 1);
+        int chunkBytes = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CHUNK_BYTES, sectionBytes / chunkCount + 1));
+
+        // Find the lines of each chunk in waves, until the chunks hold the lines of the section or the file ends
+        List<int[]> chunks = new ArrayList<>();
+        int lines = 0;
+        int from = start;
+        while (lines < size && from < limit) {
+            List<ForkJoinTask<int[]>> wave = new ArrayList<>(chunkCount);
+            for (int c = 0; c < chunkCount && from < limit; c++) {
+                int chunkFrom = from;
+                int chunkTo = (int) Math.min(limit, (long) from + chunkBytes);
+                // The first chunk of a wave starts at a line; the others start anywhere in one
+                boolean aligned = c == 0;
+                wave.add(ForkJoinTask.adapt(() -> linesIn(chunkFrom, chunkTo, aligned)));
+                from = chunkTo;
+            }
+            ForkJoinTask.invokeAll(wave);
+            for (ForkJoinTask<int[]> task : wave) {
+                int[] chunk = task.join();
+                chunks.add(chunk);
+                lines += chunk[1];
+            }
+            from = chunks.get(chunks.size() - 1)[2];
+        }
+
+        // Parse the lines of the section in each chunk; the last chunk is read for every line left, so missing lines
+        // fail as they would in one pass
+        List<ForkJoinTask<ScenarioSection>> parts = new ArrayList<>();
+        int read = 0;
+        for (int i = 0; i < chunks.size() && read < size; i++) {
+            int[] chunk = chunks.get(i);
+            int count = lines < size && i == chunks.size() - 1 ? size - read : Math.min(chunk[1], size - read);
+            if (count == 0) continue;
+            parts.add(ForkJoinTask.adapt(() ->
+                    ScenarioSection.read(type, count, ScenarioTokenizer.over(bytes, chunk[0], chunk[2]), time)));
+            read += count;
+            if (read == size && lines >= size) {
+                // The section ends inside this chunk
+                position = chunk[0];
+                for (int line = 0; line < count; line++) nextLineStart();
+            }
+        }
+        if (lines < size) position = limit;
+        if (parts.isEmpty()) {
+            return ScenarioSection.read(type, size, ScenarioTokenizer.over(bytes, start, limit), time);
+        }
+        ForkJoinTask.invokeAll(parts);
+
+        List<ScenarioSection> sections = new ArrayList<>(parts.size());
+        for (ForkJoinTask<ScenarioSection> part : parts) sections.add(part.join());
+        return ScenarioSection.join(type, sections);
+    }
+
+    /**
+     * Finds the lines that start in a range of the file, from any byte of the range.
+     *
+     * @param from    the first byte of the range
+     * @param to      the byte after the range
+     * @param aligned whether a line starts at the first byte of the range
+     * @return the first byte of the first line that starts in the range, the number of lines that start in it, and
+     * the first byte of the first line after them
+     */
+    private int[] linesIn(int from, int to, boolean aligned) {
+        int first = aligned ? from : lineStartFrom(from);
+        int count = 0;
+        int line = first;
+        for (; line < to; count++) line = ScenarioTokenizer.nextLineStart(bytes, line);
+        return new int[]{first, count, line};
+    }
+
+    /**
+     * Returns the first byte of the first line that starts at or after a byte. A line terminator is at most three
+     * bytes long, so looking for one from three bytes earlier finds the terminator the byte may be inside of.
+     *
+     * @param from the byte, after the first line of the section
+     * @return the first byte of the line, or the limit of the file if no line starts at or after the byte
+     */
+    private int lineStartFrom(int from) {
+        int line = ScenarioTokenizer.nextLineStart(bytes, from - 3);
+        while (line < from) line = ScenarioTokenizer.nextLineStart(bytes, line);
+        return line;
+    }
+
+    /**
+     * Moves past the next line.
+     *
+     * @return the first byte of the line after it
+     */
+    private int nextLineStart() {
+        position = ScenarioTokenizer.nextLineStart(bytes, position);
+        return position;
+    }
+}
@@ -0,0 +1,342 @@
+package p2.Logging;
+
+import p2.Enums.SectionType;
+import p2.Interfaces.ScenarioSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * ScenarioPrefetcher reads the time instance blocks of a scenario source on a background thread, ahead of the
+ * simulation clock.
+ * <p>
+ * Blocks are parsed into sections and handed over through a bounded queue, and the source is not read further while
+ * the queue is full. Each block also tells the time instance of the block after it, if there is one, which the
+ * reading thread knows as soon as it has read the time instance line that ends the block. The simulation thread
+ * looks for the next block at every time instant without waiting, and only waits when a block is due at the current
+ * instant and has not been produced yet, or when it must know whether another block follows and no block has told
+ * it yet.
+ * Blocks end the way they do when the file is read on the simulation thread: at a time instance line for another
+ * instant, or at the end of the input. An exception raised while reading a block ends the blocks, and is thrown
+ * once the sections of the block read before it have been applied.
+ */
+final class ScenarioPrefetcher implements Closeable {
+    /**
+     * The number of blocks read ahead of the simulation by default.
+     */
+    static final int DEFAULT_CAPACITY = 16;
+
+    // The source the blocks are read from
+    private final ScenarioSource source;
+    // The blocks read and not taken yet, followed by a block with no time instance that marks their end
+    private final BlockingQueue<Block> blocks;
+    // The thread reading the blocks
+    private final Thread thread;
+    // The block taken from the queue and not handed out yet, or null; the end mark stays here once reached
+    private Block next;
+    // The time instance of the next block as told by the block handed out before it, or -1 if there is no next block
+    private int expectedTime;
+    // Whether the block handed out last told whether the next block exists, rather than only its time instance
+    private boolean expectedKnown;
+    // Whether the prefetcher has been closed
+    private volatile boolean closed;
+    // The number of bytes of the source read so far
+    private volatile long bytesRead;
+    // The time spent reading blocks so far, in nanoseconds
+    private volatile long readNanos;
+
+    /**
+     * Starts reading a scenario source.
+     *
+     * @param source    the source to read
+     * @param firstTime the time instance of the lines before the first time instance line
+     * @param capacity  the number of blocks to read ahead
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    ScenarioPrefetcher(ScenarioSource source, int firstTime, int capacity) {
+        this.source = source;
+        this.expectedTime = firstTime;
+        this.blocks = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(() -> run(firstTime), "scenario-prefetcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks if there is another block. It waits for the source only if the block handed out last did not tell
+     * whether another block follows, which is the case before the first block and after a failure to read.
+     *
+     * @return true if there is another block, false otherwise
+     * @throws UncheckedIOException if the source could not be read
+     */
+    boolean hasNextBlock() {
+        if (next == null) next = blocks.poll();
+        if (next == null && expectedKnown) return expectedTime >= 0;
+        Block block = peek();
+        if (block.time >= 0) return true;
+        if (block.failure != null) throw block.failure;
+        return false;
+    }
+
+    /**
+     * Returns the time instance of the next block, waiting for the source only as hasNextBlock() does.
+     *
+     * @return the time instance of the next block
+     * @throws NoSuchElementException if there is no other block
+     */
+    int nextTime() {
+        if (!hasNextBlock()) throw new NoSuchElementException("No time instance block found");
+        return next == null ? expectedTime : next.time;
+    }
+
+    /**
+     * Checks if the next block is due at a time instant, to be called at every time instant. It does not wait for
+     * the source unless the next block is expected at that very instant and has not been produced yet.
+     *
+     * @param time the time instant
+     * @return true if the next block is due at the time instant, false otherwise
+     * @throws UncheckedIOException if the source could not be read
+     */
+    boolean isDue(int time) {
+        if (next == null) next = blocks.poll();
+        // A block that has not arrived is only waited for when it must be applied now
+        if (next == null && expectedTime != time) return false;
+        return hasNextBlock() && nextTime() == time;
+    }
+
+    /**
+     * Returns the next block and moves past it.
+     *
+     * @return the block, whose failure the caller throws once it has applied the sections of the block
+     * @throws NoSuchElementException if there is no other block
+     */
+    Block takeBlock() {
+        if (!hasNextBlock()) throw new NoSuchElementException("No time instance block found");
+        Block block = peek();
+        next = null;
+        expectedTime = block.following;
+        expectedKnown = block.followingKnown;
+        return block;
+    }
+
+    /**
+     * Returns where the next block starts in the source, waiting until the source has produced it or has ended.
+     *
+     * @return the number of bytes of the source before the first line of the next block, or the number of bytes
+     * read if there is no other block
+     */
+    long nextOffset() {
+        return peek().offset;
+    }
+
+    /**
+     * Returns the number of bytes of the source read so far.
+     *
+     * @return the number of bytes read
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the time spent reading blocks so far, including any time spent waiting for the source.
+     *
+     * @return the time in nanoseconds
+     */
+    long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Returns the next block without moving past it, waiting until the source has produced it.
+     *
+     * @return the next block, or the end mark
+     */
+    private Block peek() {
+        if (next == null) {
+            try {
+                next = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a time instance block", e);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Reads the blocks of the source until its end, an exception, or the prefetcher is closed.
+     *
+     * @param firstTime the time instance of the lines before the first time instance line
+     */
+    private void run(int firstTime) {
+        try (ReadableByteChannel channel = source.open();
+             ScenarioTokenizer tokenizer = new ScenarioTokenizer(channel)) {
+            int time = firstTime;
+            while (!closed && tokenizer.hasNextLine()) {
+                long started = System.nanoTime();
+                long offset = tokenizer.getBytesRead();
+                List<ScenarioSection> sections = new ArrayList<>();
+                int nextTime = -1;
+                RuntimeException failure = null;
+                try {
+                    nextTime = readBlock(tokenizer, time, sections);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                // Whether another block follows is known once the line after the time instance line is looked for
+                int following = failure == null ? nextTime : -1;
+                boolean followingKnown = true;
+                UncheckedIOException readFailure = null;
+                try {
+                    if (following >= 0 && !tokenizer.hasNextLine()) following = -1;
+                } catch (UncheckedIOException e) {
+                    // The simulation waits for the end mark that holds the exception when the next block is due
+                    followingKnown = false;
+                    readFailure = e;
+                }
+                readNanos += System.nanoTime() - started;
+                bytesRead = tokenizer.getBytesRead();
+                blocks.put(new Block(time, offset, sections, failure, following, followingKnown));
+                if (readFailure != null) {
+                    end(readFailure);
+                    return;
+                }
+                if (following < 0) break;
+                time = following;
+            }
+        } catch (IOException e) {
+            end(new UncheckedIOException(e));
+            return;
+        } catch (UncheckedIOException e) {
+            end(e);
+            return;
+        } catch (InterruptedException e) {
+            // Closed while waiting for room in the queue
+            return;
+        }
+        end(null);
+    }
+
+    /**
+     * Reads the lines of one block, skipping empty lines and lines that start no section.
+     *
+     * @param tokenizer the tokenizer positioned before the first line of the block
+     * @param time      the time instance of the block
+     * @param sections  the list to add the sections of the block to
+     * @return the time instance of the block after it, or -1 if the input ended
+     * @throws NumberFormatException if a time instance or a section size is not a number
+     * @throws RuntimeException      the exception raised while reading a line of a section
+     */
+    private static int readBlock(ScenarioTokenizer tokenizer, int time, List<ScenarioSection> sections) {
+        while (tokenizer.hasNextLine()) {
+            tokenizer.nextLine();
+            if (tokenizer.isEmptyLine()) continue; // Skip empty lines
+            if (tokenizer.isTimeInstance()) {
+                int instance = tokenizer.lineInt();
+                if (instance != time) return instance;
+                continue;
+            }
+            tokenizer.splitKeyValue();
+            SectionType type = ScenarioSection.typeOf(tokenizer);
+            // Unknown keys or lines are ignored
+            if (type == null) continue;
+            ScenarioSection section = ScenarioSection.read(type, ScenarioSection.sizeOf(tokenizer), tokenizer, time);
+            sections.add(section);
+            // The section holds the exception of the line it ends at, so the lines after it are not read
+            if (section.hasFailure()) return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the end of the blocks, unless the prefetcher is closed first.
+     *
+     * @param failure the exception that ended the source, or null if the source ended
+     */
+    private void end(UncheckedIOException failure) {
+        if (closed) return;
+        try {
+            blocks.put(new Block(-1, bytesRead, List.of(), failure, -1, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops reading and closes the source.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            source.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Block is one time instance block of a scenario, read ahead of the simulation.
+     */
+    static final class Block {
+        // The time instance of the block, or -1 for the end mark
+        private final int time;
+        // The number of bytes of the source before the first line of the block
+        private final long offset;
+        // The sections of the block, in file order
+        private final List<ScenarioSection> sections;
+        // The exception raised while reading the block, or null
+        private final RuntimeException failure;
+        // The time instance of the block after it, or -1 if it is the last block
+        private final int following;
+        // Whether the source told whether the block after it exists, rather than only its time instance
+        private final boolean followingKnown;
+
+        /**
+         * Constructs a block.
+         *
+         * @param time           the time instance of the block
+         * @param offset         the number of bytes of the source before the first line of the block
+         * @param sections       the sections of the block, in file order
+         * @param failure        the exception raised while reading the block, or null
+         * @param following      the time instance of the block after it, or -1 if it is the last block
+         * @param followingKnown whether the block after it is known to exist, rather than only expected
+         */
+        Block(int time, long offset, List<ScenarioSection> sections, RuntimeException failure, int following,
+              boolean followingKnown) {
+            this.time = time;
+            this.offset = offset;
+            this.sections = sections;
+            this.failure = failure;
+            this.following = following;
+            this.followingKnown = followingKnown;
+        }
+
+        /**
+         * Returns the sections of the block.
+         *
+         * @return the sections, in file order
+         */
+        List<ScenarioSection> getSections() {
+            return sections;
+        }
+
+        /**
+         * Returns the exception raised while reading the block.
+         *
+         * @return the exception, or null if the whole block was read
+         */
+        RuntimeException getFailure() {
+            return failure;
+        }
+    }
+}
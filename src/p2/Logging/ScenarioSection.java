@@ -0,0 +1,508 @@
+package p2.Logging;
+
+import p2.Enums.Action;
+import p2.Enums.ObjectType;
+import p2.Enums.SectionType;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * ScenarioSection holds the parsed lines of one section of a scenario file, before they are applied to a train
+ * system. Reading a section and applying it are separate steps, so large sections can be parsed on several threads
+ * and still be applied one line after the other in file order.
+ * <p>
+ * A line that cannot be parsed is kept as an entry holding the exception, and the section ends there. Applying the
+ * section throws the exception once the lines before it have been applied, as reading the file line by line would.
+ */
+public final class ScenarioSection {
+    // The type of the section
+    private final SectionType type;
+    // The parsed lines of the section, in file order
+    private final Entry[] entries;
+
+    /**
+     * Constructs a section from its parsed lines.
+     *
+     * @param type    the type of the section
+     * @param entries the parsed lines, in file order
+     */
+    ScenarioSection(SectionType type, Entry[] entries) {
+        this.type = type;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the type of the section.
+     *
+     * @return the type of the section
+     */
+    public SectionType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the parsed lines of the section.
+     *
+     * @return the parsed lines, in file order
+     */
+    public List<Entry> getEntries() {
+        return List.of(entries);
+    }
+
+    /**
+     * Checks if the section ends at a line that could not be read.
+     *
+     * @return true if the last line holds an exception, false otherwise
+     */
+    boolean hasFailure() {
+        return entries.length > 0 && entries[entries.length - 1].failure != null;
+    }
+
+    /**
+     * Returns the type of the section a header line starts.
+     *
+     * @param tokenizer the tokenizer positioned on the line, split into a key and a value
+     * @return the type of the section, or null if the line is not a known header
+     */
+    static SectionType typeOf(ScenarioTokenizer tokenizer) {
+        for (SectionType type : SectionType.values())
+            if (tokenizer.fieldEquals(0, type.getDescription())) return type;
+        return null;
+    }
+
+    /**
+     * Returns the number of lines in a section, read from the value of its header line.
+     *
+     * @param tokenizer the tokenizer positioned on the header line, split into a key and a value
+     * @return the number of lines in the section
+     * @throws NumberFormatException if the header has no value or the value is not a number
+     */
+    static int sizeOf(ScenarioTokenizer tokenizer) {
+        if (tokenizer.fieldOrNull(1) == null) throw new NumberFormatException("Cannot parse null string");
+        return tokenizer.fieldInt(1);
+    }
+
+    /**
+     * Reads the lines of a section one after the other.
+     *
+     * @param type      the type of the section
+     * @param size      the number of lines in the section
+     * @param tokenizer the tokenizer positioned on the header line
+     * @param time      the time instance the section belongs to
+     * @return the section
+     */
+    static ScenarioSection read(SectionType type, int size, ScenarioTokenizer tokenizer, int time) {
+        List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(size, 1 << 16)));
+        for (int i = 0; i < size; i++) {
+            Entry entry;
+            try {
+                tokenizer.nextLine();
+                entry = parse(type, tokenizer, time);
+            } catch (RuntimeException e) {
+                entry = Entry.failed(e);
+            }
+            entries.add(entry);
+            if (entry.failure != null) break;
+        }
+        return new ScenarioSection(type, entries.toArray(new Entry[0]));
+    }
+
+    /**
+     * Joins the sections read from consecutive chunks of the lines of one section.
+     * The joined section ends at the first line that could not be read, as if the chunks had been read as one.
+     *
+     * @param type  the type of the section
+     * @param parts the sections read from the chunks, in file order
+     * @return the section
+     */
+    static ScenarioSection join(SectionType type, List<ScenarioSection> parts) {
+        int size = 0;
+        for (ScenarioSection part : parts) size += part.entries.length;
+        Entry[] entries = new Entry[size];
+        int count = 0;
+        for (ScenarioSection part : parts) {
+            System.arraycopy(part.entries, 0, entries, count, part.entries.length);
+            count += part.entries.length;
+            if (count > 0 && entries[count - 1].failure != null) break;
+        }
+        return new ScenarioSection(type, count == size ? entries : Arrays.copyOf(entries, count));
+    }
+
+    /**
+     * Writes the section to a network snapshot, with every name replaced by its index in the string table.
+     *
+     * @param out     the snapshot being written
+     * @param strings the index of each name in the string table, or -1 for null
+     * @throws IOException if the snapshot cannot be written
+     * @throws RuntimeException the exception raised while reading a line, if a line could not be read
+     */
+    void writeSnapshot(DataOutput out, ToIntFunction<String> strings) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeInt(entries.length);
+        for (Entry entry : entries) {
+            if (entry.failure != null) throw entry.failure;
+            switch (type) {
+                case Stations -> out.writeInt(strings.applyAsInt(entry.name));
+                case Segments -> {
+                    out.writeInt(strings.applyAsInt(entry.name));
+                    out.writeInt(strings.applyAsInt(entry.first));
+                    out.writeInt(strings.applyAsInt(entry.second));
+                }
+                case Routes -> {
+                    out.writeInt(strings.applyAsInt(entry.name));
+                    out.writeBoolean(entry.flag);
+                    writeList(out, entry.list, strings);
+                }
+                case Events -> {
+                    out.writeByte(entry.action == null ? -1 : entry.action.ordinal());
+                    out.writeByte(entry.target == null ? -1 : entry.target.ordinal());
+                    out.writeInt(strings.applyAsInt(entry.name));
+                }
+                case Trains -> {
+                    out.writeBoolean(entry.registration);
+                    out.writeInt(strings.applyAsInt(entry.name));
+                    out.writeInt(strings.applyAsInt(entry.first));
+                    out.writeInt(entry.number);
+                    writeList(out, entry.list, strings);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a section written by writeSnapshot().
+     *
+     * @param in      the snapshot, positioned on the section
+     * @param strings the string table of the snapshot
+     * @return the section
+     */
+    static ScenarioSection readSnapshot(ByteBuffer in, String[] strings) {
+        SectionType type = SectionType.values()[in.get()];
+        Entry[] entries = new Entry[in.getInt()];
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = new Entry();
+            switch (type) {
+                case Stations -> entry.name = string(in, strings);
+                case Segments -> {
+                    entry.name = string(in, strings);
+                    entry.first = string(in, strings);
+                    entry.second = string(in, strings);
+                }
+                case Routes -> {
+                    entry.name = string(in, strings);
+                    entry.flag = in.get() != 0;
+                    entry.list = readList(in, strings);
+                }
+                case Events -> {
+                    byte action = in.get();
+                    byte target = in.get();
+                    entry.action = action < 0 ? null : Action.values()[action];
+                    entry.target = target < 0 ? null : ObjectType.values()[target];
+                    entry.name = string(in, strings);
+                }
+                case Trains -> {
+                    entry.registration = in.get() != 0;
+                    entry.name = string(in, strings);
+                    entry.first = string(in, strings);
+                    entry.number = in.getInt();
+                    entry.list = readList(in, strings);
+                }
+            }
+            entries[i] = entry;
+        }
+        return new ScenarioSection(type, entries);
+    }
+
+    /**
+     * Writes a list of names to a network snapshot, as its length followed by the index of each name.
+     *
+     * @param out     the snapshot being written
+     * @param list    the names, or null
+     * @param strings the index of each name in the string table
+     * @throws IOException if the snapshot cannot be written
+     */
+    private static void writeList(DataOutput out, String[] list, ToIntFunction<String> strings) throws IOException {
+        out.writeInt(list == null ? -1 : list.length);
+        if (list == null) return;
+        for (String name : list) out.writeInt(strings.applyAsInt(name));
+    }
+
+    /**
+     * Reads a list of names written by writeList().
+     *
+     * @param in      the snapshot, positioned on the list
+     * @param strings the string table of the snapshot
+     * @return the names, or null
+     */
+    private static String[] readList(ByteBuffer in, String[] strings) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String[] list = new String[length];
+        for (int i = 0; i < length; i++) list[i] = string(in, strings);
+        return list;
+    }
+
+    /**
+     * Reads a name from a network snapshot.
+     *
+     * @param in      the snapshot, positioned on the index of the name
+     * @param strings the string table of the snapshot
+     * @return the name, or null
+     */
+    private static String string(ByteBuffer in, String[] strings) {
+        int index = in.getInt();
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * Parses one line of a section.
+     *
+     * @param type      the type of the section
+     * @param tokenizer the tokenizer positioned on the line
+     * @param time      the time instance the section belongs to
+     * @return the parsed line
+     */
+    static Entry parse(SectionType type, ScenarioTokenizer tokenizer, int time) {
+        try {
+            return switch (type) {
+                case Stations -> parseStation(tokenizer);
+                case Segments -> parseSegment(tokenizer);
+                case Routes -> parseRoute(tokenizer);
+                case Events -> parseEvent(tokenizer);
+                case Trains -> parseTrain(tokenizer, time);
+            };
+        } catch (RuntimeException e) {
+            return Entry.failed(e);
+        }
+    }
+
+    /**
+     * Parses a station line: the name of the station.
+     *
+     * @param tokenizer the tokenizer positioned on the line
+     * @return the parsed line
+     */
+    private static Entry parseStation(ScenarioTokenizer tokenizer) {
+        Entry entry = new Entry();
+        entry.name = tokenizer.strippedLine();
+        return entry;
+    }
+
+    /**
+     * Parses a segment line: the name of the segment, its start and its end.
+     *
+     * @param tokenizer the tokenizer positioned on the line
+     * @return the parsed line
+     */
+    private static Entry parseSegment(ScenarioTokenizer tokenizer) {
+        tokenizer.split(':');
+        Entry entry = new Entry();
+        entry.name = tokenizer.strippedField(0);
+        entry.first = tokenizer.strippedField(1);
+        entry.second = tokenizer.strippedField(2);
+        return entry;
+    }
+
+    /**
+     * Parses a route line: the name of the route, whether it is a round trip, and its segments.
+     *
+     * @param tokenizer the tokenizer positioned on the line
+     * @return the parsed line
+     */
+    private static Entry parseRoute(ScenarioTokenizer tokenizer) {
+        tokenizer.split(':');
+        Entry entry = new Entry();
+        entry.flag = tokenizer.fieldBoolean(1);
+        tokenizer.splitField(2, ';');
+        entry.list = tokenizer.subfields();
+        entry.name = tokenizer.strippedField(0);
+        return entry;
+    }
+
+    /**
+     * Parses an event line: opening or closing a station, segment or route.
+     * A line that neither opens nor closes anything is kept as an entry without an action.
+     *
+     * @param tokenizer the tokenizer positioned on the line
+     * @return the parsed line
+     * @throws IllegalArgumentException if the event type is unknown
+     */
+    private static Entry parseEvent(ScenarioTokenizer tokenizer) {
+        tokenizer.split(':');
+        Entry entry = new Entry();
+        if (tokenizer.strippedFieldEquals(0, "Open")) entry.action = Action.Open;
+        else if (tokenizer.strippedFieldEquals(0, "Close")) entry.action = Action.Close;
+        else return entry;
+
+        if (tokenizer.strippedFieldEquals(1, "Station")) entry.target = ObjectType.Station_;
+        else if (tokenizer.strippedFieldEquals(1, "Segment")) entry.target = ObjectType.Segment_;
+        else if (tokenizer.strippedFieldEquals(1, "Route")) entry.target = ObjectType.Route_;
+        else throw new IllegalArgumentException("Unknown event type for '" + entry.action + "': " + tokenizer.field(1));
+        entry.name = tokenizer.strippedField(2);
+        return entry;
+    }
+
+    /**
+     * Parses a train line. At time 0 the line adds the train with its start time; after that it registers the
+     * train to its route with its stops, where no stops or "all" means every station.
+     *
+     * @param tokenizer the tokenizer positioned on the line
+     * @param time      the time instance the section belongs to
+     * @return the parsed line
+     */
+    private static Entry parseTrain(ScenarioTokenizer tokenizer, int time) {
+        tokenizer.split(':');
+        int stops = tokenizer.splitField(3, ';');
+        Entry entry = new Entry();
+        // Check the sops if it is equal to an empty string or "all" register the train with an empty array
+        if ((stops == 0 || tokenizer.strippedSubfieldEquals(0, "all")) && time > 0) {
+            entry.registration = true;
+            entry.name = tokenizer.strippedField(0);
+            entry.first = tokenizer.strippedField(2);
+            entry.list = new String[0];
+        } else if (time > 0) {
+            entry.registration = true;
+            entry.name = tokenizer.strippedField(0);
+            entry.first = tokenizer.strippedField(2);
+            entry.list = tokenizer.subfields();
+        } else if (time == 0) {
+            entry.name = tokenizer.strippedField(0);
+            entry.number = tokenizer.fieldInt(1);
+        }
+        return entry;
+    }
+
+    /**
+     * Entry is one parsed line of a section. Which fields are set depends on the type of the section.
+     */
+    public static final class Entry {
+        // The name of the station, segment, route or train, or of the target of an event
+        private String name;
+        // The start of a segment, or the route of a train
+        private String first;
+        // The end of a segment
+        private String second;
+        // The segments of a route, or the stops of a train
+        private String[] list;
+        // Whether a route is a round trip
+        private boolean flag;
+        // The start time of a train
+        private int number;
+        // Open or Close for an event, or null
+        private Action action;
+        // Whether a train line registers the train to a route, rather than adding it
+        private boolean registration;
+        // The type of object an event opens or closes
+        private ObjectType target;
+        // The exception raised while reading the line, or null
+        private RuntimeException failure;
+
+        /**
+         * Constructs an entry for a line that could not be read.
+         *
+         * @param failure the exception raised while reading the line
+         * @return the entry
+         */
+        static Entry failed(RuntimeException failure) {
+            Entry entry = new Entry();
+            entry.failure = failure;
+            return entry;
+        }
+
+        /**
+         * Returns the name of the station, segment, route or train, or of the target of an event.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the start of a segment, or the route of a train.
+         *
+         * @return the start of the segment or the route of the train
+         */
+        public String getFirst() {
+            return first;
+        }
+
+        /**
+         * Returns the end of a segment.
+         *
+         * @return the end of the segment
+         */
+        public String getSecond() {
+            return second;
+        }
+
+        /**
+         * Returns the segments of a route, or the stops of a train.
+         *
+         * @return the segments or the stops
+         */
+        public String[] getList() {
+            return list;
+        }
+
+        /**
+         * Returns whether a route is a round trip.
+         *
+         * @return true if the route is a round trip, false otherwise
+         */
+        public boolean getFlag() {
+            return flag;
+        }
+
+        /**
+         * Returns the start time of a train.
+         *
+         * @return the start time
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the action of the line.
+         *
+         * @return Open or Close for an event, or null
+         */
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * Returns whether a train line registers the train to a route, rather than adding it.
+         *
+         * @return true if the train is registered, false if it is added
+         */
+        public boolean isRegistration() {
+            return registration;
+        }
+
+        /**
+         * Returns the type of object an event opens or closes.
+         *
+         * @return the type of object
+         */
+        public ObjectType getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns the exception raised while reading the line.
+         *
+         * @return the exception, or null if the line was read
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+    }
+}
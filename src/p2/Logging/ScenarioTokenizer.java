@@ -0,0 +1,666 @@
+package p2.Logging;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * ScenarioTokenizer reads a scenario file line by line straight from a channel, without regular expressions.
+ * <p>
+ * The current line is kept as a range of bytes in the read buffer, or in the mapping of a file when the lines are
+ * already in memory, which is then read in place. It can be split into fields, and the fields compared, parsed as
+ * numbers or turned into strings; only the strings handed to the train system are allocated. Lines end the way they
+ * do for a Scanner, and fields split the way String.split() splits them, so the scenario grammar reads exactly as it
+ * did before.
+ */
+public final class ScenarioTokenizer implements Closeable {
+    // The size of the read buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The channel the scenario is read from
+    private final ReadableByteChannel channel;
+    // The read buffer; bytes before position have been consumed
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    // Whether the channel has no more bytes
+    private boolean endOfInput;
+    // The offset in the input of the first byte of the buffer
+    private long bufferOffset;
+    // The number of bytes of the input consumed so far
+    private long bytesRead;
+
+    // The first byte of the current line, after trimming
+    private int lineStart;
+    // The byte after the current line, after trimming
+    private int lineEnd;
+    // The fields of the current line
+    private final Fields fields = new Fields();
+    // The fields of one field of the current line
+    private final Fields subfields = new Fields();
+    // The bytes of the last string decoded from a buffer without an array
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Constructs a tokenizer over a channel.
+     *
+     * @param channel the channel to read the scenario from
+     */
+    public ScenarioTokenizer(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.limit(0);
+    }
+
+    /**
+     * Constructs a tokenizer over bytes already in memory.
+     *
+     * @param bytes the lines to read, from index 0 to the limit
+     */
+    private ScenarioTokenizer(ByteBuffer bytes) {
+        this.channel = null;
+        this.buffer = bytes;
+        this.endOfInput = true;
+    }
+
+    /**
+     * Constructs a tokenizer over a range of lines already in memory, such as a mapped file, reading them in place.
+     *
+     * @param bytes the buffer holding the lines
+     * @param start the first byte of the range
+     * @param end   the byte after the range
+     * @return the tokenizer
+     */
+    static ScenarioTokenizer over(ByteBuffer bytes, int start, int end) {
+        return new ScenarioTokenizer(bytes.slice(start, end - start));
+    }
+
+    /**
+     * Opens a tokenizer over a scenario file.
+     *
+     * @param file the path of the scenario file
+     * @return the tokenizer
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    public static ScenarioTokenizer open(String file) throws FileNotFoundException {
+        try {
+            return new ScenarioTokenizer(FileChannel.open(Path.of(file), StandardOpenOption.READ));
+        } catch (IOException | InvalidPathException e) {
+            throw notFound(file, e);
+        }
+    }
+
+    /**
+     * Reports a scenario file that cannot be opened the way a FileInputStream does.
+     *
+     * @param file  the path of the scenario file
+     * @param cause the exception raised while opening the file
+     * @return the exception to throw
+     */
+    static FileNotFoundException notFound(String file, Exception cause) {
+        String reason = cause instanceof NoSuchFileException ? "No such file or directory"
+                : cause instanceof AccessDeniedException ? "Permission denied" : cause.getMessage();
+        FileNotFoundException notFound = new FileNotFoundException(file + " (" + reason + ")");
+        notFound.initCause(cause);
+        return notFound;
+    }
+
+    /**
+     * Returns the number of bytes consumed so far.
+     *
+     * @return the number of bytes of the scenario that have been read as lines
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Checks if there is another line, the way Scanner.hasNextLine() does.
+     *
+     * @return true if there is another line, false otherwise
+     */
+    public boolean hasNextLine() {
+        return buffer.hasRemaining() || fill();
+    }
+
+    /**
+     * Moves to the next line and trims it, the way Scanner.nextLine().trim() does.
+     *
+     * @throws NoSuchElementException if there is no other line
+     */
+    public void nextLine() {
+        if (!hasNextLine()) throw new NoSuchElementException("No line found");
+        ByteBuffer bytes = buffer;
+        int start = buffer.position();
+        int scan = start;
+        while (true) {
+            int terminator = findTerminator(bytes, scan, buffer.limit());
+            if (terminator >= 0) {
+                int length = terminatorLength(bytes, terminator, buffer.limit());
+                // A carriage return at the end of the buffer may be the start of a CRLF pair
+                if (length == 1 && bytes.get(terminator) == '\r' && terminator + 1 == buffer.limit() && !endOfInput) {
+                    scan = terminator - start;
+                    start = refill(start);
+                    bytes = buffer;
+                    scan += start;
+                    continue;
+                }
+                setLine(bytes, start, terminator, terminator + length);
+                return;
+            }
+            if (endOfInput) {
+                setLine(bytes, start, buffer.limit(), buffer.limit());
+                return;
+            }
+            // Look again at the last bytes, which may be the start of a multibyte terminator
+            scan = Math.max(0, buffer.limit() - start - 2);
+            start = refill(start);
+            bytes = buffer;
+            scan += start;
+        }
+    }
+
+    /**
+     * Finds the next line terminator.
+     *
+     * @param bytes the buffer
+     * @param from  the first byte to look at
+     * @param to    the byte after the last byte to look at
+     * @return the index of the terminator, or -1 if there is none
+     */
+    private static int findTerminator(ByteBuffer bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = bytes.get(i);
+            if (b == '\n' || b == '\r') return i;
+            // NEL, LINE SEPARATOR and PARAGRAPH SEPARATOR end lines for a Scanner as well
+            if (b == (byte) 0xC2 && i + 1 < to && bytes.get(i + 1) == (byte) 0x85) return i;
+            if (b == (byte) 0xE2 && i + 2 < to && bytes.get(i + 1) == (byte) 0x80
+                    && (bytes.get(i + 2) == (byte) 0xA8 || bytes.get(i + 2) == (byte) 0xA9)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the start of the line after the one starting at the given index, ending lines the way nextLine() does.
+     *
+     * @param bytes the whole input
+     * @param from  the first byte of the line
+     * @return the first byte of the next line, or the limit of the input if the line is the last one
+     */
+    static int nextLineStart(ByteBuffer bytes, int from) {
+        int to = bytes.limit();
+        for (int i = from; i < to; i++) {
+            byte b = bytes.get(i);
+            if (b == '\n') return i + 1;
+            if (b == '\r') return i + 1 < to && bytes.get(i + 1) == '\n' ? i + 2 : i + 1;
+            if (b == (byte) 0xC2 && i + 1 < to && bytes.get(i + 1) == (byte) 0x85) return i + 2;
+            if (b == (byte) 0xE2 && i + 2 < to && bytes.get(i + 1) == (byte) 0x80
+                    && (bytes.get(i + 2) == (byte) 0xA8 || bytes.get(i + 2) == (byte) 0xA9)) return i + 3;
+        }
+        return to;
+    }
+
+    /**
+     * Returns the length of the line terminator at the given index.
+     *
+     * @param bytes      the buffer
+     * @param terminator the index of the terminator
+     * @param to         the byte after the last byte in the buffer
+     * @return the number of bytes of the terminator
+     */
+    private static int terminatorLength(ByteBuffer bytes, int terminator, int to) {
+        return switch (bytes.get(terminator)) {
+            case '\n' -> 1;
+            case '\r' -> terminator + 1 < to && bytes.get(terminator + 1) == '\n' ? 2 : 1;
+            case (byte) 0xC2 -> 2;
+            default -> 3;
+        };
+    }
+
+    /**
+     * Sets the current line and consumes it, including its terminator.
+     *
+     * @param bytes the buffer
+     * @param start the first byte of the line
+     * @param end   the byte after the line
+     * @param next  the first byte of the following line
+     */
+    private void setLine(ByteBuffer bytes, int start, int end, int next) {
+        while (start < end && (bytes.get(start) & 0xFF) <= ' ') start++;
+        while (end > start && (bytes.get(end - 1) & 0xFF) <= ' ') end--;
+        lineStart = start;
+        lineEnd = end;
+        bytesRead += next - buffer.position();
+        buffer.position(next);
+        fields.count = -1;
+    }
+
+    /**
+     * Reads more bytes, keeping the bytes from the given index on.
+     *
+     * @param keep the first byte to keep
+     * @return the new index of the first kept byte
+     */
+    private int refill(int keep) {
+        buffer.position(keep);
+        fill();
+        return buffer.position();
+    }
+
+    /**
+     * Reads more bytes into the buffer, keeping the bytes not consumed yet and growing the buffer if it is full.
+     *
+     * @return true if bytes were read, false at the end of the input
+     */
+    private boolean fill() {
+        if (endOfInput) return false;
+        bufferOffset += buffer.position();
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        try {
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            if (read < 0) endOfInput = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.flip();
+        }
+        return !endOfInput;
+    }
+
+    /**
+     * Checks if the current line is empty.
+     *
+     * @return true if the line is empty, false otherwise
+     */
+    public boolean isEmptyLine() {
+        return lineStart == lineEnd;
+    }
+
+    /**
+     * Checks if the current line is a time instance, that is one or more ASCII digits.
+     *
+     * @return true if the line is a time instance, false otherwise
+     */
+    public boolean isTimeInstance() {
+        if (lineStart == lineEnd) return false;
+        ByteBuffer bytes = buffer;
+        for (int i = lineStart; i < lineEnd; i++)
+            if (bytes.get(i) < '0' || bytes.get(i) > '9') return false;
+        return true;
+    }
+
+    /**
+     * Parses the current line as a number.
+     *
+     * @return the number
+     * @throws NumberFormatException if the line is not a number
+     */
+    public int lineInt() {
+        return parseInt(lineStart, lineEnd);
+    }
+
+    /**
+     * Returns the current line as a string.
+     *
+     * @return the trimmed line
+     */
+    public String line() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * Returns the current line stripped of white space, the way String.strip() does.
+     *
+     * @return the stripped line
+     */
+    public String strippedLine() {
+        return stripped(lineStart, lineEnd);
+    }
+
+    /**
+     * Splits the current line into fields around a separator, the way String.split() does for a single character.
+     *
+     * @param separator the separator
+     * @return the number of fields
+     */
+    public int split(char separator) {
+        fields.split(buffer, lineStart, lineEnd, (byte) separator);
+        return fields.count;
+    }
+
+    /**
+     * Splits the current line around a colon followed by any white space, the way
+     * String.split(":\\s*") does, so that every field after the first has no leading white space.
+     *
+     * @return the number of fields
+     */
+    public int splitKeyValue() {
+        ByteBuffer bytes = buffer;
+        fields.split(bytes, lineStart, lineEnd, (byte) ':');
+        for (int i = 1; i < fields.count; i++)
+            while (fields.starts[i] < fields.ends[i] && isRegexSpace(bytes.get(fields.starts[i]))) fields.starts[i]++;
+        // A field emptied by the white space after its colon may now be a trailing empty field
+        while (fields.count > 0 && fields.starts[fields.count - 1] == fields.ends[fields.count - 1]
+                && fields.separated) fields.count--;
+        return fields.count;
+    }
+
+    /**
+     * Splits a field of the current line into subfields around a separator, the way String.split() does.
+     *
+     * @param field     the index of the field
+     * @param separator the separator
+     * @return the number of subfields
+     */
+    public int splitField(int field, char separator) {
+        fields.check(field);
+        subfields.split(buffer, fields.starts[field], fields.ends[field], (byte) separator);
+        return subfields.count;
+    }
+
+    /**
+     * Returns a field of the current line as it is.
+     *
+     * @param field the index of the field
+     * @return the field
+     */
+    public String field(int field) {
+        fields.check(field);
+        return decode(fields.starts[field], fields.ends[field]);
+    }
+
+    /**
+     * Returns a field of the current line stripped of white space.
+     *
+     * @param field the index of the field
+     * @return the stripped field
+     */
+    public String strippedField(int field) {
+        fields.check(field);
+        return stripped(fields.starts[field], fields.ends[field]);
+    }
+
+    /**
+     * Returns a field of the current line, or null if the line has no such field.
+     *
+     * @param field the index of the field
+     * @return the field, or null
+     */
+    public String fieldOrNull(int field) {
+        return field < fields.count ? field(field) : null;
+    }
+
+    /**
+     * Checks if a field of the current line, stripped of white space, equals an ASCII word.
+     *
+     * @param field the index of the field
+     * @param word  the word to compare with
+     * @return true if the stripped field equals the word, false otherwise
+     */
+    public boolean strippedFieldEquals(int field, String word) {
+        fields.check(field);
+        ByteBuffer bytes = buffer;
+        int start = fields.starts[field], end = fields.ends[field];
+        while (start < end && isStripSpace(bytes.get(start))) start++;
+        while (end > start && isStripSpace(bytes.get(end - 1))) end--;
+        if (end - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++)
+            if (bytes.get(start + i) != word.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * Checks if a field of the current line, as it is, equals an ASCII word.
+     *
+     * @param field the index of the field
+     * @param word  the word to compare with
+     * @return true if the field equals the word, false otherwise
+     */
+    public boolean fieldEquals(int field, String word) {
+        fields.check(field);
+        ByteBuffer bytes = buffer;
+        int start = fields.starts[field];
+        if (fields.ends[field] - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++)
+            if (bytes.get(start + i) != word.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * Parses a field of the current line as a number, the way Integer.parseInt() does.
+     *
+     * @param field the index of the field
+     * @return the number
+     * @throws NumberFormatException if the field is not a number
+     */
+    public int fieldInt(int field) {
+        fields.check(field);
+        return parseInt(fields.starts[field], fields.ends[field]);
+    }
+
+    /**
+     * Parses a field of the current line as a boolean, the way Boolean.parseBoolean() does.
+     *
+     * @param field the index of the field
+     * @return true if the field is "true", ignoring case, false otherwise
+     */
+    public boolean fieldBoolean(int field) {
+        fields.check(field);
+        ByteBuffer bytes = buffer;
+        int start = fields.starts[field];
+        if (fields.ends[field] - start != 4) return false;
+        return (bytes.get(start) | 0x20) == 't' && (bytes.get(start + 1) | 0x20) == 'r'
+                && (bytes.get(start + 2) | 0x20) == 'u' && (bytes.get(start + 3) | 0x20) == 'e';
+    }
+
+    /**
+     * Returns the subfields of the last field split, as they are.
+     *
+     * @return the subfields
+     */
+    public String[] subfields() {
+        String[] result = new String[subfields.count];
+        for (int i = 0; i < result.length; i++) result[i] = decode(subfields.starts[i], subfields.ends[i]);
+        return result;
+    }
+
+    /**
+     * Checks if a subfield of the last field split, stripped of white space, equals an ASCII word.
+     *
+     * @param subfield the index of the subfield
+     * @param word     the word to compare with
+     * @return true if the stripped subfield equals the word, false otherwise
+     */
+    public boolean strippedSubfieldEquals(int subfield, String word) {
+        subfields.check(subfield);
+        ByteBuffer bytes = buffer;
+        int start = subfields.starts[subfield], end = subfields.ends[subfield];
+        while (start < end && isStripSpace(bytes.get(start))) start++;
+        while (end > start && isStripSpace(bytes.get(end - 1))) end--;
+        if (end - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++)
+            if (bytes.get(start + i) != word.charAt(i)) return false;
+        return true;
+    }
+
+    /**
+     * Parses a range of the buffer as a number, the way Integer.parseInt() does.
+     *
+     * @param start the first byte
+     * @param end   the byte after the last byte
+     * @return the number
+     * @throws NumberFormatException if the range is not a number
+     */
+    private int parseInt(int start, int end) {
+        ByteBuffer bytes = buffer;
+        int i = start;
+        boolean negative = i < end && bytes.get(i) == '-';
+        if (i < end && (bytes.get(i) == '-' || bytes.get(i) == '+')) i++;
+        // Up to nine digits cannot overflow; anything else is left to Integer.parseInt() and its messages
+        if (i == end || end - i > 9) return Integer.parseInt(decode(start, end));
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(decode(start, end));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a range of the buffer.
+     *
+     * @param start the first byte
+     * @param end   the byte after the last byte
+     * @return the decoded string
+     */
+    private String decode(int start, int end) {
+        if (buffer.hasArray())
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        // A mapped file has no array, so the bytes of the string are copied out first
+        if (end - start > scratch.length) scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        buffer.get(start, scratch, 0, end - start);
+        return new String(scratch, 0, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a range of the buffer stripped of white space, the way String.strip() does.
+     *
+     * @param start the first byte
+     * @param end   the byte after the last byte
+     * @return the stripped string
+     */
+    private String stripped(int start, int end) {
+        ByteBuffer bytes = buffer;
+        while (start < end && isStripSpace(bytes.get(start))) start++;
+        while (end > start && isStripSpace(bytes.get(end - 1))) end--;
+        // Non-ASCII white space at either end is left to String.strip()
+        if (start < end && (bytes.get(start) < 0 || bytes.get(end - 1) < 0)) return decode(start, end).strip();
+        return decode(start, end);
+    }
+
+    /**
+     * Checks if an ASCII byte is white space for String.strip().
+     *
+     * @param b the byte
+     * @return true if the byte is white space, false otherwise
+     */
+    private static boolean isStripSpace(byte b) {
+        return b >= 0 && Character.isWhitespace(b);
+    }
+
+    /**
+     * Checks if a byte is white space for the \s class of a regular expression.
+     *
+     * @param b the byte
+     * @return true if the byte is white space, false otherwise
+     */
+    private static boolean isRegexSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    /**
+     * Returns the offset in the input of the next line.
+     *
+     * @return the offset of the first byte not consumed yet
+     */
+    public long offset() {
+        return bufferOffset + buffer.position();
+    }
+
+    /**
+     * Closes the channel.
+     */
+    @Override
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fields holds the ranges of the fields of a split, reused from line to line.
+     */
+    private static final class Fields {
+        // The first byte of each field
+        private int[] starts = new int[8];
+        // The byte after each field
+        private int[] ends = new int[8];
+        // The number of fields, or -1 if nothing has been split
+        private int count = -1;
+        // Whether the last split found a separator
+        private boolean separated;
+
+        /**
+         * Splits a range around a separator, dropping trailing empty fields as String.split() does.
+         * A range without the separator is a single field, even when it is empty.
+         *
+         * @param bytes     the buffer
+         * @param start     the first byte of the range
+         * @param end       the byte after the range
+         * @param separator the separator
+         */
+        void split(ByteBuffer bytes, int start, int end, byte separator) {
+            count = 0;
+            separated = false;
+            int fieldStart = start;
+            for (int i = start; i < end; i++) {
+                if (bytes.get(i) == separator) {
+                    add(fieldStart, i);
+                    fieldStart = i + 1;
+                    separated = true;
+                }
+            }
+            add(fieldStart, end);
+            if (separated)
+                while (count > 0 && starts[count - 1] == ends[count - 1]) count--;
+        }
+
+        /**
+         * Adds a field.
+         *
+         * @param start the first byte of the field
+         * @param end   the byte after the field
+         */
+        private void add(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count++] = end;
+        }
+
+        /**
+         * Checks that a field exists, failing the way an array access does.
+         *
+         * @param index the index of the field
+         * @throws ArrayIndexOutOfBoundsException if there is no such field
+         */
+        void check(int index) {
+            if (index < 0 || index >= count)
+                throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + Math.max(count, 0));
+        }
+    }
+}
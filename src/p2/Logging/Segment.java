@@ -1,21 +1,28 @@
 package p2.Logging;
 
+import p2.Enums.Action;
 import p2.Enums.Light;
 import p2.Enums.ObjectType;
+import p2.Enums.RSStatus;
+import p2.Events.CFOSEvent;
 import p2.Events.Event;
 import p2.Events.LightEvent;
 import p2.Events.OccupiedEvent;
+import p2.Interfaces.ClockView;
 
 /**
  * Represents a segment of a route in the train management system.
  * A segment is a section of a route between two stations.
  * Each segment has a traffic light that controls the flow of trains.
+ * The status, the light colour and the occupying train of a segment are packed into one slot of a
+ * SegmentStateTable, and every change to them is a single atomic transition of that slot.
  */
 public class Segment extends AbstractEntity implements Comparable<Segment> {
     private final Station segmentStart; // The start station of this segment
     private final Station segmentEnd; // The end station of this segment
-    private TrafficLight trafficLight = new TrafficLight(); // The traffic light associated with this segment
-    private Train currentTrain; // The train currently in this segment
+    private final SegmentStateTable table; // The table holding the state of this segment
+    private final int slot; // The slot of the table holding the state of this segment
+    private TrafficLight trafficLight; // The traffic light associated with this segment
     private final ObjectType type = ObjectType.Segment_; // The type of this object
 
     // Constructor
@@ -28,9 +35,26 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
      * @param sEnd  the name of the end station
      */
     public Segment(String name, String start, String sEnd) {
-        super(name);
-        segmentStart = new Station(start);
-        segmentEnd = new Station(sEnd);
+        this(name, start, sEnd, ClockView.STOPPED, new SegmentStateTable());
+    }
+
+    /**
+     * Constructs a new Segment with the given name, start station, and end station
+     * that reads the time from the given clock.
+     *
+     * @param name  the name of the segment
+     * @param start the name of the start station
+     * @param sEnd  the name of the end station
+     * @param clock the clock shared by the train system the segment belongs to
+     * @param table the table holding the state of the segments of the train system
+     */
+    public Segment(String name, String start, String sEnd, ClockView clock, SegmentStateTable table) {
+        super(name, clock);
+        segmentStart = new Station(start, clock);
+        segmentEnd = new Station(sEnd, clock);
+        this.table = table;
+        this.slot = table.allocate();
+        this.trafficLight = new TrafficLight(table, slot);
     }
 
     // Getter methods
@@ -59,10 +83,12 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
 
     /**
      * This method is used to set the traffic light of the segment.
+     * The colour of the light moves into the slot of the segment.
      *
      * @param trafficLight the traffic light of the segment
      */
     public void setTrafficLight(TrafficLight trafficLight) {
+        trafficLight.bind(table, slot);
         this.trafficLight = trafficLight;
     }
 
@@ -79,11 +105,55 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
     // Setter methods
 
     public Train getCurrentTrain() {
-        return currentTrain;
+        return table.occupant(slot);
     }
 
     public void setCurrentTrain(Train currentTrain) {
-        this.currentTrain = currentTrain;
+        table.setOccupant(slot, currentTrain);
+    }
+
+    // Status methods
+
+    /**
+     * Retrieves the status of the segment from its slot.
+     *
+     * @return the status of the segment
+     */
+    @Override
+    public RSStatus getStatus() {
+        return table.status(slot);
+    }
+
+    /**
+     * Sets the status of the segment in its slot.
+     *
+     * @param status the new status of the segment
+     */
+    @Override
+    public void setStatus(RSStatus status) {
+        table.setStatus(slot, status);
+    }
+
+    /**
+     * Closes the segment.
+     *
+     * @return Event - an instance of CFOSEvent indicating the segment has been closed
+     */
+    @Override
+    public Event close() {
+        setStatus(RSStatus.ClosedForMaintenance);
+        return new CFOSEvent(this.getName(), getCurrentTime(), Action.Close);
+    }
+
+    /**
+     * Opens the segment.
+     *
+     * @return Event - an instance of CFOSEvent indicating the segment has been opened
+     */
+    @Override
+    public Event open() {
+        setStatus(RSStatus.Open);
+        return new CFOSEvent(this.getName(), getCurrentTime(), Action.Open);
     }
 
     // Methods related to traffic light
@@ -93,8 +163,7 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
      * It delegates the change operation to the TrafficLight object.
      */
     public Event changeLight(int time) {
-        Light currentColor = trafficLight.getColour();
-        trafficLight.change();
+        Light currentColor = table.changeLight(slot);
         Light toColor = (currentColor == Light.RED) ? Light.GREEN : Light.RED;
         return new LightEvent(this.getName(), time, currentColor, toColor);
     }
@@ -106,7 +175,7 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
      * It can be either Light.RED or Light.GREEN.
      */
     public Light lightColour() {
-        return this.trafficLight.getColour();
+        return table.light(slot);
     }
 
     // Methods related to train
@@ -117,32 +186,33 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
      * @return true if the segment has a Train, false otherwise
      */
     public boolean hasTrain() {
-        return currentTrain != null;
+        return table.isOccupied(slot);
     }
 
     /**
-     * Accepts a Train by setting the currentTrain to the given Train.
+     * Accepts a Train in one atomic transition from an empty, open segment with a green light.
      * If the segment already has a Train, an IllegalStateException is thrown.
      *
      * @param train the Train to be accepted
      * @throws IllegalStateException if the segment already has a Train
      */
     public Event acceptTrain(Train train, int time) {
-        if (!hasTrain() && isOpen() && trafficLight.isGreen()) setCurrentTrain(train);
-        else throw new IllegalStateException("Train already in segment.");
+        if (!table.accept(slot, train))
+            throw new IllegalStateException("Train already in segment.");
         return new OccupiedEvent(this.getName(), time, train.getName(), true);
     }
 
     /**
-     * Releases the current Train.
+     * Releases the current Train in one atomic transition.
      * If the segment does not have a Train, an IllegalStateException is thrown.
      *
      * @throws IllegalStateException if the segment does not have a Train
      */
     public Event releaseTrain(int time) {
-        String trainName = currentTrain.getName();
-        if (hasTrain() && segmentEnd.isOpen()) setCurrentTrain(null);
-        else throw new IllegalStateException("No train in segment.");
+        Train train = getCurrentTrain();
+        String trainName = train.getName();
+        if (!segmentEnd.isOpen() || !table.release(slot, train))
+            throw new IllegalStateException("No train in segment.");
         return new OccupiedEvent(this.getName(), time, trainName, false);
     }
 
@@ -182,10 +252,12 @@ public class Segment extends AbstractEntity implements Comparable<Segment> {
      */
     @Override
     public String toString() {
+        // The train is named rather than printed, so that the segment does not verify the train too
+        Train train = getCurrentTrain();
         return "Segment [name=" + getName() + ", segmentStart=" + (segmentStart == null ? "none" : segmentStart.getName())
                 + ", segmentEnd=" + (segmentEnd == null ? "none" : segmentEnd.getName()) + ", status="
                 + getStatus().getDescription() + ", trafficLight=" + trafficLight + ", train="
-                + (getCurrentTrain() == null ? "none" : getCurrentTrain()) + ", verified=" + (verify() ? "Yes" : "No") + "]";
+                + (train == null ? "none" : train.getName()) + ", verified=" + (verify() ? "Yes" : "No") + "]";
     }
 
     // Comparable method
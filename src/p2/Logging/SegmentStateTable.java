@@ -0,0 +1,269 @@
+package p2.Logging;
+
+import p2.Enums.Light;
+import p2.Enums.RSStatus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SegmentStateTable holds the mutable state of a set of segments packed into one word per segment.
+ * Each word holds the status of the segment, the colour of its traffic light and the id of the train occupying it,
+ * so that every change to a segment is a single compare-and-set and trains can be moved from several threads
+ * without locks.
+ * <p>
+ * Layout of a word: bit 0 is set when the segment is closed for maintenance, bit 1 is set when the light is red,
+ * and the upper 32 bits hold the id of the occupying train, or 0 when the segment is empty.
+ */
+public final class SegmentStateTable {
+    // The number of slots in each page of the table
+    private static final int PAGE_SIZE = 256;
+    // The bit set when the segment is closed for maintenance
+    private static final long CLOSED = 1L;
+    // The bit set when the traffic light is red
+    private static final long RED = 1L << 1;
+    // The bits holding the status and the light
+    private static final long FLAGS = CLOSED | RED;
+    // The shift of the occupant id within a word
+    private static final int OCCUPANT_SHIFT = 32;
+
+    // The pages of the table; pages are never replaced, so a slot keeps its word when the table grows
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+    // The number of slots handed out
+    private int size;
+    // The trains currently occupying a segment, by id, each with the number of slots it occupies
+    private final ConcurrentHashMap<Integer, Occupant> occupants = new ConcurrentHashMap<>();
+
+    /**
+     * Hands out a new slot. A new slot is open, has a green light and no train.
+     *
+     * @return the index of the slot
+     */
+    public synchronized int allocate() {
+        if (size == pages.length * PAGE_SIZE) {
+            AtomicLongArray[] grown = new AtomicLongArray[pages.length + 1];
+            System.arraycopy(pages, 0, grown, 0, pages.length);
+            grown[pages.length] = new AtomicLongArray(PAGE_SIZE);
+            pages = grown;
+        }
+        return size++;
+    }
+
+    /**
+     * Returns the number of slots handed out.
+     *
+     * @return the number of slots
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the page holding a slot.
+     *
+     * @param slot the index of the slot
+     * @return the page holding the slot
+     */
+    private AtomicLongArray page(int slot) {
+        return pages[slot / PAGE_SIZE];
+    }
+
+    /**
+     * Returns the packed word of a slot.
+     *
+     * @param slot the index of the slot
+     * @return the packed word
+     */
+    long word(int slot) {
+        return page(slot).get(slot % PAGE_SIZE);
+    }
+
+    /**
+     * Replaces the word of a slot if it still holds the expected value.
+     *
+     * @param slot     the index of the slot
+     * @param expected the word the slot is expected to hold
+     * @param update   the new word
+     * @return true if the word was replaced, false if another thread changed it first
+     */
+    private boolean compareAndSet(int slot, long expected, long update) {
+        return page(slot).compareAndSet(slot % PAGE_SIZE, expected, update);
+    }
+
+    /**
+     * Returns the status held in a slot.
+     *
+     * @param slot the index of the slot
+     * @return the status of the segment
+     */
+    public RSStatus status(int slot) {
+        return (word(slot) & CLOSED) == 0 ? RSStatus.Open : RSStatus.ClosedForMaintenance;
+    }
+
+    /**
+     * Returns the colour of the light held in a slot.
+     *
+     * @param slot the index of the slot
+     * @return the colour of the traffic light
+     */
+    public Light light(int slot) {
+        return (word(slot) & RED) == 0 ? Light.GREEN : Light.RED;
+    }
+
+    /**
+     * Checks if a train occupies the segment of a slot, from the word alone.
+     *
+     * @param slot the index of the slot
+     * @return true if the segment holds a train, false if it is empty
+     */
+    public boolean isOccupied(int slot) {
+        return (word(slot) >>> OCCUPANT_SHIFT) != 0;
+    }
+
+    /**
+     * Returns the train occupying the segment of a slot.
+     * A train is registered before it is put in a slot and forgotten only after it has left it, so a slot that holds
+     * the id of a train always finds the train.
+     *
+     * @param slot the index of the slot
+     * @return the occupying train, or null if the segment is empty
+     */
+    public Train occupant(int slot) {
+        int id = (int) (word(slot) >>> OCCUPANT_SHIFT);
+        if (id == 0) return null;
+        Occupant occupant = occupants.get(id);
+        return occupant == null ? null : occupant.train;
+    }
+
+    /**
+     * Sets the status held in a slot.
+     *
+     * @param slot   the index of the slot
+     * @param status the new status
+     */
+    public void setStatus(int slot, RSStatus status) {
+        long word;
+        do {
+            word = word(slot);
+        } while (!compareAndSet(slot, word, status == RSStatus.Open ? word & ~CLOSED : word | CLOSED));
+    }
+
+    /**
+     * Sets the colour of the light held in a slot.
+     *
+     * @param slot   the index of the slot
+     * @param colour the new colour
+     */
+    public void setLight(int slot, Light colour) {
+        long word;
+        do {
+            word = word(slot);
+        } while (!compareAndSet(slot, word, colour == Light.RED ? word | RED : word & ~RED));
+    }
+
+    /**
+     * Switches the light held in a slot to the other colour.
+     *
+     * @param slot the index of the slot
+     * @return the colour of the light before the change
+     */
+    public Light changeLight(int slot) {
+        long word;
+        do {
+            word = word(slot);
+        } while (!compareAndSet(slot, word, word ^ RED));
+        return (word & RED) == 0 ? Light.GREEN : Light.RED;
+    }
+
+    /**
+     * Puts a train in the segment of a slot, whether or not it is free.
+     *
+     * @param slot  the index of the slot
+     * @param train the train to put in the segment, or null to empty it
+     */
+    public void setOccupant(int slot, Train train) {
+        long occupant = train == null ? 0 : (long) train.getId() << OCCUPANT_SHIFT;
+        // The new train is registered before it is in the slot, and before the previous one is dropped, in case they
+        // are the same
+        if (train != null) hold(train);
+        long word;
+        do {
+            word = word(slot);
+        } while (!compareAndSet(slot, word, (word & FLAGS) | occupant));
+        int previous = (int) (word >>> OCCUPANT_SHIFT);
+        if (previous != 0) drop(previous);
+    }
+
+    /**
+     * Puts a train in the segment of a slot if the segment is open, its light is green and it is empty.
+     *
+     * @param slot  the index of the slot
+     * @param train the train entering the segment
+     * @return true if the train entered the segment, false otherwise
+     */
+    public boolean accept(int slot, Train train) {
+        // The train is registered before it is in the slot, so that a reader that sees its id finds it
+        hold(train);
+        if (compareAndSet(slot, 0L, (long) train.getId() << OCCUPANT_SHIFT)) return true;
+        drop(train.getId());
+        return false;
+    }
+
+    /**
+     * Empties the segment of a slot if it still holds the given train.
+     *
+     * @param slot  the index of the slot
+     * @param train the train leaving the segment
+     * @return true if the train left the segment, false if it was not there
+     */
+    public boolean release(int slot, Train train) {
+        long word;
+        do {
+            word = word(slot);
+            if ((int) (word >>> OCCUPANT_SHIFT) != train.getId()) return false;
+        } while (!compareAndSet(slot, word, word & FLAGS));
+        drop(train.getId());
+        return true;
+    }
+
+    /**
+     * Counts one more slot occupied by a train.
+     *
+     * @param train the train
+     */
+    private void hold(Train train) {
+        occupants.compute(train.getId(), (id, occupant) -> {
+            if (occupant == null) return new Occupant(train);
+            occupant.slots++;
+            return occupant;
+        });
+    }
+
+    /**
+     * Counts one slot fewer occupied by a train, forgetting the train once it occupies none.
+     *
+     * @param id the id of the train
+     */
+    private void drop(int id) {
+        occupants.computeIfPresent(id, (key, occupant) -> --occupant.slots == 0 ? null : occupant);
+    }
+
+    /**
+     * Occupant is a train that occupies at least one slot of the table.
+     */
+    private static final class Occupant {
+        // The train
+        private final Train train;
+        // The number of slots the train occupies; only changed inside a compute of the map
+        private int slots = 1;
+
+        /**
+         * Constructs the occupant of one slot.
+         *
+         * @param train the train
+         */
+        Occupant(Train train) {
+            this.train = train;
+        }
+    }
+}
@@ -1,28 +1,109 @@
 package p2.Logging;
 
+import p2.Enums.Action;
+import p2.Enums.EngineMode;
+import p2.Enums.SectionType;
 import p2.Enums.SimulatorStatus;
+import p2.EventScheduler;
 import p2.Events.Event;
+import p2.Interfaces.ScenarioSource;
+import p2.TrainRegistration;
 import p2.TrainSystem;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 public class Simulator extends Logable {
+    // The first bytes of every checkpoint: "ATMC"
+    private static final int CHECKPOINT_MAGIC = 0x41544D43;
+    // The version of the checkpoint layout, changed whenever the layout or the order of the enums it stores changes
+    private static final int CHECKPOINT_VERSION = 2;
+
     private TrainSystem trainSystem = new TrainSystem();
     private SimulatorStatus status = SimulatorStatus.Uninitialised;
+    private EngineMode engineMode = EngineMode.TickByTick;
+    private final EventScheduler scheduler = new EventScheduler();
     private ArrayList<String> flaggedEvents = new ArrayList<>();
     private int nextTimeInstance = 0;
-    private Scanner scanner;
+    // Reads the time instance blocks after the first one ahead of the simulation
+    private ScenarioPrefetcher prefetcher;
+    // The time spent reading the first time instance, in nanoseconds
+    private long loadNanos;
+    // The number of bytes read for the first time instance
+    private long loadBytes;
+    // The scenario file the time instance blocks are read from, or null if they come from another source
     private String initialisationFile;
+    // The checksum of the scenario file, computed by the first checkpoint that needs it, or -1
+    private long scenarioChecksum = -1;
+    // The offset in the scenario file of the first byte the prefetcher reads
+    private long sourceBase;
+    // The number of events logged before the checkpoint the simulator was resumed from
+    private long logOffset;
+    // Set by stop() to end a running simulation after the current time instant
+    private volatile boolean stopRequested;
+    // The number of time instants simulate() has executed, leaving out those the event-driven engine skipped
+    private long executedInstants;
+    // Whether simulate() ended because no time instant could change the event log while the system was working
+    private boolean stalled;
+    // Whether simulate() is running
+    private volatile boolean running;
+    // Whether simulate() returned because of stop(), so that calling it again continues the simulation
+    private boolean paused;
+    // The journal every logged event is also written to, or null
+    private EventJournal journal;
 
     public Simulator(String initialisationFile) throws FileNotFoundException {
         initialise(initialisationFile);
         status = SimulatorStatus.Initialised;
     }
 
+    /**
+     * Constructs a simulator from a network snapshot compiled from a scenario file.
+     * The first time instance is loaded from the snapshot, and the later ones are read from the scenario file.
+     *
+     * @param snapshotFile       The path to the snapshot, written by NetworkSnapshot.compile().
+     * @param initialisationFile The path to the scenario file the snapshot was compiled from.
+     * @throws FileNotFoundException    If either file is not found.
+     * @throws IllegalArgumentException If the snapshot file is not a snapshot of this version.
+     * @throws IllegalStateException    If the scenario file has changed since the snapshot was compiled.
+     */
+    public Simulator(String snapshotFile, String initialisationFile) throws FileNotFoundException {
+        NetworkSnapshot snapshot = NetworkSnapshot.load(snapshotFile);
+        snapshot.checkScenario(initialisationFile);
+        for (ScenarioSection section : snapshot.getSections()) applySection(section);
+        if (snapshot.getTimeInstance() >= 0) nextTimeInstance = snapshot.getTimeInstance();
+        prefetch(initialisationFile, snapshot.getOffset());
+        status = SimulatorStatus.Initialised;
+    }
+
+    /**
+     * Constructs a simulator that reads its scenario from a source, such as the standard input, a queue of lines
+     * or a file that is still being written. The first time instance is applied before the constructor returns,
+     * and the later ones are read on a background thread ahead of the simulation.
+     *
+     * @param source The source of the scenario.
+     * @throws UncheckedIOException If the source cannot be read.
+     */
+    public Simulator(ScenarioSource source) {
+        nextTimeInstance = trainSystem.getCurrentTime();
+        prefetch(source);
+        if (isBlockDue()) applyBlock(prefetcher.takeBlock());
+        status = SimulatorStatus.Initialised;
+    }
+
     public Simulator(TrainSystem trainSystem) {
         status = SimulatorStatus.Initialised;
         this.trainSystem = trainSystem;
@@ -40,9 +121,97 @@ public class Simulator extends Logable {
             return;
         }
 
-        File file = new File(initialisationFile);
-        scanner = new Scanner(file);  // Assigning scanner at the class level
-        processInitialisationFile(scanner, trainSystem.getCurrentTime());
+        long offset;
+        ScenarioLoader loader = ScenarioLoader.open(initialisationFile);
+        if (loader == null) {
+            // Too large to be mapped, so the time instance is read line by line
+            try (ScenarioTokenizer tokenizer = ScenarioTokenizer.open(initialisationFile)) {
+                processInitialisationFile(tokenizer, trainSystem.getCurrentTime());
+                offset = tokenizer.offset();
+            }
+        } else {
+            offset = loadInitialisationFile(loader, trainSystem.getCurrentTime());
+        }
+        prefetch(initialisationFile, offset);
+    }
+
+    /**
+     * Starts reading the time instance blocks of a source ahead of the simulation.
+     * The lines before the first time instance line of the source belong to the next time instance.
+     *
+     * @param source The source of the blocks.
+     */
+    private void prefetch(ScenarioSource source) {
+        if (prefetcher != null) prefetcher.close();
+        prefetcher = new ScenarioPrefetcher(source, nextTimeInstance, ScenarioPrefetcher.DEFAULT_CAPACITY);
+        initialisationFile = null;
+        sourceBase = 0;
+    }
+
+    /**
+     * Starts reading the time instance blocks of a scenario file ahead of the simulation.
+     *
+     * @param initialisationFile The path to the scenario file.
+     * @param offset             The offset of the first line to read.
+     */
+    private void prefetch(String initialisationFile, long offset) {
+        prefetch(new FileScenarioSource(initialisationFile, offset));
+        this.initialisationFile = initialisationFile;
+        this.scenarioChecksum = -1;
+        this.sourceBase = offset;
+    }
+
+    /**
+     * Checks if the scenario has a time instance block the simulation has not reached yet. It waits for the source
+     * only if the blocks read so far do not tell whether another one follows.
+     *
+     * @return True if there is such a block.
+     */
+    private boolean hasPendingBlock() {
+        return prefetcher != null && prefetcher.hasNextBlock();
+    }
+
+    /**
+     * Checks if the next time instance block of the scenario is due at the current time instant. It waits for the
+     * source only if the block is due and has not been read yet.
+     *
+     * @return True if the block must be applied now.
+     */
+    private boolean isBlockDue() {
+        return prefetcher != null && prefetcher.isDue(trainSystem.getCurrentTime());
+    }
+
+    /**
+     * Applies the sections of a time instance block in file order.
+     *
+     * @param block The block to apply.
+     * @throws RuntimeException The exception raised while reading the block, once its sections are applied.
+     */
+    private void applyBlock(ScenarioPrefetcher.Block block) {
+        for (ScenarioSection section : block.getSections()) applySection(section);
+        if (block.getFailure() != null) throw block.getFailure();
+    }
+
+    /**
+     * Loads the first time instance of the initialization file from its memory mapping, parsing large sections in
+     * parallel and applying every section in file order.
+     *
+     * @param loader       The loader over the mapped file.
+     * @param timeInstance The time instance to load.
+     * @return The offset in the file of the line after the time instance.
+     * @throws NumberFormatException If there is an issue with parsing numbers.
+     */
+    private long loadInitialisationFile(ScenarioLoader loader, int timeInstance) throws NumberFormatException {
+        long started = System.nanoTime();
+        try {
+            ScenarioSection section;
+            while ((section = loader.nextSection(timeInstance)) != null) applySection(section);
+            if (loader.getTimeInstance() >= 0) nextTimeInstance = loader.getTimeInstance();
+            loadBytes = loader.offset();
+            return loader.offset();
+        } finally {
+            loadNanos += System.nanoTime() - started;
+        }
     }
 
     /**
@@ -54,114 +223,138 @@ public class Simulator extends Logable {
         return status == SimulatorStatus.Uninitialised || status == SimulatorStatus.Initialised;
     }
 
+    /**
+     * Returns the rate at which the scenario has been read so far.
+     * The part of the file loaded from a network snapshot is not counted, and the time instance blocks read ahead
+     * of the simulation count the time spent waiting for their source.
+     *
+     * @return the load throughput in megabytes (10^6 bytes) per second, or 0 if nothing has been read
+     */
+    public double getLoadThroughput() {
+        long bytes = loadBytes + (prefetcher == null ? 0 : prefetcher.getBytesRead());
+        long nanos = loadNanos + (prefetcher == null ? 0 : prefetcher.getReadNanos());
+        if (nanos == 0) return 0;
+        return bytes / 1e6 / (nanos / 1e9);
+    }
+
     /**
      * Processes the initialization file to set up the simulation environment.
      *
      * @throws NumberFormatException  If there is an issue with parsing numbers.
      * @throws NoSuchElementException If the expected input format is not met.
      */
-    private void processInitialisationFile(Scanner scanner, int timeInstance) throws NumberFormatException, NoSuchElementException {
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine().trim();
-            if (line.isEmpty()) continue; // Skip empty lines
-            if (line.matches("^\\d+$")) { // Matches time instance lines
-                nextTimeInstance = Integer.parseInt(line);
-                if (nextTimeInstance != timeInstance) {
-                    // Reached the next time instance, stop processing
-                    return;
+    private void processInitialisationFile(ScenarioTokenizer tokenizer, int timeInstance) throws NumberFormatException, NoSuchElementException {
+        long started = System.nanoTime();
+        try {
+            while (tokenizer.hasNextLine()) {
+                tokenizer.nextLine();
+                if (tokenizer.isEmptyLine()) continue; // Skip empty lines
+                if (tokenizer.isTimeInstance()) { // Matches time instance lines
+                    nextTimeInstance = tokenizer.lineInt();
+                    if (nextTimeInstance != timeInstance) {
+                        // Reached the next time instance, stop processing
+                        return;
+                    }
+                } else {
+                    // Process the line
+                    processConfigurationLine(tokenizer);
                 }
-            } else {
-                // Process the line
-                processConfigurationLine(line, scanner);
             }
+        } finally {
+            loadNanos += System.nanoTime() - started;
+            loadBytes = tokenizer.getBytesRead();
         }
     }
 
     /**
      * Processes a single configuration line from the initialization file.
+     * The line is split into a key and a value on the first colon followed by any whitespace.
      *
-     * @param line    The line to process.
-     * @param scanner The scanner to read additional information from.
-     */
-    private void processConfigurationLine(String line, Scanner scanner) {
-        String[] parts = line.split(":\\s*"); // Split on colon followed by any whitespace
-        String key = parts[0];
-        String value = (parts.length > 1) ? parts[1] : null;
-
-        switch (key) {
-            case "Stations" -> processStations(value, scanner);
-            case "Segments" -> processSegments(value, scanner);
-            case "Routes" -> processRoutes(value, scanner);
-            case "Events" -> processEvents(value, scanner);
-            case "Trains" -> processTrains(value, scanner);
-            default -> {
-                // Handle unknown keys or lines here if necessary
-            }
+     * @param tokenizer The tokenizer positioned on the line, to read additional information from.
+     */
+    private void processConfigurationLine(ScenarioTokenizer tokenizer) {
+        tokenizer.splitKeyValue();
+        SectionType type = ScenarioSection.typeOf(tokenizer);
+        // Unknown keys or lines are ignored
+        if (type == null) return;
+        int size = ScenarioSection.sizeOf(tokenizer);
+        applySection(ScenarioSection.read(type, size, tokenizer, trainSystem.getCurrentTime()));
+    }
+
+    /**
+     * Applies the lines of a section of the configuration file to the train system, in file order.
+     *
+     * @param section The section to apply.
+     * @throws RuntimeException The exception raised while reading a line, once the lines before it are applied.
+     */
+    void applySection(ScenarioSection section) {
+        switch (section.getType()) {
+            case Stations -> processStations(section);
+            case Segments -> processSegments(section);
+            case Routes -> processRoutes(section);
+            case Events -> processEvents(section);
+            case Trains -> processTrains(section);
         }
     }
 
+    /**
+     * Throws the exception raised while reading a line, if there was one.
+     *
+     * @param entry The parsed line.
+     */
+    private static void checkEntry(ScenarioSection.Entry entry) {
+        if (entry.getFailure() != null) throw entry.getFailure();
+    }
+
     /**
      * Processes the 'Stations' part of the configuration file.
      *
-     * @param value   The string containing the number of stations to be processed.
-     * @param scanner The scanner to read the station information from.
+     * @param section The parsed station lines.
      */
-    private void processStations(String value, Scanner scanner) {
-        int numberOfStations = Integer.parseInt(value);
-        for (int i = 0; i < numberOfStations; i++) {
-            String stationName = scanner.nextLine().trim();
-            trainSystem.addStation(stationName.strip()); // Assumes addStation is a method in TrainSystem
+    private void processStations(ScenarioSection section) {
+        for (ScenarioSection.Entry entry : section.getEntries()) {
+            checkEntry(entry);
+            trainSystem.addStation(entry.getName()); // Assumes addStation is a method in TrainSystem
         }
     }
 
     /**
      * Processes the 'Segments' part of the configuration file.
      *
-     * @param value   The string containing the number of segments to be processed.
-     * @param scanner The scanner to read the segment information from.
+     * @param section The parsed segment lines.
      */
-    private void processSegments(String value, Scanner scanner) {
-        int numberOfSegments = Integer.parseInt(value);
-        for (int i = 0; i < numberOfSegments; i++) {
-            String segmentInfo = scanner.nextLine().trim();
-            String[] segmentParts = segmentInfo.split(":");
-            trainSystem.addSegment(segmentParts[0].strip(), segmentParts[1].strip(), segmentParts[2].strip()); // Assumes addSegment is a method in TrainSystem
+    private void processSegments(ScenarioSection section) {
+        for (ScenarioSection.Entry entry : section.getEntries()) {
+            checkEntry(entry);
+            trainSystem.addSegment(entry.getName(), entry.getFirst(), entry.getSecond()); // Assumes addSegment is a method in TrainSystem
         }
     }
 
     /**
      * Processes the 'Routes' part of the configuration file.
      *
-     * @param value   The string containing the number of routes to be processed.
-     * @param scanner The scanner to read the route information from.
-     */
-    private void processRoutes(String value, Scanner scanner) {
-        int numberOfRoutes = Integer.parseInt(value);
-        for (int i = 0; i < numberOfRoutes; i++) {
-            String routeInfo = scanner.nextLine().trim();
-            String[] routeParts = routeInfo.split(":");
-            boolean isRoundTrip = Boolean.parseBoolean(routeParts[1]);
-            String[] segments = routeParts[2].split(";");
-            trainSystem.addRoute(routeParts[0].strip(), isRoundTrip, segments); // Assumes addRoute is a method in TrainSystem
+     * @param section The parsed route lines.
+     */
+    private void processRoutes(ScenarioSection section) {
+        for (ScenarioSection.Entry entry : section.getEntries()) {
+            checkEntry(entry);
+            trainSystem.addRoute(entry.getName(), entry.getFlag(), entry.getList()); // Assumes addRoute is a method in TrainSystem
         }
     }
 
     /**
      * Processes the 'Events' part of the configuration file.
      *
-     * @param value   The string containing the number of events to be processed.
-     * @param scanner The scanner to read the event information from.
+     * @param section The parsed event lines.
      */
-    private void processEvents(String value, Scanner scanner) {
-        int numberOfEvents = Integer.parseInt(value);
-        for (int i = 0; i < numberOfEvents; i++) {
-            String eventInfo = scanner.nextLine().trim();
-            String[] eventParts = eventInfo.split(":");
+    private void processEvents(ScenarioSection section) {
+        for (ScenarioSection.Entry entry : section.getEntries()) {
+            checkEntry(entry);
             // Assumes methods for opening and closing stations, segments, and routes exist in TrainSystem
-            if (eventParts[0].strip().equals("Open")) {
-                processOpenEvent(eventParts);
-            } else if (eventParts[0].strip().equals("Close")) {
-                processCloseEvent(eventParts);
+            if (entry.getAction() == Action.Open) {
+                processOpenEvent(entry);
+            } else if (entry.getAction() == Action.Close) {
+                processCloseEvent(entry);
             }
         }
     }
@@ -169,54 +362,50 @@ public class Simulator extends Logable {
     /**
      * Processes an 'Open' event for a station, segment, or route.
      *
-     * @param eventParts The parts of the event information.
-     * @throws IllegalArgumentException If the event type is unknown.
+     * @param entry The parsed event line.
      */
-    private void processOpenEvent(String[] eventParts) {
-        switch (eventParts[1].strip()) {
-            case "Station" -> addToLog(trainSystem.openStation(eventParts[2].strip()));
-            case "Segment" -> addToLog(trainSystem.openSegment(eventParts[2].strip()));
-            case "Route" -> addToLog(trainSystem.openRoute(eventParts[2].strip()));
-            default -> throw new IllegalArgumentException("Unknown event type for 'Open': " + eventParts[1]);
-
+    private void processOpenEvent(ScenarioSection.Entry entry) {
+        switch (entry.getTarget()) {
+            case Station_ -> addToLog(trainSystem.openStation(entry.getName()));
+            case Segment_ -> addToLog(trainSystem.openSegment(entry.getName()));
+            case Route_ -> addToLog(trainSystem.openRoute(entry.getName()));
+            default -> throw new IllegalArgumentException("Unknown event type for 'Open': " + entry.getTarget());
         }
     }
 
     /**
      * Processes a 'Close' event for a station, segment, or route.
      *
-     * @param eventParts The parts of the event information.
-     * @throws IllegalArgumentException If the event type is unknown.
+     * @param entry The parsed event line.
      */
-    private void processCloseEvent(String[] eventParts) {
-        switch (eventParts[1].strip()) {
-            case "Station" -> addToLog(trainSystem.closeStation(eventParts[2].strip()));
-            case "Segment" -> addToLog(trainSystem.closeSegment(eventParts[2].strip()));
-            case "Route" -> addToLog(trainSystem.closeRoute(eventParts[2].strip()));
-            default -> throw new IllegalArgumentException("Unknown event type for 'Close': " + eventParts[1]);
+    private void processCloseEvent(ScenarioSection.Entry entry) {
+        switch (entry.getTarget()) {
+            case Station_ -> addToLog(trainSystem.closeStation(entry.getName()));
+            case Segment_ -> addToLog(trainSystem.closeSegment(entry.getName()));
+            case Route_ -> addToLog(trainSystem.closeRoute(entry.getName()));
+            default -> throw new IllegalArgumentException("Unknown event type for 'Close': " + entry.getTarget());
         }
     }
 
     /**
      * Processes the 'Trains' part of the configuration file.
      *
-     * @param value   The string containing the number of trains to be processed.
-     * @param scanner The scanner to read the train information from.
-     */
-    private void processTrains(String value, Scanner scanner) {
-        int numberOfTrains = Integer.parseInt(value);
-        for (int i = 0; i < numberOfTrains; i++) {
-            String trainInfo = scanner.nextLine().trim();
-            String[] trainParts = trainInfo.split(":");
-            String[] stops = trainParts[3].split(";");
-            // Check the sops if it is equal to an empty string or "all" register the train with an empty array
-            if ((stops.length == 0 || stops[0].strip().equals("all")) && trainSystem.getCurrentTime() > 0) {
-                trainSystem.registerTrain(trainParts[0].strip(), trainParts[2].strip(), new String[0]);
-            } else if (trainSystem.getCurrentTime() > 0) {
-                trainSystem.registerTrain(trainParts[0].strip(), trainParts[2].strip(), stops);
-            } else if (trainSystem.getCurrentTime() == 0) {
-                trainSystem.addTrain(trainParts[0].strip(), Integer.parseInt(trainParts[1]));
+     * @param section The parsed train lines.
+     */
+    private void processTrains(ScenarioSection section) {
+        // Registrations of the block are applied together once the block has been read
+        List<TrainRegistration> registrations = new ArrayList<>();
+        try {
+            for (ScenarioSection.Entry entry : section.getEntries()) {
+                checkEntry(entry);
+                if (entry.isRegistration()) {
+                    registrations.add(new TrainRegistration(entry.getName(), entry.getFirst(), entry.getList()));
+                } else if (entry.getName() != null) {
+                    trainSystem.addTrain(entry.getName(), entry.getNumber());
+                }
             }
+        } finally {
+            if (!registrations.isEmpty()) trainSystem.registerTrains(registrations);
         }
     }
 
@@ -236,8 +425,8 @@ public class Simulator extends Logable {
      */
     @Override
     public boolean validate() {
-        // Ensure currentTime is not null and is non-negative
-        return trainSystem.getCurrentTime() >= 0;
+        // Ensure currentTime is not null and is non-negative, and that the event log is valid
+        return trainSystem.getCurrentTime() >= 0 && super.validate();
     }
 
     /**
@@ -258,6 +447,67 @@ public class Simulator extends Logable {
         this.status = status;
     }
 
+    /**
+     * Returns the engine mode used to move the clock forward.
+     *
+     * @return the engine mode
+     */
+    public EngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    /**
+     * Sets the engine mode used to move the clock forward.
+     * In EventDriven mode the clock skips every time instant at which nothing can happen, and the simulation
+     * stops once no instant can change the event log any more.
+     *
+     * @param engineMode the engine mode to set
+     */
+    public void setEngineMode(EngineMode engineMode) {
+        this.engineMode = engineMode;
+    }
+
+    /**
+     * Sets how many threads advance the trains of the system.
+     * Trains on parts of the network that share no segment or station are advanced in parallel, and the event
+     * log is the same as with a single thread.
+     *
+     * @param parallelism the number of threads, 1 to advance the trains on the simulation thread
+     * @throws IllegalArgumentException if the parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        trainSystem.setParallelism(parallelism);
+    }
+
+    /**
+     * Returns the time instant the simulation has reached.
+     *
+     * @return the current time of the train system
+     */
+    public int getCurrentTime() {
+        return trainSystem.getCurrentTime();
+    }
+
+    /**
+     * Returns the number of time instants this simulator has executed. The time instants the event-driven engine
+     * skipped are not counted, and neither are those executed before the checkpoint the simulator was resumed from.
+     *
+     * @return the number of time instants executed
+     */
+    public long getExecutedInstants() {
+        return executedInstants;
+    }
+
+    /**
+     * Checks if the simulation stalled: the event-driven engine found no time instant that could change the event log
+     * any more, while the train system was still working, so simulate() returned before the simulation finished.
+     *
+     * @return true if the simulation stalled, false otherwise
+     */
+    public boolean isStalled() {
+        return stalled;
+    }
+
     /**
      * Checks if the simulation is finished.
      *
@@ -271,20 +521,26 @@ public class Simulator extends Logable {
      * Simulates the operation of the system.
      */
     public void simulate() throws FileNotFoundException {
+        boolean resuming = paused;
+        paused = false;
+        running = true;
         try {
-            if (isFinished() || getStatus() != SimulatorStatus.Initialised) {
+            if (!resuming && (isFinished() || getStatus() != SimulatorStatus.Initialised)) {
                 throw new IllegalStateException("Simulation is either finished or not initialised.");
             }
 
-            // Start the simulation
-            setStatus(SimulatorStatus.Working);
-            // Start the system
-            trainSystem.setToWorking();
-            while (getStatus() == SimulatorStatus.Working || scanner.hasNextLine()) {
+            if (!resuming) {
+                // Start the simulation
+                setStatus(SimulatorStatus.Working);
+                // Start the system
+                trainSystem.setToWorking();
+            }
+            while (getStatus() == SimulatorStatus.Working || hasPendingBlock()) {
                 trainSystem.incrementTime();
+                executedInstants++;
 
-                if (scanner.hasNextLine() && nextTimeInstance == trainSystem.getCurrentTime()) {
-                    processInitialisationFile(scanner, trainSystem.getCurrentTime());
+                if (isBlockDue()) {
+                    applyBlock(prefetcher.takeBlock());
                 }
                 // tell the trainSystem to advance
                 ArrayList<Event> events = (ArrayList<Event>) trainSystem.advance();
@@ -293,8 +549,7 @@ public class Simulator extends Logable {
                 for (Event e : events) {
                     if (e.getTime() != trainSystem.getCurrentTime())
                         flaggedEvents.add(e.toString());
-                    addToLog(e);
-                    addToLog(e.toString());  // Print each event descriptively as it occurs
+                    addToLog(e, true);  // Print each event descriptively as it occurs
 //                    System.out.println(e.toString());
                 }
 
@@ -303,32 +558,283 @@ public class Simulator extends Logable {
 
                 // Check if the system is finished
                 if (trainSystem.isFinished()) setStatus(SimulatorStatus.Finished);
+
+                // Skip the time instants at which nothing can happen
+                if (engineMode == EngineMode.EventDriven && !skipIdleInstants()) {
+                    stalled = getStatus() == SimulatorStatus.Working;
+                    break;
+                }
+
+                // Pause between two time instants, keeping the scenario open for the next call
+                if (stopRequested) {
+                    paused = true;
+                    return;
+                }
             }
         } finally {
-            if (scanner != null) {
-                scanner.close();
+            running = false;
+            stopRequested = false;
+            // The events of this call are on disk once it returns
+            if (journal != null) journal.flush();
+            // The threads that advance the trains are not needed once the run is over
+            if (!paused) trainSystem.shutdown();
+            if (!paused && prefetcher != null) {
+                prefetcher.close();
+                prefetcher = null;
             }
         }
     }
 
     /**
-     * Returns the current time.
+     * Adds an event to the log, and writes it to the journal if one is set.
+     *
+     * @param event the event, or null if an action was refused and produced no event
+     * @param print whether the event is also appended to the text log
+     */
+    @Override
+    public void addToLog(Event event, boolean print) {
+        super.addToLog(event, print);
+        if (event != null && journal != null) journal.append(event);
+    }
+
+    /**
+     * Starts writing the event log to a binary journal, closing the journal set before. The events already logged,
+     * such as those of the first time instance, which the constructor applies, are written first, and every event
+     * logged from now on follows them, so that the journal replays the whole log.
+     * The events are written by a thread of the journal, so the simulation does not wait for the disk; each call
+     * to simulate() returns once the events it logged are written. EventJournal.replay() and EventJournal.render()
+     * read the journal back.
+     *
+     * @param journalFile The path to the journal, replaced if it exists.
+     * @param force       Whether the events are forced to disk as they are written, so that they survive a crash of
+     *                    the machine.
+     * @throws IOException           If the journal cannot be created, or the journal set before cannot be closed.
+     * @throws IllegalStateException If the simulation is running.
+     */
+    public void setJournal(String journalFile, boolean force) throws IOException {
+        if (running) throw new IllegalStateException("Cannot set the journal of a running simulation.");
+        closeJournal();
+        journal = new EventJournal(journalFile, force);
+        for (Event event : events) journal.append(event);
+    }
+
+    /**
+     * Writes the events not written yet to the journal and closes it. Nothing is journaled afterwards.
+     *
+     * @throws IOException If the events cannot be written or the journal cannot be closed.
+     */
+    public void closeJournal() throws IOException {
+        if (journal == null) return;
+        EventJournal closing = journal;
+        journal = null;
+        closing.close();
+    }
+
+    /**
+     * Asks a running simulation to return after the current time instant. If the simulation is not running, the
+     * next call to simulate() returns after its first time instant.
+     * Calling simulate() again continues the simulation from where it stopped, and checkpoint() can save it in
+     * between.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Checks if the simulation was stopped before it finished.
+     *
+     * @return true if simulate() returned because of stop(), false otherwise
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Returns the number of events that had been logged before the checkpoint the simulator was resumed from.
+     * The log of a resumed simulator only holds the events logged after that checkpoint.
+     *
+     * @return the number of earlier events, or 0 if the simulator was not resumed from a checkpoint
+     */
+    public long getLogOffset() {
+        return logOffset;
+    }
+
+    /**
+     * Saves the simulation to a checkpoint file, from which resume() continues it with the same events.
+     * The checkpoint holds the state of the simulator and of the train system, the number of events logged so far
+     * and the position in the scenario of the next time instance block not applied yet, with the size and checksum of
+     * the scenario file so that resume() can tell that the file has not changed. The simulation must not
+     * be running: it is either not started, paused by stop(), or over.
+     *
+     * @param checkpointFile The path to the checkpoint to write.
+     * @throws IOException           If the checkpoint cannot be written.
+     * @throws IllegalStateException If the simulation is running.
+     */
+    public void checkpoint(String checkpointFile) throws IOException {
+        if (running) throw new IllegalStateException("Cannot checkpoint a running simulation.");
+        boolean pending = hasPendingBlock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Path.of(checkpointFile))))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeByte(status.ordinal());
+            out.writeByte(engineMode.ordinal());
+            out.writeBoolean(paused);
+            out.writeLong(logOffset + logSize());
+            out.writeInt(flaggedEvents.size());
+            for (String flagged : flaggedEvents) out.writeUTF(flagged);
+
+            if (initialisationFile != null && scenarioChecksum < 0)
+                scenarioChecksum = NetworkSnapshot.checksum(initialisationFile);
+            out.writeLong(initialisationFile == null ? -1 : NetworkSnapshot.size(initialisationFile));
+            out.writeLong(initialisationFile == null ? -1 : scenarioChecksum);
+            out.writeBoolean(pending);
+            out.writeInt(pending ? prefetcher.nextTime() : -1);
+            out.writeLong(sourceBase + (prefetcher == null ? 0 : prefetcher.nextOffset()));
+
+            trainSystem.writeCheckpoint(out);
+        }
+    }
+
+    /**
+     * Resumes a simulation from a checkpoint, reading the rest of the scenario from the file it was read from.
+     *
+     * @param checkpointFile     The path to the checkpoint, written by checkpoint().
+     * @param initialisationFile The path to the scenario file of the simulation.
+     * @return The simulator, which continues the simulation when simulate() is called.
+     * @throws FileNotFoundException    If either file is not found.
+     * @throws IllegalArgumentException If the checkpoint file is not a checkpoint of this version.
+     * @throws IllegalStateException    If the scenario file has changed since the checkpoint was written.
+     */
+    public static Simulator resume(String checkpointFile, String initialisationFile) throws FileNotFoundException {
+        Checkpoint checkpoint = readCheckpoint(checkpointFile);
+        // The size is compared first, as it is cheap and tells most changed files apart
+        long size = NetworkSnapshot.size(initialisationFile);
+        if (checkpoint.scenarioSize >= 0 && (checkpoint.scenarioSize != size
+                || checkpoint.scenarioChecksum != NetworkSnapshot.checksum(initialisationFile))) {
+            throw new IllegalStateException("The checkpoint was not written for " + initialisationFile);
+        }
+        if (checkpoint.pending) {
+            checkpoint.simulator.prefetch(initialisationFile, checkpoint.scenarioOffset);
+            // The file has just been checked against the checksum, so the next checkpoint need not compute it again
+            checkpoint.simulator.scenarioChecksum = checkpoint.scenarioChecksum;
+        }
+        return checkpoint.simulator;
+    }
+
+    /**
+     * Resumes a simulation from a checkpoint, reading the rest of the scenario from a source.
+     * The source must start with the lines of the scenario that follow the position stored in the checkpoint.
+     *
+     * @param checkpointFile The path to the checkpoint, written by checkpoint().
+     * @param source         The source of the rest of the scenario.
+     * @return The simulator, which continues the simulation when simulate() is called.
+     * @throws FileNotFoundException    If the checkpoint is not found.
+     * @throws IllegalArgumentException If the checkpoint file is not a checkpoint of this version.
+     */
+    public static Simulator resume(String checkpointFile, ScenarioSource source) throws FileNotFoundException {
+        Checkpoint checkpoint = readCheckpoint(checkpointFile);
+        checkpoint.simulator.prefetch(source);
+        return checkpoint.simulator;
+    }
+
+    /**
+     * Reads a checkpoint written by checkpoint().
+     *
+     * @param checkpointFile The path to the checkpoint.
+     * @return The simulator of the checkpoint, without a scenario to read from, and where the scenario continues.
+     * @throws FileNotFoundException    If the checkpoint is not found.
+     * @throws IllegalArgumentException If the file is not a checkpoint of this version.
+     */
+    private static Checkpoint readCheckpoint(String checkpointFile) throws FileNotFoundException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(checkpointFile))));
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(checkpointFile, e);
+        }
+        try (in) {
+            if (in.readInt() != CHECKPOINT_MAGIC)
+                throw new IllegalArgumentException(checkpointFile + " is not a simulation checkpoint");
+            int version = in.readInt();
+            if (version != CHECKPOINT_VERSION)
+                throw new IllegalArgumentException("Unsupported simulation checkpoint version: " + version);
+            SimulatorStatus status = SimulatorStatus.values()[in.readByte()];
+            EngineMode engineMode = EngineMode.values()[in.readByte()];
+            boolean paused = in.readBoolean();
+            long logOffset = in.readLong();
+            ArrayList<String> flaggedEvents = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) flaggedEvents.add(in.readUTF());
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.scenarioSize = in.readLong();
+            checkpoint.scenarioChecksum = in.readLong();
+            checkpoint.pending = in.readBoolean();
+            int nextTime = in.readInt();
+            checkpoint.scenarioOffset = in.readLong();
+
+            Simulator simulator = new Simulator(TrainSystem.readCheckpoint(in));
+            simulator.status = status;
+            simulator.engineMode = engineMode;
+            simulator.paused = paused;
+            simulator.logOffset = logOffset;
+            simulator.flaggedEvents = flaggedEvents;
+            simulator.nextTimeInstance = nextTime;
+            checkpoint.simulator = simulator;
+            return checkpoint;
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(checkpointFile + " is a truncated or corrupt simulation checkpoint", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checkpoint holds what reading a checkpoint gives before the rest of the scenario is opened.
+     */
+    private static final class Checkpoint {
+        // The simulator restored from the checkpoint
+        private Simulator simulator;
+        // The size of the scenario file, or -1 if the scenario was not read from a file
+        private long scenarioSize;
+        // The checksum of the scenario file, or -1 if the scenario was not read from a file
+        private long scenarioChecksum;
+        // Whether the scenario had a time instance block the simulation had not reached
+        private boolean pending;
+        // The offset in the scenario of the first line of that block
+        private long scenarioOffset;
+    }
+
+    /**
+     * Moves the clock to just before the next time instant at which something can happen.
+     *
+     * @return false if no time instant can change the event log any more, true otherwise
+     */
+    private boolean skipIdleInstants() {
+        int blockInstant = hasPendingBlock() ? prefetcher.nextTime() : EventScheduler.NEVER;
+        int next = scheduler.next(trainSystem, blockInstant);
+        if (next == EventScheduler.NEVER) return false;
+        if (next - 1 > trainSystem.getCurrentTime()) trainSystem.fastForward(next - 1);
+        return true;
+    }
+
+    /**
+     * Writes the report of the simulator: its time and status, the events of each object, and whether it validates.
+     * The events are streamed from the log one at a time.
      *
-     * @return the current time
+     * @param out the destination of the report
+     * @throws IOException if the destination cannot be written to
      */
     @Override
-    public String toString() {
-        StringBuilder str = new StringBuilder();
-        str.append(helperString(str.toString())).append("\n");
-        str.append("--- Events --\n");
-        str.append(logSize() == 0 ? " \tno events" : "");
+    public void report(Appendable out) throws IOException {
+        out.append(helperString("")).append("\n");
+        out.append("--- Events --\n");
+        out.append(logSize() == 0 ? " \tno events" : "");
         for (String object : getObjects()) {
-            str.append("Object=[").append(object).append(", events=").append(logSize()).append("]\n");
-            for (String event : getEvents(object))
-                str.append("\t").append(event).append("\n");
+            out.append("Object=[").append(object).append(", events=").append(Integer.toString(logSize())).append("]\n");
+            for (Event event : eventsOf(object))
+                out.append("\t").append(event.toString()).append("\n");
         }
-        str = new StringBuilder(helperString2(str.toString()));
-        return str.toString();
+        out.append(helperString2(""));
     }
 
     /**
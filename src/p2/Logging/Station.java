@@ -1,6 +1,7 @@
 package p2.Logging;
 
 import p2.Enums.ObjectType;
+import p2.Interfaces.ClockView;
 
 /**
  * Station is a class that extends DocEntity.
@@ -21,6 +22,16 @@ public class Station extends AbstractEntity implements Comparable<Station> {
         super(name);
     }
 
+    /**
+     * Constructs a new Station with the given name that reads the time from the given clock.
+     *
+     * @param name  the name of the station
+     * @param clock the clock shared by the train system the station belongs to
+     */
+    public Station(String name, ClockView clock) {
+        super(name, clock);
+    }
+
     /**
      * This method is used to get the type of the object.
      *
@@ -0,0 +1,139 @@
+package p2.Logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * StopPlan is the compiled, immutable form of the designated stops of a train on a route.
+ * It marks the positions along the route at which the train may stop in a bit set, and keeps how many times
+ * each station name was listed, so that checking a stop takes no string comparison.
+ * <p>
+ * A plan holds no progress of its own: the train records how many stops it has made at each station name,
+ * so one plan can be shared by any number of trains.
+ */
+public final class StopPlan {
+    // The plan of a train that has no route yet and no designated stops
+    static final StopPlan EMPTY = of(List.of(), null);
+
+    // The topology the plan was compiled against, or null if it has none
+    private final RouteTopology topology;
+    // The designated stops, in the order they were listed
+    private final String[] names;
+    // The id of the name of each designated stop on the route, or -1 if no station of the route has it
+    private final int[] nameIds;
+    // How many times each station name of the route was listed, by name id
+    private final int[] multiplicity;
+    // The positions along the route whose station name was listed
+    private final BitSet positions = new BitSet();
+
+    /**
+     * Compiles a plan from the designated stops of a train.
+     *
+     * @param names    the designated stops, in the order they were listed
+     * @param topology the topology of the route, or null if the train has no route yet
+     */
+    private StopPlan(String[] names, RouteTopology topology) {
+        this.topology = topology;
+        this.names = names;
+        this.nameIds = new int[names.length];
+        this.multiplicity = new int[topology == null ? 0 : topology.nameCount()];
+        for (int i = 0; i < names.length; i++) {
+            nameIds[i] = topology == null ? -1 : topology.nameIdOf(names[i]);
+            if (nameIds[i] >= 0) multiplicity[nameIds[i]]++;
+        }
+        if (topology != null)
+            for (int position = 0; position < topology.size(); position++)
+                if (multiplicity[topology.nameIdAt(position)] > 0) positions.set(position);
+    }
+
+    /**
+     * Compiles a plan from the designated stops of a train.
+     *
+     * @param names    the designated stops, in the order they were listed
+     * @param topology the topology of the route, or null if the train has no route yet
+     * @return the compiled plan
+     */
+    public static StopPlan of(List<String> names, RouteTopology topology) {
+        return new StopPlan(names.toArray(new String[0]), topology);
+    }
+
+    /**
+     * Returns a plan with one more designated stop at the end.
+     *
+     * @param name the name of the stop to add
+     * @return the extended plan
+     */
+    public StopPlan with(String name) {
+        String[] extended = new String[names.length + 1];
+        System.arraycopy(names, 0, extended, 0, names.length);
+        extended[names.length] = name;
+        return new StopPlan(extended, topology);
+    }
+
+    /**
+     * Returns every designated stop of the plan, including the ones a train has already made.
+     *
+     * @return the designated stops, in the order they were listed
+     */
+    List<String> names() {
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Returns the topology the plan was compiled against.
+     *
+     * @return the topology, or null if the plan has none
+     */
+    public RouteTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the number of distinct station names the plan counts stops for.
+     *
+     * @return the number of distinct station names on the route
+     */
+    int nameCount() {
+        return multiplicity.length;
+    }
+
+    /**
+     * Checks if the station at the given position was listed at all.
+     *
+     * @param position the position along the route
+     * @return true if the station name at the position was listed, false otherwise
+     */
+    public boolean listsPosition(int position) {
+        return positions.get(position);
+    }
+
+    /**
+     * Returns how many times the name of the station at the given position was listed.
+     *
+     * @param position the position along the route
+     * @return the number of stops the plan allows at stations with that name
+     */
+    public int stopsAllowedAt(int position) {
+        return multiplicity[topology.nameIdAt(position)];
+    }
+
+    /**
+     * Returns the designated stops that have not been made yet, in the order they were listed.
+     * The first stops with each name are the ones that have been made.
+     *
+     * @param stopsMade how many stops have been made at each station name, by name id, or null if none
+     * @return the remaining designated stops
+     */
+    public ArrayList<String> remaining(int[] stopsMade) {
+        ArrayList<String> remaining = new ArrayList<>(names.length);
+        int[] skipped = stopsMade == null ? null : new int[stopsMade.length];
+        for (int i = 0; i < names.length; i++) {
+            int id = nameIds[i];
+            if (skipped != null && id >= 0 && skipped[id] < stopsMade[id]) skipped[id]++;
+            else remaining.add(names[i]);
+        }
+        return remaining;
+    }
+}
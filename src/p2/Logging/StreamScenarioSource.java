@@ -0,0 +1,55 @@
+package p2.Logging;
+
+import p2.Interfaces.ScenarioSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * StreamScenarioSource reads a scenario from an input stream, such as the standard input or a pipe, until the
+ * stream ends.
+ */
+public final class StreamScenarioSource implements ScenarioSource {
+    // The stream the scenario is read from
+    private final InputStream stream;
+
+    /**
+     * Constructs a source over an input stream.
+     *
+     * @param stream the stream to read the scenario from
+     */
+    public StreamScenarioSource(InputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Constructs a source over the standard input.
+     *
+     * @return the source
+     */
+    public static StreamScenarioSource stdin() {
+        return new StreamScenarioSource(System.in);
+    }
+
+    /**
+     * Returns a channel over the stream.
+     *
+     * @return the channel
+     */
+    @Override
+    public ReadableByteChannel open() {
+        return Channels.newChannel(stream);
+    }
+
+    /**
+     * Closes the stream.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
@@ -0,0 +1,116 @@
+package p2.Logging;
+
+import p2.Interfaces.ScenarioSource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TailScenarioSource follows a scenario file that another process keeps appending to.
+ * <p>
+ * Reaching the end of the file does not end the feed: a read waits for the file to grow, checking it again at a
+ * fixed interval. Closing the source ends the feed once the bytes already in the file have been read.
+ */
+public final class TailScenarioSource implements ScenarioSource {
+    // The path of the scenario file
+    private final String file;
+    // How long a read waits before checking the file again, in milliseconds
+    private final long pollMillis;
+    // Whether the feed has ended
+    private volatile boolean closed;
+
+    /**
+     * Constructs a source that follows a scenario file from its start.
+     *
+     * @param file       the path of the scenario file
+     * @param pollMillis how long to wait before checking the file again, in milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public TailScenarioSource(String file, long pollMillis) {
+        if (pollMillis <= 0) throw new IllegalArgumentException("The poll interval must be positive.");
+        this.file = file;
+        this.pollMillis = pollMillis;
+    }
+
+    /**
+     * Opens the scenario file.
+     *
+     * @return the channel
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    @Override
+    public ReadableByteChannel open() throws FileNotFoundException {
+        try {
+            return new TailChannel(FileChannel.open(Path.of(file), StandardOpenOption.READ));
+        } catch (IOException | InvalidPathException e) {
+            throw ScenarioTokenizer.notFound(file, e);
+        }
+    }
+
+    /**
+     * Ends the feed. The bytes already in the file are still read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * TailChannel reads the file and waits at its end for more bytes until the source is closed.
+     */
+    private final class TailChannel implements ReadableByteChannel {
+        // The channel over the file
+        private final FileChannel channel;
+
+        /**
+         * Constructs a channel that follows a file.
+         *
+         * @param channel the channel over the file
+         */
+        TailChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the next bytes of the file, waiting for the file to grow at its end.
+         *
+         * @param dst the buffer to read into
+         * @return the number of bytes read, or -1 once the source is closed and the whole file has been read
+         * @throws IOException if the file cannot be read or the thread is interrupted while waiting
+         */
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!dst.hasRemaining()) return 0;
+            while (true) {
+                // Checked before reading, so the bytes written before closing are always read
+                boolean ended = closed;
+                int read = channel.read(dst);
+                if (read > 0) return read;
+                if (ended) return -1;
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + file + " to grow");
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
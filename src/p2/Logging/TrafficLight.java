@@ -3,28 +3,62 @@ package p2.Logging;
 import p2.Enums.Light;
 import p2.Interfaces.IsVerifiable;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * TrafficLight is a class that implements the IsVerifiable interface.
  * It represents a traffic light in a traffic management system.
+ * The colour is not held by the light itself but by a slot of a SegmentStateTable, next to the status and the
+ * occupant of the segment the light belongs to.
  */
 public class TrafficLight implements IsVerifiable {
-    private static int nextID = 1;
+    private static final AtomicInteger nextID = new AtomicInteger(1);
     /**
      * The unique identifier for this TrafficLight.
      */
-    private final int id = nextID++;
+    private final int id = nextID.getAndIncrement();
+
+    /**
+     * The table holding the current color of this TrafficLight.
+     */
+    private SegmentStateTable table;
 
     /**
-     * The current color of this TrafficLight.
+     * The slot of the table holding the current color of this TrafficLight.
      */
-    private Light colour = Light.GREEN;
+    private int slot;
 
     /**
-     * Constructs a new TrafficLight.
-     * The initial color of the TrafficLight is set to Red.
+     * Constructs a new TrafficLight with a table of its own.
+     * The initial color of the TrafficLight is set to Green.
      * The id of the TrafficLight is incremented each time a new instance is created.
      */
     public TrafficLight() {
+        this.table = new SegmentStateTable();
+        this.slot = table.allocate();
+    }
+
+    /**
+     * Constructs a new TrafficLight whose color is held in the given slot.
+     *
+     * @param table the table holding the color
+     * @param slot  the slot of the table
+     */
+    TrafficLight(SegmentStateTable table, int slot) {
+        this.table = table;
+        this.slot = slot;
+    }
+
+    /**
+     * Moves the color of this TrafficLight into the given slot, keeping its current value.
+     *
+     * @param table the table to hold the color
+     * @param slot  the slot of the table
+     */
+    void bind(SegmentStateTable table, int slot) {
+        table.setLight(slot, getColour());
+        this.table = table;
+        this.slot = slot;
     }
 
     public int getId() {
@@ -32,11 +66,11 @@ public class TrafficLight implements IsVerifiable {
     }
 
     public Light getColour() {
-        return colour;
+        return table.light(slot);
     }
 
     public void setColour(Light colour) {
-        this.colour = colour;
+        table.setLight(slot, colour);
     }
 
     /**
@@ -45,7 +79,7 @@ public class TrafficLight implements IsVerifiable {
      * If the current color is not Red (implicitly Green), it changes it to Red.
      */
     public void change() {
-        this.colour = (this.colour == Light.RED) ? Light.GREEN : Light.RED;
+        table.changeLight(slot);
     }
 
     /**
@@ -54,7 +88,7 @@ public class TrafficLight implements IsVerifiable {
      * @return true if the current color of the traffic light is Green, false otherwise
      */
     public boolean isGreen() {
-        return this.colour == Light.GREEN;
+        return getColour() == Light.GREEN;
     }
 
     /**
@@ -63,7 +97,7 @@ public class TrafficLight implements IsVerifiable {
      * @return true if the current color of the traffic light is Red, false otherwise
      */
     public boolean isRed() {
-        return this.colour == Light.RED;
+        return getColour() == Light.RED;
     }
 
     /**
@@ -75,6 +109,6 @@ public class TrafficLight implements IsVerifiable {
      */
     @Override
     public boolean verify() {
-        return this.colour != null || isGreen() || isRed();
+        return getColour() != null || isGreen() || isRed();
     }
 }
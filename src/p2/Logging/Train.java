@@ -6,10 +6,16 @@ import p2.Enums.TrainStatus;
 import p2.Events.CFOSEvent;
 import p2.Events.Event;
 import p2.Events.MoveEvent;
+import p2.Interfaces.ClockView;
 import p2.Interfaces.IsVerifiable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 /**
  * The Train class represents a train in a transportation system.
@@ -18,23 +24,25 @@ import java.util.Objects;
  */
 public class Train extends Logable implements IsVerifiable {
     // Represents the next id of the train
-    private static int nextID = 1;
+    private static final AtomicInteger nextID = new AtomicInteger(1);
     // Represent the Object Type of the Train
     private final ObjectType type = ObjectType.Train_;
     // Represents the id of the train
-    private final int id = nextID++;
+    private final int id = nextID.getAndIncrement();
     // Represents the name of the train
     private final String name;
-    // Represent the current time
-    private int currentTime;
+    // Represents the clock the train reads the current time from
+    private final ClockView clock;
     // Represents the time the train was registered
     private int timeRegistered = 0;
     // Represents the start time of the train
     private int startTime;
     // Represents the current location of the train
     private String currentLocation;
-    // Represents the current station of the train
-    private Station currentStation;
+    // Represents the compiled topology of the route the train was registered on
+    private RouteTopology topology;
+    // Represents the position of the train along its route, or -1 if it has never been registered
+    private int position = -1;
     // Represents the current segment of the train
     private Segment currentSegment;
     // Represents the current route of the train
@@ -43,8 +51,10 @@ public class Train extends Logable implements IsVerifiable {
     private boolean isAtStart;
     // Represents the wait time remaining for the train
     private int waitTimeRemaining;
-    // Represents the designated stops of the train
-    private ArrayList<String> designatedStops = new ArrayList<>();
+    // Represents the compiled designated stops of the train
+    private StopPlan stopPlan = StopPlan.EMPTY;
+    // Represents how many stops the train has made at each station name of its route, or null if it has made none
+    private int[] stopsMade;
     // Represents the status of the train
     private TrainStatus status = TrainStatus.Initialised;
 
@@ -59,6 +69,18 @@ public class Train extends Logable implements IsVerifiable {
      * @param startTime the start time of the train
      */
     public Train(String name, int startTime) {
+        this(name, startTime, ClockView.STOPPED);
+    }
+
+    /**
+     * Constructs a new Train with the given name and start time that reads the time from the given clock.
+     *
+     * @param name      the name of the train
+     * @param startTime the start time of the train
+     * @param clock     the clock shared by the train system the train belongs to
+     */
+    public Train(String name, int startTime, ClockView clock) {
+        this.clock = clock;
         this.name = name.isEmpty() ? "Train " + id : name;
         this.startTime = startTime >= 0 ? startTime : this.startTime;
         this.waitTimeRemaining = startTime;
@@ -112,12 +134,13 @@ public class Train extends Logable implements IsVerifiable {
     }
 
     /**
-     * Returns the designated stops of the train.
+     * Returns the designated stops the train has not made yet.
+     * The list is a copy; changing it does not change the stops of the train.
      *
-     * @return the designated stops of the train
+     * @return the remaining designated stops of the train
      */
     public ArrayList<String> getDesignatedStops() {
-        return designatedStops;
+        return stopPlan.remaining(stopsMade);
     }
 
     /**
@@ -126,7 +149,45 @@ public class Train extends Logable implements IsVerifiable {
      * @param designatedStops the designated stops of the train
      */
     public void setDesignatedStops(ArrayList<String> designatedStops) {
-        this.designatedStops = designatedStops;
+        setStopPlan(StopPlan.of(designatedStops, topology));
+    }
+
+    /**
+     * Returns the compiled designated stops of the train.
+     *
+     * @return the stop plan of the train
+     */
+    public StopPlan getStopPlan() {
+        return stopPlan;
+    }
+
+    /**
+     * Sets the compiled designated stops of the train. No stop of the plan has been made yet.
+     *
+     * @param stopPlan the stop plan of the train
+     */
+    public void setStopPlan(StopPlan stopPlan) {
+        this.stopPlan = stopPlan;
+        this.stopsMade = null;
+    }
+
+    /**
+     * Checks if the train is at a designated stop it has not made yet.
+     *
+     * @return true if the train should stop at its current station, false otherwise
+     */
+    public boolean isAtDesignatedStop() {
+        if (position < 0 || stopPlan.getTopology() != topology || !stopPlan.listsPosition(position)) return false;
+        int made = stopsMade == null ? 0 : stopsMade[topology.nameIdAt(position)];
+        return made < stopPlan.stopsAllowedAt(position);
+    }
+
+    /**
+     * Records a stop at the current station, which must be a designated stop the train has not made yet.
+     */
+    public void makeDesignatedStop() {
+        if (stopsMade == null) stopsMade = new int[stopPlan.nameCount()];
+        stopsMade[topology.nameIdAt(position)]++;
     }
 
     /**
@@ -153,7 +214,25 @@ public class Train extends Logable implements IsVerifiable {
      * @return the current station of the train
      */
     public String currentStation() {
-        return currentStation.getName();
+        return topology.stationAt(position).getName();
+    }
+
+    /**
+     * Returns the position of the train along its route.
+     *
+     * @return the position of the train, or -1 if it has never been registered
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Checks if the train is at a station with the same name as the end of its route.
+     *
+     * @return true if the train has reached its destination, false otherwise or if it has never been registered
+     */
+    public boolean isAtDestination() {
+        return position >= 0 && topology.isTerminus(position);
     }
 
     /**
@@ -162,7 +241,7 @@ public class Train extends Logable implements IsVerifiable {
      * @return the next station of the train
      */
     public String nextStation() {
-        return getCurrentRoute().getNextStation(currentStation()).getName();
+        return topology.nextStation(position).getName();
     }
 
     /**
@@ -189,16 +268,7 @@ public class Train extends Logable implements IsVerifiable {
      * @return int This returns the current time of the object.
      */
     public int getCurrentTime() {
-        return currentTime;
-    }
-
-    /**
-     * This method is used to set the current time of the object.
-     *
-     * @param currentTime This is the current time of the object.
-     */
-    public void setCurrentTime(int currentTime) {
-        this.currentTime = currentTime;
+        return clock.now();
     }
 
     // Setter methods
@@ -257,6 +327,33 @@ public class Train extends Logable implements IsVerifiable {
         this.waitTimeRemaining = this.waitTimeRemaining - getCurrentTime();
     }
 
+    /**
+     * Counts the wait time remaining down by the sum of several time instants at once.
+     * This has the same effect, including int wrap-around, as calling setWaitTimeRemaining() at each of them.
+     *
+     * @param elapsed the sum of the time instants to count down by
+     */
+    public void countDownWaitTime(long elapsed) {
+        this.waitTimeRemaining = (int) (this.waitTimeRemaining - elapsed);
+    }
+
+    /**
+     * Returns the first time instant after the given one at which the train stops waiting,
+     * assuming its wait time is only counted down until then.
+     *
+     * @param time the current time instant
+     * @return the first instant at which the train is no longer waiting
+     */
+    public int firstInstantNotWaiting(int time) {
+        int instant = time + 1;
+        long remaining = (long) this.waitTimeRemaining - instant;
+        while (remaining >= 0) {
+            instant++;
+            remaining -= instant;
+        }
+        return instant;
+    }
+
     /**
      * Resets the wait time remaining for the train.
      */
@@ -276,14 +373,17 @@ public class Train extends Logable implements IsVerifiable {
     public void register(int time) {
         // Set the start time of the train
         this.timeRegistered = time;
-        // Set the current route of the train
-        this.currentStation = currentRoute.getStart();
+        // Place the train at the start of its route
+        this.topology = currentRoute.getTopology();
+        this.position = 0;
+        // Carry the remaining stops over to the topology of the route
+        if (stopPlan.getTopology() != topology) setStopPlan(StopPlan.of(getDesignatedStops(), topology));
         // Set the current segment of the train
-        this.currentSegment = currentRoute.getSegmentList().stream().filter(segment -> segment.getSegmentStart().getName().strip().equals(currentStation.getName().strip())).findFirst().orElse(null);
+        this.currentSegment = topology.segmentAt(position);
         // Set the current location of the train
-        this.currentLocation = currentStation.getName();
+        this.currentLocation = currentStation();
         // isAtStart is set to true
-        this.isAtStart = Objects.equals(currentLocation, currentRoute.getStart().getName().strip());
+        this.isAtStart = true;
     }
 
     /**
@@ -333,10 +433,11 @@ public class Train extends Logable implements IsVerifiable {
      */
     public Event advance(int time) {
         String previousStation = currentStation();
-        if (status.equals(TrainStatus.Started) && currentRoute.canGetTo(nextStation())) {
-            currentStation = currentRoute.getNextStation(currentStation());
-            currentLocation = currentStation.getName();
-            currentSegment = currentRoute.getNextSegment(currentStation());
+        Station next = topology.nextStation(position);
+        if (status.equals(TrainStatus.Started) && next != null && next.isOpen()) {
+            position++;
+            currentLocation = next.getName();
+            currentSegment = topology.segmentAt(position);
         } else {
             System.out.print("There seems to be an issue with the route or the train status.");
         }
@@ -350,7 +451,7 @@ public class Train extends Logable implements IsVerifiable {
      * @param stop the stop to add
      */
     public void addStop(String stop) {
-        this.designatedStops.add(stop);
+        this.stopPlan = stopPlan.with(stop);
     }
 
     /**
@@ -362,6 +463,67 @@ public class Train extends Logable implements IsVerifiable {
         this.currentRoute = route;
     }
 
+    // Checkpoint methods
+
+    /**
+     * Writes the progress of the train to a checkpoint: its registration, route, position, wait time, status and
+     * designated stops. The name and start time are written by the train system.
+     *
+     * @param out        the checkpoint being written
+     * @param routes     the index of each route of the train system
+     * @param topologies the index of the route each topology belongs to, or -1 if it belongs to none
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void writeState(DataOutput out, ToIntFunction<Route> routes, ToIntFunction<RouteTopology> topologies)
+            throws IOException {
+        out.writeInt(timeRegistered);
+        out.writeBoolean(currentLocation != null);
+        if (currentLocation != null) out.writeUTF(currentLocation);
+        out.writeInt(currentRoute == null ? -1 : routes.applyAsInt(currentRoute));
+        out.writeInt(topology == null ? -1 : topologies.applyAsInt(topology));
+        out.writeInt(position);
+        out.writeBoolean(isAtStart);
+        out.writeInt(waitTimeRemaining);
+        out.writeByte(status.ordinal());
+
+        List<String> stops = stopPlan.names();
+        out.writeInt(stops.size());
+        for (String stop : stops) out.writeUTF(stop);
+        out.writeBoolean(stopPlan.getTopology() != null);
+        out.writeInt(stopsMade == null ? -1 : stopsMade.length);
+        if (stopsMade != null) for (int made : stopsMade) out.writeInt(made);
+    }
+
+    /**
+     * Restores the progress of the train from a checkpoint written by writeState().
+     *
+     * @param in     the checkpoint, positioned on the progress of the train
+     * @param routes the routes of the train system, in the order their indexes were written
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public void restoreState(DataInput in, List<Route> routes) throws IOException {
+        timeRegistered = in.readInt();
+        currentLocation = in.readBoolean() ? in.readUTF() : null;
+        int route = in.readInt();
+        currentRoute = route < 0 ? null : routes.get(route);
+        int topologyRoute = in.readInt();
+        topology = topologyRoute < 0 ? null : routes.get(topologyRoute).getTopology();
+        position = in.readInt();
+        // The current segment always leaves the station the train is at
+        currentSegment = position < 0 ? null : topology.segmentAt(position);
+        isAtStart = in.readBoolean();
+        waitTimeRemaining = in.readInt();
+        status = TrainStatus.values()[in.readByte()];
+
+        ArrayList<String> stops = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) stops.add(in.readUTF());
+        // A plan compiled against a topology is always compiled against the topology of the train
+        stopPlan = StopPlan.of(stops, in.readBoolean() ? topology : null);
+        int made = in.readInt();
+        stopsMade = made < 0 ? null : new int[made];
+        for (int i = 0; i < made; i++) stopsMade[i] = in.readInt();
+    }
+
     // Verification methods
 
     /**
@@ -371,7 +533,7 @@ public class Train extends Logable implements IsVerifiable {
      */
     @Override
     public boolean verify() {
-        return getCurrentRoute().verify() && isRegistered();
+        return getCurrentRoute() != null && getCurrentRoute().verify() && isRegistered();
     }
 
     /**
@@ -396,9 +558,9 @@ public class Train extends Logable implements IsVerifiable {
         return "Train [id=" + id + ", name=" + name + ", " + "timeRegistered="
                 + (timeRegistered <= 0 ? "unregistered" : timeRegistered) + ", startTime="
                 + (timeRegistered >= 0 ? getStartTime() : "unregistered") + ", currentStation="
-                + (currentStation == null ? "none" : currentStation) + ", route="
+                + (position < 0 ? "none" : topology.stationAt(position)) + ", route="
                 + (currentRoute == null ? "none" : currentRoute.getName()) + ", stopsAt="
-                + (!designatedStops.isEmpty() ? designatedStops.toString() : "All") + ", status=" + status
+                + (!getDesignatedStops().isEmpty() ? getDesignatedStops().toString() : "All") + ", status=" + status
                 + ", verified=" + (verify() ? "Yes" : "No") + "]";
     }
 }
\ No newline at end of file
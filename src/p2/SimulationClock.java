@@ -0,0 +1,70 @@
+package p2;
+
+import p2.Interfaces.ClockView;
+
+/**
+ * The SimulationClock class holds the current time instant of a train system.
+ * Every entity of the system reads the time from the same clock, so moving time forward is a single write.
+ * Only the train system can move the clock, and only forwards; any thread can read it.
+ */
+public final class SimulationClock implements ClockView {
+    // The current time instant, published to reader threads on every write
+    private volatile int now;
+    // A view of this clock that cannot be cast back to the clock
+    private final ClockView view = this::now;
+
+    /**
+     * Constructs a new SimulationClock at time instant 0.
+     */
+    public SimulationClock() {
+    }
+
+    /**
+     * Returns the current time instant.
+     *
+     * @return the current time instant
+     */
+    @Override
+    public int now() {
+        return now;
+    }
+
+    /**
+     * Returns a read-only view of this clock.
+     *
+     * @return a read-only view of this clock
+     */
+    public ClockView view() {
+        return view;
+    }
+
+    /**
+     * Moves the clock forward by one time instant.
+     */
+    void tick() {
+        now = now + 1;
+    }
+
+    /**
+     * Moves the clock forward to the given time instant.
+     *
+     * @param instant the time instant to move to
+     * @throws IllegalArgumentException if the instant is in the past
+     */
+    void advanceTo(int instant) {
+        if (instant < now) {
+            throw new IllegalArgumentException("The clock cannot go back in time.");
+        }
+        now = instant;
+    }
+
+    /**
+     * Returns the string representation of the clock.
+     *
+     * @return the string representation of the clock
+     */
+    @Override
+    public String toString() {
+        return "SimulationClock [now=" + now + "]";
+    }
+}
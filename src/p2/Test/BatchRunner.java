@@ -0,0 +1,253 @@
+package p2.Test;
+
+import p2.Enums.EngineMode;
+import p2.Logging.Simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BatchRunner simulates many scenario files without a user interface, several at a time.
+ * <p>
+ * Each file is simulated by its own Simulator on a bounded pool of threads, and its event log is written to a file
+ * of the output directory, one event per line. Once every run is over, the runner prints for each run and for the
+ * whole batch the number of time instants executed and of events logged, per second of wall time, and the peak
+ * heap. The heap is shared, so the peak of a run is the largest heap sampled while it was running, whichever run
+ * the objects belonged to.
+ */
+public final class BatchRunner {
+    // How often the heap is sampled, in milliseconds
+    private static final long SAMPLE_MILLIS = 10;
+
+    // The number of runs simulated at the same time
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // The directory the event logs are written to
+    private Path output = Path.of("batch-logs");
+    // The engine mode of every run
+    private EngineMode engineMode = EngineMode.EventDriven;
+    // How long a run may take before it is stopped, in seconds, or 0 for no limit
+    private long timeoutSeconds;
+
+    /**
+     * Simulates scenario files and prints how fast they ran.
+     * The arguments are scenario files and directories, whose files are all simulated, and settings written as
+     * key=value, where the keys are threads, out (the directory of the event logs), mode (EventDriven or
+     * TickByTick) and timeout (in seconds).
+     *
+     * @param args the scenario files and directories, and the settings
+     * @throws IOException          if a directory cannot be listed or the output directory cannot be created
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        BatchRunner runner = new BatchRunner();
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("threads=")) runner.threads = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("out=")) runner.output = Path.of(arg.substring(4));
+            else if (arg.startsWith("mode=")) runner.engineMode = EngineMode.valueOf(arg.substring(5));
+            else if (arg.startsWith("timeout=")) runner.timeoutSeconds = Long.parseLong(arg.substring(8));
+            else files.addAll(scenarios(Path.of(arg)));
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: BatchRunner [threads=N] [out=DIRECTORY] [mode=EventDriven|TickByTick]"
+                    + " [timeout=SECONDS] <file or directory>...");
+            return;
+        }
+        if (runner.threads < 1) throw new IllegalArgumentException("At least 1 thread is needed.");
+        List<Run> runs = runner.runAll(files);
+        if (runs.stream().anyMatch(run -> run.failure != null)) System.exit(1);
+    }
+
+    /**
+     * Returns the scenario files of a path: the path itself if it is a file, or the files of the directory.
+     *
+     * @param path the file or directory
+     * @return the files, in name order
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Path> scenarios(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(path);
+        File[] files = path.toFile().listFiles(file -> file.isFile() && !file.isHidden());
+        if (files == null) throw new IOException("Cannot list " + path);
+        Arrays.sort(files);
+        return Arrays.stream(files).map(File::toPath).toList();
+    }
+
+    /**
+     * Simulates every file, prints the results and returns them.
+     *
+     * @param files the scenario files
+     * @return the runs, in the order of the files
+     * @throws IOException          if the output directory cannot be created
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    private List<Run> runAll(List<Path> files) throws IOException, InterruptedException {
+        Files.createDirectories(output);
+        List<Run> runs = new ArrayList<>();
+        Set<String> logNames = new HashSet<>();
+        for (Path file : files) {
+            String name = file.getFileName() + ".log";
+            // Files with the same name in different directories get different logs
+            if (!logNames.add(name)) name = file.getFileName() + "-" + runs.size() + ".log";
+            logNames.add(name);
+            runs.add(new Run(file, output.resolve(name)));
+        }
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ConcurrentLinkedQueue<Run> active = new ConcurrentLinkedQueue<>();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            long used = memory.getHeapMemoryUsage().getUsed();
+            for (Run run : active) run.peakHeap.accumulateAndGet(used, Math::max);
+        }, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long started = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Run run : runs) {
+                futures.add(pool.submit(() -> {
+                    active.add(run);
+                    try {
+                        run.simulate(engineMode, timeoutSeconds, sampler);
+                    } finally {
+                        active.remove(run);
+                        // Runs shorter than the sampling period get at least one sample
+                        run.peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Runs record their exceptions themselves, so this is an error such as running out of memory
+                    throw new IllegalStateException("The batch was ended by " + e.getCause(), e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            sampler.shutdownNow();
+        }
+        long wallNanos = System.nanoTime() - started;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean heapPool : heapPools) peakHeap += heapPool.getPeakUsage().getUsed();
+        print(runs, wallNanos, peakHeap);
+        return runs;
+    }
+
+    /**
+     * Prints the results of every run and of the batch.
+     *
+     * @param runs      the runs
+     * @param wallNanos the wall time of the batch, in nanoseconds
+     * @param peakHeap  the peak heap of the batch, in bytes
+     */
+    private void print(List<Run> runs, long wallNanos, long peakHeap) {
+        String format = "%-40s %-10s %10d %12d %10.1f %14.1f %14.1f %10.1f%n";
+        System.out.printf("%-40s %-10s %10s %12s %10s %14s %14s %10s%n", "Scenario", "Status", "Ticks", "Events",
+                "Wall ms", "Ticks/s", "Events/s", "Heap MB");
+        long ticks = 0;
+        long events = 0;
+        for (Run run : runs) {
+            if (run.failure != null) {
+                System.out.printf("%-40s %-10s %s%n", run.file.getFileName(), "Failed", run.failure);
+                continue;
+            }
+            ticks += run.ticks;
+            events += run.events;
+            System.out.printf(format, run.file.getFileName(), run.status, run.ticks, run.events, run.nanos / 1e6,
+                    run.ticks * 1e9 / run.nanos, run.events * 1e9 / run.nanos, run.peakHeap.get() / 1e6);
+        }
+        System.out.printf(format, "Total (" + runs.size() + " runs, " + threads + " threads)", "", ticks, events,
+                wallNanos / 1e6, ticks * 1e9 / wallNanos, events * 1e9 / wallNanos, peakHeap / 1e6);
+    }
+
+    /**
+     * Run is the simulation of one scenario file and what it measured.
+     */
+    private static final class Run {
+        // The scenario file
+        private final Path file;
+        // The file the event log is written to
+        private final Path log;
+        // The largest heap sampled while the run was going, in bytes
+        private final AtomicLong peakHeap = new AtomicLong();
+        // How the simulation ended: the status of the simulator, Stopped if it ran out of time, or Stalled if nothing
+        // could happen any more before it finished
+        private String status;
+        // The number of time instants executed, leaving out those the event-driven engine skipped
+        private long ticks;
+        // The number of events logged
+        private long events;
+        // The time spent loading and simulating the scenario, in nanoseconds
+        private long nanos;
+        // The exception that ended the run, or null
+        private Exception failure;
+
+        /**
+         * Constructs a run.
+         *
+         * @param file the scenario file
+         * @param log  the file the event log is written to
+         */
+        Run(Path file, Path log) {
+            this.file = file;
+            this.log = log;
+        }
+
+        /**
+         * Loads and simulates the scenario, then writes its event log.
+         *
+         * @param engineMode     the engine mode of the simulation
+         * @param timeoutSeconds how long the simulation may take before it is stopped, or 0 for no limit
+         * @param scheduler      the executor that stops the simulation once it has taken too long
+         */
+        void simulate(EngineMode engineMode, long timeoutSeconds, ScheduledExecutorService scheduler) {
+            long started = System.nanoTime();
+            try {
+                Simulator simulator = new Simulator(file.toString());
+                // There is no JavaFX toolkit to show the text log
+                simulator.setTextLogEnabled(false);
+                simulator.setEngineMode(engineMode);
+                if (timeoutSeconds > 0) scheduler.schedule(simulator::stop, timeoutSeconds, TimeUnit.SECONDS);
+                simulator.simulate();
+                nanos = System.nanoTime() - started;
+                status = simulator.isPaused() ? "Stopped"
+                        : simulator.isStalled() ? "Stalled" : simulator.getStatus().toString();
+                ticks = simulator.getExecutedInstants();
+                events = simulator.logSize();
+                Files.write(log, simulator.getEvents());
+            } catch (Exception e) {
+                nanos = System.nanoTime() - started;
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package p2.Test;
+
+import p2.Enums.EngineMode;
+import p2.Enums.NetworkShape;
+import p2.Logging.EventJournal;
+import p2.Logging.Logable;
+import p2.Logging.Segment;
+import p2.Logging.Simulator;
+import p2.Logging.Station;
+import p2.TrainSystem;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LogTests checks the event log of the simulator without a user interface, and exits with status 1 if a check
+ * fails.
+ */
+public final class LogTests {
+    // The scenario file the simulations run
+    private String scenario = "src/p2/Test/TestFile";
+    // The number of checks that failed
+    private int failures;
+    // The path of the checkpoint the resumed simulations go through
+    private Path checkpoint;
+
+    /**
+     * Runs the checks and prints the ones that fail.
+     * The argument scenario=FILE sets the scenario file the simulations run, src/p2/Test/TestFile by default.
+     *
+     * @param args the settings
+     * @throws ReflectiveOperationException if the fields of the log cannot be read
+     * @throws IOException                  if the scenario or a temporary file cannot be read or written
+     */
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        LogTests tests = new LogTests();
+        for (String arg : args) {
+            if (arg.startsWith("scenario=")) tests.scenario = arg.substring(9);
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+        tests.entitiesThatNeverLogAllocateNoStore();
+        tests.journalReplaysTheWholeLog();
+        tests.logsAreTheSameEveryWay();
+        System.out.println(tests.failures == 0 ? "All checks passed." : tests.failures + " checks failed.");
+        if (tests.failures > 0) System.exit(1);
+    }
+
+    /**
+     * Checks that the stations and segments of a network that log no event allocate no store and no text log, and
+     * that their queries answer as for an empty log.
+     *
+     * @throws ReflectiveOperationException if the fields of the log cannot be read
+     */
+    private void entitiesThatNeverLogAllocateNoStore() throws ReflectiveOperationException {
+        TrainSystem system = new TrainSystem();
+        system.addStation("A");
+        system.addStation("B");
+        system.addSegment("AB", "A", "B");
+        Station station = system.getStations().get(0);
+        Segment segment = system.getSegments().get(0);
+        for (Logable entity : new Logable[]{station, segment}) {
+            String name = entity.getClass().getSimpleName();
+            check(entity.logSize() == 0, name + " has no events");
+            check(entity.getEvents().isEmpty() && entity.getEvents(0, 10).isEmpty(), name + " finds no events");
+            check(entity.getObjects().isEmpty() && entity.distinctObjects() == 0, name + " has no objects");
+            check(entity.view(null, 0, 10).isEmpty(), name + " has an empty view");
+            check(entity.getViolations(1, 1).isEmpty(), name + " has a valid log");
+            check(entity.getDroppedLines() == 0 && entity.getSkippedLines() == 0, name + " dropped no lines");
+            check(field(entity, "store") == null, name + " allocated no store");
+            check(field(entity, "log") == null, name + " allocated no text log");
+        }
+    }
+
+    /**
+     * Checks that a journal set after the constructor has applied the first time instance holds the events of that
+     * time instance too, so that replaying it gives the whole log, and rendering it the whole text.
+     *
+     * @throws IOException if the scenario or the journal cannot be read or written
+     */
+    private void journalReplaysTheWholeLog() throws IOException {
+        Path journal = Files.createTempFile("events", ".journal");
+        try {
+            // The constructor logs the events of the first time instance, such as the closures of TestFile
+            Simulator simulator = new Simulator(scenario);
+            simulator.setTextLogEnabled(false);
+            simulator.setJournal(journal.toString(), false);
+            simulator.simulate();
+            simulator.closeJournal();
+
+            Simulator replayed = new Simulator(new TrainSystem());
+            replayed.setTextLogEnabled(false);
+            long events = EventJournal.replay(journal.toString(), replayed);
+            check(events == simulator.logSize(), "the journal holds all " + simulator.logSize() + " events");
+            check(replayed.getEvents().equals(simulator.getEvents()), "the replayed log equals the simulated log");
+
+            StringBuilder text = new StringBuilder();
+            EventJournal.render(journal.toString(), text);
+            StringBuilder expected = new StringBuilder();
+            for (String event : simulator.getEvents()) expected.append(event).append('\n');
+            check(text.toString().equals(expected.toString()), "the rendered journal equals the log");
+        } finally {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    /**
+     * Checks that the event log of the scenario, and of a generated scenario of each network shape with closures, is
+     * the same text whichever way it is simulated: tick by tick or event driven, with 8 threads, and stopped,
+     * checkpointed and resumed after every time instant.
+     *
+     * @throws IOException if a scenario or a checkpoint cannot be read or written
+     */
+    private void logsAreTheSameEveryWay() throws IOException {
+        checkpoint = Files.createTempFile("simulation", ".checkpoint");
+        List<Path> generated = new ArrayList<>();
+        try {
+            sameLogEveryWay(scenario);
+            for (NetworkShape shape : NetworkShape.values()) {
+                ScenarioGenerator generator = new ScenarioGenerator(shape, 1);
+                generator.setStations(60);
+                generator.setClosures(8);
+                Path file = Files.createTempFile("scenario-" + shape.name(), ".txt");
+                generated.add(file);
+                generator.write(file.toString());
+                sameLogEveryWay(file.toString());
+            }
+        } finally {
+            for (Path file : generated) Files.deleteIfExists(file);
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    /**
+     * Checks that the event log of a scenario is the same text whichever way it is simulated.
+     *
+     * @param file the scenario file
+     * @throws IOException if the scenario or the checkpoint cannot be read or written
+     */
+    private void sameLogEveryWay(String file) throws IOException {
+        String expected = log(file, EngineMode.TickByTick, 1);
+        check(!expected.isEmpty(), file + " logs events");
+        check(log(file, EngineMode.EventDriven, 1).equals(expected), file + " logs the same event driven");
+        check(log(file, EngineMode.TickByTick, 8).equals(expected), file + " logs the same with 8 threads");
+        check(log(file, EngineMode.EventDriven, 8).equals(expected),
+                file + " logs the same event driven with 8 threads");
+        for (EngineMode mode : EngineMode.values())
+            check(resumedLog(file, mode).equals(expected), file + " logs the same " + mode + " resumed every instant");
+    }
+
+    /**
+     * Simulates a scenario in one run.
+     *
+     * @param file        the scenario file
+     * @param mode        the engine mode
+     * @param parallelism the number of threads that run the trains of a time instant
+     * @return the text of the event log, one event per line
+     * @throws IOException if the scenario cannot be read
+     */
+    private static String log(String file, EngineMode mode, int parallelism) throws IOException {
+        Simulator simulator = new Simulator(file);
+        simulator.setTextLogEnabled(false);
+        simulator.setEngineMode(mode);
+        simulator.setParallelism(parallelism);
+        simulator.simulate();
+        return text(simulator.getEvents(), new StringBuilder()).toString();
+    }
+
+    /**
+     * Simulates a scenario one time instant at a time, stopping after each one and resuming from a checkpoint.
+     *
+     * @param file the scenario file
+     * @param mode the engine mode
+     * @return the text of the event logs of the resumed simulators, one event per line
+     * @throws IOException if the scenario or the checkpoint cannot be read or written
+     */
+    private String resumedLog(String file, EngineMode mode) throws IOException {
+        StringBuilder log = new StringBuilder();
+        Simulator simulator = new Simulator(file);
+        simulator.setTextLogEnabled(false);
+        simulator.setEngineMode(mode);
+        while (true) {
+            simulator.stop();
+            simulator.simulate();
+            // A resumed simulator only holds the events logged after its checkpoint
+            text(simulator.getEvents(), log);
+            if (!simulator.isPaused()) return log.toString();
+            simulator.checkpoint(checkpoint.toString());
+            simulator = Simulator.resume(checkpoint.toString(), file);
+            simulator.setTextLogEnabled(false);
+        }
+    }
+
+    /**
+     * Appends events to a text, one per line.
+     *
+     * @param events the events
+     * @param text   the text
+     * @return the text
+     */
+    private static StringBuilder text(List<String> events, StringBuilder text) {
+        for (String event : events) text.append(event).append('\n');
+        return text;
+    }
+
+    /**
+     * Reads a private field of the event log of an object.
+     *
+     * @param log  the object
+     * @param name the name of the field, declared by Logable
+     * @return the value of the field
+     * @throws ReflectiveOperationException if the field cannot be read
+     */
+    private static Object field(Logable log, String name) throws ReflectiveOperationException {
+        Field field = Logable.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(log);
+    }
+
+    /**
+     * Records a check, printing it if it fails.
+     *
+     * @param passed      whether the check passed
+     * @param description what was checked
+     */
+    private void check(boolean passed, String description) {
+        if (passed) return;
+        failures++;
+        System.out.println("FAILED: " + description);
+    }
+}
@@ -0,0 +1,455 @@
+package p2.Test;
+
+import p2.Enums.NetworkShape;
+import p2.Enums.SectionType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ScenarioGenerator writes synthetic scenario files, of any size, in the format the simulator reads.
+ * <p>
+ * The time instance 0 block defines the network and adds the trains. The blocks after it register the trains to
+ * their routes and close segments, and each closed segment is opened again in the next block, which is an extra
+ * block after the last one for the segments the last one closes. Routes follow the lines of the network shape,
+ * forwards or backwards, and trains stop at every station of their route or at some of them. The same shape, seed
+ * and counts always produce the same file.
+ * <p>
+ * The closures are spread evenly over the blocks, and a block closes distinct segments, so that no two events of a
+ * block close the same segment. Only segments that no route uses are closed: the train system refuses to open a
+ * segment that is closed, as opening it verifies it first and a closed segment does not verify, so the opening
+ * lines take no effect, and a train whose route crossed a closed segment would wait for it forever and the
+ * simulation would never finish.
+ */
+public final class ScenarioGenerator {
+    // The largest start time of a train
+    private static final int MAX_WAIT_TIME = 5;
+    // The largest number of time instants between two blocks
+    private static final int MAX_GAP = 3;
+
+    // The layout of the network
+    private final NetworkShape shape;
+    // The seed of the random choices
+    private final long seed;
+    // The number of stations
+    private int stations = 100;
+    // The number of segments, or -1 for one segment per pair of neighbouring stations on a line
+    private int segments = -1;
+    // The number of lines of a hub-and-spoke or disconnected network
+    private int lines = 8;
+    // The number of routes
+    private int routes = 10;
+    // The largest number of segments of a route
+    private int routeLength = 10;
+    // The number of trains
+    private int trains = 20;
+    // The number of segment closures
+    private int closures = 0;
+    // The number of time instance blocks after time instance 0
+    private int blocks = 4;
+
+    /**
+     * Constructs a generator of networks of a given shape.
+     *
+     * @param shape the layout of the network
+     * @param seed  the seed of the random choices
+     */
+    public ScenarioGenerator(NetworkShape shape, long seed) {
+        this.shape = shape;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of stations.
+     *
+     * @param stations the number of stations
+     * @throws IllegalArgumentException if the number is less than 2
+     */
+    public void setStations(int stations) {
+        if (stations < 2) throw new IllegalArgumentException("A network needs at least 2 stations.");
+        this.stations = stations;
+    }
+
+    /**
+     * Sets the number of segments. The lines of the network are joined forwards first, then backwards, until
+     * there are that many segments, so a network has at most twice as many segments as its stations have
+     * neighbours on a line.
+     *
+     * @param segments the number of segments, or -1 for one segment per pair of neighbouring stations on a line
+     * @throws IllegalArgumentException if the number is less than -1
+     */
+    public void setSegments(int segments) {
+        if (segments < -1) throw new IllegalArgumentException("The number of segments cannot be negative.");
+        this.segments = segments;
+    }
+
+    /**
+     * Sets the number of lines of a hub-and-spoke or disconnected network. The other shapes ignore it.
+     *
+     * @param lines the number of lines
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public void setLines(int lines) {
+        if (lines < 1) throw new IllegalArgumentException("A network needs at least 1 line.");
+        this.lines = lines;
+    }
+
+    /**
+     * Sets the number of routes.
+     *
+     * @param routes the number of routes
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setRoutes(int routes) {
+        if (routes < 0) throw new IllegalArgumentException("The number of routes cannot be negative.");
+        this.routes = routes;
+    }
+
+    /**
+     * Sets the largest number of segments of a route.
+     *
+     * @param routeLength the largest number of segments
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public void setRouteLength(int routeLength) {
+        if (routeLength < 1) throw new IllegalArgumentException("A route needs at least 1 segment.");
+        this.routeLength = routeLength;
+    }
+
+    /**
+     * Sets the number of trains.
+     *
+     * @param trains the number of trains
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setTrains(int trains) {
+        if (trains < 0) throw new IllegalArgumentException("The number of trains cannot be negative.");
+        this.trains = trains;
+    }
+
+    /**
+     * Sets the number of segment closures. Each block closes at most as many segments as no route uses.
+     *
+     * @param closures the number of closures
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setClosures(int closures) {
+        if (closures < 0) throw new IllegalArgumentException("The number of closures cannot be negative.");
+        this.closures = closures;
+    }
+
+    /**
+     * Sets the number of time instance blocks after time instance 0. The trains are registered evenly over them.
+     *
+     * @param blocks the number of blocks
+     * @throws IllegalArgumentException if the number is negative
+     */
+    public void setBlocks(int blocks) {
+        if (blocks < 0) throw new IllegalArgumentException("The number of blocks cannot be negative.");
+        this.blocks = blocks;
+    }
+
+    /**
+     * Writes the scenario to a file.
+     *
+     * @param file the path to the file to write
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if the counts do not fit together
+     */
+    public void write(String file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes the scenario.
+     *
+     * @param out the writer to write the scenario to
+     * @throws IOException              if the scenario cannot be written
+     * @throws IllegalArgumentException if the counts do not fit together
+     */
+    public void write(Writer out) throws IOException {
+        Random random = new Random(seed);
+        List<int[]> stationLines = stationLines();
+        int neighbours = 0;
+        for (int[] line : stationLines) neighbours += line.length - 1;
+        int segmentCount = segments < 0 ? neighbours : segments;
+        if (segmentCount > 2 * neighbours) {
+            throw new IllegalArgumentException("A " + shape.getDescription() + " network of " + stations
+                    + " stations has at most " + 2 * neighbours + " segments.");
+        }
+        if (routes > 0 && segmentCount == 0) throw new IllegalArgumentException("Routes need at least 1 segment.");
+        if (trains > 0 && routes == 0) throw new IllegalArgumentException("Trains need at least 1 route.");
+        if (closures > 0 && (blocks == 0 || segmentCount == 0)) {
+            throw new IllegalArgumentException("Closures need at least 1 block and 1 segment.");
+        }
+
+        // Join the lines forwards, then backwards; each run of joined stations is a chain routes can follow
+        int[] from = new int[segmentCount];
+        int[] to = new int[segmentCount];
+        List<int[]> chains = new ArrayList<>();
+        int count = 0;
+        for (int pass = 0; pass < 2 && count < segmentCount; pass++) {
+            for (int[] line : stationLines) {
+                int first = count;
+                for (int i = 1; i < line.length && count < segmentCount; i++, count++) {
+                    from[count] = pass == 0 ? line[i - 1] : line[line.length - i];
+                    to[count] = pass == 0 ? line[i] : line[line.length - i - 1];
+                }
+                if (count > first) chains.add(new int[]{first, count - first});
+            }
+        }
+
+        // Each route is a run of neighbouring segments of one chain
+        int[] routeFirst = new int[routes];
+        int[] routeSegments = new int[routes];
+        for (int r = 0; r < routes; r++) {
+            int[] chain = chains.get(random.nextInt(chains.size()));
+            routeSegments[r] = 1 + random.nextInt(Math.min(chain[1], routeLength));
+            routeFirst[r] = chain[0] + random.nextInt(chain[1] - routeSegments[r] + 1);
+        }
+
+        int[] trainRoute = new int[trains];
+        int[] trainWait = new int[trains];
+        for (int t = 0; t < trains; t++) {
+            trainRoute[t] = random.nextInt(routes);
+            trainWait[t] = random.nextInt(MAX_WAIT_TIME + 1);
+        }
+
+        // The segments no route uses, which are the only ones closed
+        boolean[] used = new boolean[segmentCount];
+        for (int r = 0; r < routes; r++) {
+            for (int g = routeFirst[r]; g < routeFirst[r] + routeSegments[r]; g++) used[g] = true;
+        }
+        int[] unused = new int[segmentCount];
+        int unusedCount = 0;
+        for (int g = 0; g < segmentCount; g++) if (!used[g]) unused[unusedCount++] = g;
+        if (blocks > 0 && (closures + blocks - 1) / blocks > unusedCount) {
+            throw new IllegalArgumentException(closures + " closures over " + blocks + " blocks close more segments"
+                    + " in a block than the " + unusedCount + " segments no route uses.");
+        }
+
+        // Spread the closures evenly over the blocks, each block drawing its segments without replacement
+        int[] closuresBefore = new int[blocks + 1];
+        for (int b = 0; b < blocks; b++) closuresBefore[b + 1] = (int) ((long) closures * (b + 1) / blocks);
+        int[] closed = new int[closures];
+        for (int b = 0; b < blocks; b++) {
+            for (int c = closuresBefore[b], drawn = 0; c < closuresBefore[b + 1]; c++, drawn++) {
+                int pick = drawn + random.nextInt(unusedCount - drawn);
+                int segment = unused[pick];
+                unused[pick] = unused[drawn];
+                unused[drawn] = segment;
+                closed[c] = segment;
+            }
+        }
+
+        // Time instance 0: the network and the trains
+        line(out, "0");
+        header(out, SectionType.Stations, stations);
+        for (int s = 0; s < stations; s++) line(out, station(s));
+        header(out, SectionType.Segments, segmentCount);
+        for (int g = 0; g < segmentCount; g++) line(out, "g" + g + ": " + station(from[g]) + ": " + station(to[g]));
+        header(out, SectionType.Routes, routes);
+        for (int r = 0; r < routes; r++) {
+            StringBuilder route = new StringBuilder("R").append(r).append(": false: ");
+            for (int g = routeFirst[r]; g < routeFirst[r] + routeSegments[r]; g++) {
+                route.append(g == routeFirst[r] ? "g" : "; g").append(g);
+            }
+            line(out, route.toString());
+        }
+        header(out, SectionType.Trains, trains);
+        for (int t = 0; t < trains; t++) line(out, "T" + t + ":" + trainWait[t] + ": R" + trainRoute[t] + ": all");
+
+        // The blocks after it: registrations, closures, and the openings of the segments closed in the block before,
+        // then a last block that only opens the segments closed in the last one, if any were
+        int time = 0;
+        for (int b = 0; b <= blocks; b++) {
+            if (b == blocks && closuresBefore[b] == (b == 0 ? 0 : closuresBefore[b - 1])) break;
+            time += 1 + random.nextInt(MAX_GAP);
+            line(out, Integer.toString(time));
+            int firstTrain = (int) ((long) trains * b / blocks);
+            int lastTrain = b == blocks ? firstTrain : (int) ((long) trains * (b + 1) / blocks);
+            if (lastTrain > firstTrain) {
+                header(out, SectionType.Trains, lastTrain - firstTrain);
+                for (int t = firstTrain; t < lastTrain; t++) {
+                    line(out, "T" + t + ":" + trainWait[t] + ": R" + trainRoute[t] + ": "
+                            + stops(random, from, to, routeFirst[trainRoute[t]], routeSegments[trainRoute[t]]));
+                }
+            }
+            int opened = b == 0 ? 0 : closuresBefore[b] - closuresBefore[b - 1];
+            int closedNow = b == blocks ? 0 : closuresBefore[b + 1] - closuresBefore[b];
+            if (opened + closedNow > 0) {
+                header(out, SectionType.Events, opened + closedNow);
+                for (int c = b == 0 ? 0 : closuresBefore[b - 1]; c < closuresBefore[b]; c++) {
+                    line(out, "Open: Segment: g" + closed[c]);
+                }
+                for (int c = closuresBefore[b]; c < closuresBefore[b] + closedNow; c++) {
+                    line(out, "Close: Segment: g" + closed[c]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Arranges the stations into the lines of the network shape.
+     *
+     * @return the lines, each made of the indexes of its stations in order
+     */
+    private List<int[]> stationLines() {
+        List<int[]> result = new ArrayList<>();
+        switch (shape) {
+            case Linear -> result.add(range(0, stations));
+            case HubAndSpoke -> {
+                // Every spoke starts at the hub, station 0
+                int spokes = Math.min(lines, stations - 1);
+                for (int l = 0; l < spokes; l++) {
+                    int first = 1 + (int) ((long) (stations - 1) * l / spokes);
+                    int last = 1 + (int) ((long) (stations - 1) * (l + 1) / spokes);
+                    int[] spoke = new int[last - first + 1];
+                    for (int s = first; s < last; s++) spoke[s - first + 1] = s;
+                    result.add(spoke);
+                }
+            }
+            case Grid -> {
+                int columns = (int) Math.ceil(Math.sqrt(stations));
+                for (int row = 0; row * columns < stations; row++) {
+                    result.add(range(row * columns, Math.min((row + 1) * columns, stations)));
+                }
+                for (int column = 0; column < columns; column++) {
+                    int[] line = new int[(stations - column + columns - 1) / columns];
+                    for (int s = 0; s < line.length; s++) line[s] = column + s * columns;
+                    result.add(line);
+                }
+            }
+            case Disconnected -> {
+                int count = Math.min(lines, stations);
+                for (int l = 0; l < count; l++) {
+                    result.add(range((int) ((long) stations * l / count), (int) ((long) stations * (l + 1) / count)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Chooses the stops of a train: every station of its route, or some of them in route order.
+     *
+     * @param random   the random choices
+     * @param from     the start station of each segment
+     * @param to       the end station of each segment
+     * @param first    the first segment of the route
+     * @param segments the number of segments of the route
+     * @return the stops, as they are written in a train line
+     */
+    private static String stops(Random random, int[] from, int[] to, int first, int segments) {
+        if (random.nextBoolean()) return "all";
+        StringBuilder stops = new StringBuilder();
+        for (int s = 0; s <= segments; s++) {
+            int station = s == 0 ? from[first] : to[first + s - 1];
+            // Always stop somewhere: at the end of the route if nowhere before it
+            if (random.nextBoolean() || s == segments && stops.isEmpty()) {
+                stops.append(stops.isEmpty() ? "" : "; ").append(station(station));
+            }
+        }
+        return stops.toString();
+    }
+
+    /**
+     * Returns the indexes from first to last, excluded.
+     *
+     * @param first the first index
+     * @param last  the index after the last one
+     * @return the indexes
+     */
+    private static int[] range(int first, int last) {
+        int[] range = new int[last - first];
+        for (int i = 0; i < range.length; i++) range[i] = first + i;
+        return range;
+    }
+
+    /**
+     * Returns the name of a station.
+     *
+     * @param index the index of the station
+     * @return the name of the station
+     */
+    private static String station(int index) {
+        return "S" + index;
+    }
+
+    /**
+     * Writes the header line of a section.
+     *
+     * @param out  the writer
+     * @param type the type of the section
+     * @param size the number of lines of the section
+     * @throws IOException if the line cannot be written
+     */
+    private static void header(Writer out, SectionType type, int size) throws IOException {
+        line(out, type.getDescription() + ": " + size);
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param out  the writer
+     * @param line the line, without its line terminator
+     * @throws IOException if the line cannot be written
+     */
+    private static void line(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a scenario file.
+     * The first argument is the path to the file; the others are settings written as key=value, where the keys
+     * are shape, seed, stations, segments, lines, routes, routeLength, trains, closures and blocks.
+     *
+     * @param args the path to the file and the settings
+     * @throws IOException              if the file cannot be written
+     * @throws IllegalArgumentException if a setting is unknown or out of range
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ScenarioGenerator <file> [shape=Linear|HubAndSpoke|Grid|Disconnected] [seed=N]"
+                    + " [stations=N] [segments=N] [lines=N] [routes=N] [routeLength=N] [trains=N] [closures=N]"
+                    + " [blocks=N]");
+            return;
+        }
+        NetworkShape shape = NetworkShape.Linear;
+        long seed = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("shape=")) shape = NetworkShape.valueOf(args[i].substring(6));
+            else if (args[i].startsWith("seed=")) seed = Long.parseLong(args[i].substring(5));
+        }
+        ScenarioGenerator generator = new ScenarioGenerator(shape, seed);
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) throw new IllegalArgumentException("Expected key=value: " + args[i]);
+            String key = args[i].substring(0, equals);
+            String value = args[i].substring(equals + 1);
+            switch (key) {
+                case "shape", "seed" -> {
+                }
+                case "stations" -> generator.setStations(Integer.parseInt(value));
+                case "segments" -> generator.setSegments(Integer.parseInt(value));
+                case "lines" -> generator.setLines(Integer.parseInt(value));
+                case "routes" -> generator.setRoutes(Integer.parseInt(value));
+                case "routeLength" -> generator.setRouteLength(Integer.parseInt(value));
+                case "trains" -> generator.setTrains(Integer.parseInt(value));
+                case "closures" -> generator.setClosures(Integer.parseInt(value));
+                case "blocks" -> generator.setBlocks(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown setting: " + key);
+            }
+        }
+        generator.write(args[0]);
+    }
+}
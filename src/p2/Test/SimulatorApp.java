@@ -1,35 +1,87 @@
 package p2.Test;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.collections.ObservableListBase;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import p2.Events.Event;
+import p2.Logging.LogView;
 import p2.Logging.Simulator;
 
 public class SimulatorApp extends Application {
+    // The height of a row of the log, fixed so that the list never measures its rows
+    private static final double ROW_HEIGHT = 24;
+    // The time between two looks for new events while the simulation runs, in nanoseconds
+    private static final long REFRESH_NANOS = 250_000_000L;
+
     private Simulator simulator; // Your Simulator class
-    private TextArea logArea;    // Text area for simulator logs
+    private ListView<Event> logList; // List of the logged events, which only renders the rows on screen
+    // The rows of the log list
+    private LogRows rows;
+    // The filter of the rows: the object, or null for every object, and the range of time instants
+    private String filterObject;
+    private int filterFrom = Integer.MIN_VALUE;
+    private int filterTo = Integer.MAX_VALUE;
+    // The fields of the filter and of the time instant to jump to
+    private final TextField objectField = new TextField();
+    private final TextField fromField = new TextField();
+    private final TextField toField = new TextField();
+    private final TextField jumpField = new TextField();
+    // The number of rows shown, or the last error
+    private final Label status = new Label();
 
     @Override
     public void start(Stage primaryStage) throws Exception {
         simulator = new Simulator("C://Users//asonj//IdeaProjects//atms2p2//src//p2//Test//TestFile");  // Adjust a path as necessary
-        logArea = new TextArea();
-        logArea.setEditable(false);
+        // The events are shown from the event log, so the text log is not needed
+        simulator.setTextLogEnabled(false);
 
-        // Bind the TextArea's text property to the simulator's log property
-        logArea.textProperty().bind(simulator.logProperty());
+        rows = new LogRows(simulator.view(null, filterFrom, filterTo));
+        logList = new ListView<>(rows);
+        logList.setFixedCellSize(ROW_HEIGHT);
+        VBox.setVgrow(logList, Priority.ALWAYS);
 
         Button startButton = new Button("Start Simulation");
         startButton.setOnAction(e -> runSimulation());
 
-        VBox root = new VBox(10, startButton, logArea);
-        Scene scene = new Scene(root, 500, 400);
+        objectField.setPromptText("Object");
+        fromField.setPromptText("From time");
+        toField.setPromptText("To time");
+        Button filterButton = new Button("Filter");
+        filterButton.setOnAction(e -> applyFilter());
+        jumpField.setPromptText("Time");
+        Button jumpButton = new Button("Jump");
+        jumpButton.setOnAction(e -> jumpToTime());
+        HBox filters = new HBox(10, objectField, fromField, toField, filterButton, jumpField, jumpButton);
+
+        // Look for new events once per pulse at most, and only every REFRESH_NANOS
+        new AnimationTimer() {
+            private long lastRefresh;
+
+            @Override
+            public void handle(long now) {
+                if (now - lastRefresh < REFRESH_NANOS) return;
+                lastRefresh = now;
+                if (simulator.logSize() != rows.view.getLogSize())
+                    rows.grow(simulator.view(filterObject, filterFrom, filterTo));
+            }
+        }.start();
+
+        VBox root = new VBox(10, startButton, filters, logList, status);
+        Scene scene = new Scene(root, 800, 600);
 
         primaryStage.setTitle("Simulator Control");
         primaryStage.setScene(scene);
         primaryStage.show();
+        showCount();
     }
 
     private void runSimulation() {
@@ -38,12 +90,112 @@ public class SimulatorApp extends Application {
                 simulator.simulate();
             } catch (Exception e) {
                 javafx.application.Platform.runLater(() -> {
-                    logArea.appendText("Failed to run simulation: " + e.getMessage() + "\n");
+                    status.setText("Failed to run simulation: " + e.getMessage());
                 });
             }
         }).start();
     }
 
+    /**
+     * Shows the events that match the fields of the filter; a blank field does not filter.
+     */
+    private void applyFilter() {
+        String object = objectField.getText().trim();
+        Integer from = parseTime(fromField, Integer.MIN_VALUE);
+        Integer to = parseTime(toField, Integer.MAX_VALUE);
+        if (from == null || to == null) return;
+        filterObject = object.isEmpty() ? null : object;
+        filterFrom = from;
+        filterTo = to;
+        // The list is scrolled back to the top for the new rows
+        rows = new LogRows(simulator.view(filterObject, filterFrom, filterTo));
+        logList.setItems(rows);
+        showCount();
+    }
+
+    /**
+     * Scrolls to and selects the first row in or after the time instant of the jump field.
+     */
+    private void jumpToTime() {
+        Integer time = parseTime(jumpField, null);
+        if (time == null) return;
+        int row = Math.min(rows.view.indexOfTime(time), rows.size() - 1);
+        if (row < 0) return;
+        logList.scrollTo(row);
+        logList.getSelectionModel().select(row);
+    }
+
+    /**
+     * Reads a time instant from a field, showing an error if the field holds something else.
+     *
+     * @param field The field.
+     * @param blank The value of a blank field.
+     * @return The time instant, or null if the field is not a time instant.
+     */
+    private Integer parseTime(TextField field, Integer blank) {
+        String text = field.getText().trim();
+        if (text.isEmpty()) {
+            if (blank == null) status.setText("Enter a time instant.");
+            return blank;
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            status.setText("Not a time instant: " + text);
+            return null;
+        }
+    }
+
+    /**
+     * Shows the number of rows and of events logged.
+     */
+    private void showCount() {
+        status.setText(rows.size() + " of " + rows.view.getLogSize() + " events");
+    }
+
+    /**
+     * LogRows are the rows of the log list, read from a view of the event log rather than copied.
+     */
+    private final class LogRows extends ObservableListBase<Event> {
+        // The view the rows are read from
+        private LogView view;
+
+        /**
+         * Constructs the rows of a view.
+         *
+         * @param view The view.
+         */
+        LogRows(LogView view) {
+            this.view = view;
+        }
+
+        /**
+         * Replaces the view with a view of the same filter made later, adding the rows of the events logged since.
+         *
+         * @param later The later view.
+         */
+        void grow(LogView later) {
+            int before = view.size();
+            view = later;
+            if (later.size() > before) {
+                beginChange();
+                nextAdd(before, later.size());
+                endChange();
+            }
+            showCount();
+        }
+
+        @Override
+        public Event get(int index) {
+            return view.get(index);
+        }
+
+        @Override
+        public int size() {
+            return view.size();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
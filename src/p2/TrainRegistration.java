@@ -0,0 +1,64 @@
+package p2;
+
+/**
+ * The TrainRegistration class is one line of a timetable: a train, the route it is registered to and the stations
+ * it stops at. A block of registrations is handed to TrainSystem.registerTrains() at once.
+ */
+public final class TrainRegistration {
+    // The name of the train to register
+    private final String trainName;
+    // The name of the route to register the train to
+    private final String routeName;
+    // The stops of the train, empty to stop at every station of the route
+    private final String[] stops;
+
+    /**
+     * Constructs a registration of a train to a route.
+     *
+     * @param trainName the name of the train to register
+     * @param routeName the name of the route to register the train to
+     * @param stops     the stops of the train, empty to stop at every station of the route
+     */
+    public TrainRegistration(String trainName, String routeName, String[] stops) {
+        this.trainName = trainName;
+        this.routeName = routeName;
+        this.stops = stops;
+    }
+
+    /**
+     * Returns the name of the train to register.
+     *
+     * @return the name of the train
+     */
+    public String getTrainName() {
+        return trainName;
+    }
+
+    /**
+     * Returns the name of the route to register the train to.
+     *
+     * @return the name of the route
+     */
+    public String getRouteName() {
+        return routeName;
+    }
+
+    /**
+     * Returns the stops of the train.
+     *
+     * @return the stops of the train, empty to stop at every station of the route
+     */
+    public String[] getStops() {
+        return stops;
+    }
+
+    /**
+     * Returns a string representation of the registration.
+     *
+     * @return the registration in the format of a timetable line
+     */
+    @Override
+    public String toString() {
+        return trainName + ": " + routeName + ": " + (stops.length == 0 ? "all" : String.join(";", stops));
+    }
+}
@@ -1,18 +1,40 @@
 package p2;
 
+import p2.Enums.Light;
 import p2.Enums.ObjectType;
+import p2.Enums.RSStatus;
 import p2.Enums.SystemStatus;
 import p2.Enums.TrainStatus;
 import p2.Events.Event;
+import p2.Interfaces.ClockView;
 import p2.Interfaces.IsVerifiable;
+import p2.Interfaces.Reportable;
 import p2.Logging.Route;
+import p2.Logging.RouteTopology;
 import p2.Logging.Segment;
+import p2.Logging.SegmentStateTable;
 import p2.Logging.Station;
+import p2.Logging.StopPlan;
 import p2.Logging.Train;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -20,19 +42,53 @@ import java.util.stream.Collectors;
  * It implements IsVerifiable and IsMovable interfaces.
  * A TrainSystem has a status, a list of stations, segments, routes, and trains.
  */
-public class TrainSystem implements IsVerifiable {
+public class TrainSystem implements IsVerifiable, Reportable {
+    // Represents the stations in the train system, indexed by name
+    private final Registry<Station> stationRegistry = new Registry<>(Station::getName);
+    // Represents the segments in the train system, indexed by name
+    private final Registry<Segment> segmentRegistry = new Registry<>(Segment::getName);
+    // Represents the routes in the train system, indexed by name
+    private final Registry<Route> routeRegistry = new Registry<>(Route::getName);
+    // Represents the trains in the train system, indexed by name
+    private final Registry<Train> trainRegistry = new Registry<>(Train::getName);
+    // Represents the trains in the train system, indexed by id
+    private final HashMap<Integer, Train> trainsById = new HashMap<>();
     // Represents a list of stations in the train system
-    private final ArrayList<Station> stations = new ArrayList<>();
+    private final ArrayList<Station> stations = stationRegistry.list();
     // Represents a list of segments in the train system
-    private final ArrayList<Segment> segments = new ArrayList<>();
+    private final ArrayList<Segment> segments = segmentRegistry.list();
     // Represents a list of routes in the train system
-    private final ArrayList<Route> routes = new ArrayList<>();
+    private final ArrayList<Route> routes = routeRegistry.list();
     // Represents a list of trains in the train system
-    private final ArrayList<Train> trains = new ArrayList<>();
+    private final ArrayList<Train> trains = trainRegistry.list();
+    // Represents the trains that have not been registered to a route yet
+    private final HashSet<Train> waitingTrains = new HashSet<>();
+    // Represents the registered trains, in the order they were added
+    private final TreeSet<Train> activeTrains = new TreeSet<>(Comparator.comparingInt(Train::getId));
+    // Represents the trains that have finished their route
+    private final HashSet<Train> completedTrains = new HashSet<>();
+    // Represents the countdown already applied to the wait time of each train that is not active
+    private final HashMap<Train, Long> countdownMarks = new HashMap<>();
+    // Represents the sum of the time instants at which advance() counted the wait times down
+    private long countdown = 0;
+    // Represents the number of trains at a station with the same name as the end of their route
+    private int trainsAtDestination = 0;
+    // Set once closureHinderingMovement() has returned false, as it can never return true afterwards
+    private boolean movementUnhindered = false;
+    // Represents the number of threads that advance the trains, 1 to advance them sequentially
+    private int parallelism = 1;
+    // Represents the pool that advances independent partitions of the network, or null until it is first needed
+    private ForkJoinPool pool;
+    // Represents the partition of the network each route belongs to, built when the system starts working
+    private HashMap<Route, Integer> partitions;
+    // Represents the number of partitions of the network
+    private int partitionCount;
     // Represents the status of the train system
     private SystemStatus status = SystemStatus.Initialised;
-    // Create a system time
-    private int currentTime = 0;
+    // The clock shared by every entity of the train system
+    private final SimulationClock clock = new SimulationClock();
+    // The packed status, light and occupant of every segment of the train system
+    private final SegmentStateTable segmentStates = new SegmentStateTable();
 
     /**
      * Constructs a new TrainSystem with the initial status.
@@ -47,53 +103,54 @@ public class TrainSystem implements IsVerifiable {
      */
     @Override
     public String toString() {
-        StringBuilder sts = new StringBuilder("[");
-        if (stations.isEmpty())
-            sts.append("none]");
-        else { // extract helper method for this
-            Station[] acc1 = stations.toArray(new Station[0]);
-            Arrays.sort(acc1);
-            List<Station> ss = Arrays.asList(acc1);
-            for (Station s : ss)
-                sts.append(ss.indexOf(s) == 0 ? "\n\t" : "\t").append(s).append(ss.indexOf(s) != ss.size() - 1 ? "\n" : "\n\t]");
-        }
-
-        StringBuilder sgs = new StringBuilder("[");
-        if (segments.isEmpty())
-            sgs.append("none]");
-        else {
-            Segment[] acc1 = segments.toArray(new Segment[0]);
-            Arrays.sort(acc1);
-            List<Segment> ss = Arrays.asList(acc1);
-            for (Segment s : ss)
-                sgs.append(ss.indexOf(s) == 0 ? "\n\t" : "\t").append(s).append(ss.indexOf(s) != ss.size() - 1 ? "\n" : "\n\t]");
+        StringBuilder str = new StringBuilder();
+        try {
+            report(str);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return str.toString();
+    }
 
-        StringBuilder rts = new StringBuilder("[");
-        if (routes.isEmpty())
-            rts.append("none]");
-        else {
-            Route[] acc1 = routes.toArray(new Route[0]);
-            Arrays.sort(acc1);
-            List<Route> ss = Arrays.asList(acc1);
-            for (Route s : ss)
-                rts.append(ss.indexOf(s) == 0 ? "\n\t" : "\t").append(s).append(ss.indexOf(s) != ss.size() - 1 ? "\n" : "\n\t]");
-        }
+    /**
+     * Writes the report of the train system: its status, whether it verifies, and its trains, routes, segments and
+     * stations one per line. The routes, segments and stations are listed in their natural order, and the trains
+     * in the order they were added.
+     *
+     * @param out the destination of the report
+     * @throws IOException if the destination cannot be written to
+     */
+    @Override
+    public void report(Appendable out) throws IOException {
+        out.append("---------- ---------- ---------- ---------- ---------- ----------\nTrainSystem [\n\nstatus=")
+                .append(currentStatus().getDescription()).append("\nverified=").append(verify() ? "Yes" : "No");
+        out.append("\n\ntrains=");
+        reportList(out, trains);
+        out.append("\n\nroutes=");
+        reportList(out, routeRegistry.sorted(Comparator.naturalOrder()));
+        out.append("\n\nsegments=");
+        reportList(out, segmentRegistry.sorted(Comparator.naturalOrder()));
+        out.append("\n\nstations=");
+        reportList(out, stationRegistry.sorted(Comparator.naturalOrder()));
+        out.append("\n]\n---------- ---------- ---------- ---------- ---------- ----------");
+    }
 
-        StringBuilder tns = new StringBuilder("[");
-        if (trains.isEmpty())
-            tns.append("none]");
+    /**
+     * Writes a list of entities of the report, one per line.
+     *
+     * @param out      the destination of the report
+     * @param entities the entities
+     * @throws IOException if the destination cannot be written to
+     */
+    private static void reportList(Appendable out, List<?> entities) throws IOException {
+        out.append("[");
+        if (entities.isEmpty())
+            out.append("none]");
         else {
-            Train[] acc1 = trains.toArray(new Train[0]);
-            Arrays.sort(acc1);
-            List<Train> ss = Arrays.asList(acc1);
-            for (Train s : trains)
-                tns.append(ss.indexOf(s) == 0 ? "\n\t" : "\t").append(s).append(ss.indexOf(s) != ss.size() - 1 ? "\n" : "\n\t]");
+            for (int i = 0; i < entities.size(); i++)
+                out.append(i == 0 ? "\n\t" : "\t").append(entities.get(i).toString())
+                        .append(i != entities.size() - 1 ? "\n" : "\n\t]");
         }
-        return "---------- ---------- ---------- ---------- ---------- ----------\nTrainSystem [\n\nstatus="
-                + currentStatus().getDescription() + "\nverified=" + (verify() ? "Yes" : "No") + "\n\ntrains=" + tns
-                + "\n\nroutes=" + rts + "\n\nsegments=" + sgs + "\n\nstations=" + sts
-                + "\n]\n---------- ---------- ---------- ---------- ---------- ----------";
     }
 
     /**
@@ -102,18 +159,146 @@ public class TrainSystem implements IsVerifiable {
      * @return the current time of the train system
      */
     public int getCurrentTime() {
-        return currentTime;
+        return clock.now();
     }
 
     /**
-     * Sets the current time of the train system.
+     * Returns a read-only view of the clock shared by the entities of the train system.
+     *
+     * @return a read-only view of the clock
+     */
+    public ClockView getClock() {
+        return clock.view();
+    }
+
+    /**
+     * Moves the time of the train system forward by one instant.
      */
     public void incrementTime() {
-        this.currentTime++;
-        stations.forEach(station -> station.setCurrentTime(currentTime));
-        segments.forEach(segment -> segment.setCurrentTime(currentTime));
-        routes.forEach(route -> route.setCurrentTime(currentTime));
-        trains.forEach(train -> train.setCurrentTime(currentTime));
+        clock.tick();
+    }
+
+    /**
+     * Moves the train system forward to the given time instant, as if advance() had been called for every instant
+     * in between without anything happening. It must only be used to skip instants that the EventScheduler found
+     * to be idle.
+     *
+     * @param instant the time instant to move to
+     * @throws IllegalArgumentException if the instant is in the past
+     */
+    public void fastForward(int instant) {
+        if (instant < getCurrentTime()) {
+            throw new IllegalArgumentException("Cannot move the train system back in time.");
+        }
+        int firstSkipped = getCurrentTime() + 1;
+        // advance() returns before touching the trains while they have all reached their destination
+        boolean trainsAdvance = !allTrainsReachedDestination();
+        clock.advanceTo(instant);
+        if (instant < firstSkipped || !trainsAdvance) return;
+        long skipped = ((long) firstSkipped + instant) * (instant - firstSkipped + 1) / 2;
+        countdown += skipped;
+        for (Train train : activeTrains) {
+            // A train held at a closure has its wait time reset on every instant, any other train counts down
+            if (isHeldByClosure(train)) train.resetWaitTimeRemaining();
+            else train.countDownWaitTime(skipped);
+        }
+    }
+
+    /**
+     * Schedules the next instant at which advancing the train system can change anything other than the wait times
+     * of its trains.
+     *
+     * @param scheduler the scheduler to add the instants to
+     */
+    void scheduleWakeups(EventScheduler scheduler) {
+        int next = getCurrentTime() + 1;
+        if (currentStatus() == SystemStatus.Deadlocked
+                || (currentStatus() != SystemStatus.Finished && allTrainsReachedDestination())) {
+            scheduler.schedule(next, EventScheduler.Reason.Immediate);
+            return;
+        }
+        if (allTrainsReachedDestination()) return;
+        for (Train train : activeTrains) {
+            scheduleWakeup(train, scheduler);
+            if (scheduler.earliest() == next) return;
+        }
+    }
+
+    /**
+     * Schedules the next instant at which advancing a train can change anything other than its wait time.
+     * This mirrors the checks made by advance(), checkTrainStatus() and processSegmentTransition().
+     *
+     * @param train     the train to schedule
+     * @param scheduler the scheduler to add the instant to
+     */
+    private void scheduleWakeup(Train train, EventScheduler scheduler) {
+        int next = getCurrentTime() + 1;
+        if (!train.isRegistered()) return;
+        if (train.isAtStart() && train.getStatus() != TrainStatus.Started) {
+            scheduler.schedule(train.firstInstantNotWaiting(getCurrentTime()), EventScheduler.Reason.TrainStart);
+            return;
+        }
+        if (train.getStatus() != TrainStatus.Started) return;
+        if (train.isAtDestination() || train.getCurrentSegment() == null) {
+            scheduler.schedule(next, EventScheduler.Reason.Immediate);
+            return;
+        }
+        Station currentStation = getStationByName(train.currentStation());
+        Station nextStation = getStationByName(train.nextStation());
+        if (currentStation == null || nextStation == null) {
+            scheduler.schedule(next, EventScheduler.Reason.Immediate);
+            return;
+        }
+        if (!(nextStation.verify() && currentStation.isOpen())) return;
+        Segment segment = train.getCurrentSegment();
+        if (segment.hasTrain() && !segment.isOpen()) {
+            scheduler.schedule(next, EventScheduler.Reason.SegmentRelease);
+        } else if (train.isAtDesignatedStop()) {
+            scheduler.schedule(next, EventScheduler.Reason.Immediate);
+        } else if (!segment.hasTrain() && segment.isOpen()) {
+            scheduler.schedule(train.firstInstantNotWaiting(getCurrentTime()), EventScheduler.Reason.DwellExpiry);
+        }
+    }
+
+    /**
+     * Checks if a started train is held at its station by a closed station or a closed, empty segment.
+     * Such a train has its wait time reset on every instant until the closure is lifted.
+     *
+     * @param train the train to check
+     * @return true if the train is held by a closure, false otherwise
+     */
+    private boolean isHeldByClosure(Train train) {
+        if (!train.isRegistered() || train.getStatus() != TrainStatus.Started) return false;
+        if (!getStationByName(train.nextStation()).verify() || !getStationByName(train.currentStation()).isOpen())
+            return true;
+        return !train.getCurrentSegment().hasTrain() && !train.getCurrentSegment().isOpen();
+    }
+
+    /**
+     * Returns the number of trains that have not been registered to a route yet.
+     *
+     * @return the number of waiting trains
+     */
+    public int getWaitingTrainCount() {
+        return waitingTrains.size();
+    }
+
+    /**
+     * Returns the number of trains registered to a route.
+     *
+     * @return the number of active trains
+     */
+    public int getActiveTrainCount() {
+        return activeTrains.size();
+    }
+
+    /**
+     * Returns the number of trains that have finished their route.
+     *
+     * @return the number of completed trains
+     */
+    public int getCompletedTrainCount() {
+        return completedTrains.size();
     }
 
     /**
@@ -163,7 +348,7 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        this.stations.add(new Station(sName));
+        stationRegistry.add(new Station(sName, clock));
     }
 
     /**
@@ -177,7 +362,7 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        stations.removeIf(station -> station.getName().equals(sName));
+        stationRegistry.removeIf(station -> station.getName().equals(sName));
     }
 
     /**
@@ -212,7 +397,7 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        segments.add(new Segment(sName, start, sEnd));
+        segmentRegistry.add(new Segment(sName, start, sEnd, clock, segmentStates));
     }
 
     /**
@@ -226,7 +411,7 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        segments.removeIf(segment -> segment.getName().equals(sName));
+        segmentRegistry.removeIf(segment -> segment.getName().equals(sName));
     }
 
     /**
@@ -264,11 +449,11 @@ public class TrainSystem implements IsVerifiable {
         }
 
         ArrayList<Segment> segments = getSegmentsFromNames(rSegments);
-        Route route = new Route(rName, isRoundTrip, segments);
+        Route route = new Route(rName, isRoundTrip, segments, clock);
         ArrayList<Station> orderedStations = getOrderedStations(segments);
 
         route.addStations(orderedStations);
-        routes.add(route);
+        routeRegistry.add(route);
     }
 
     /**
@@ -321,7 +506,7 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        routes.removeIf(route -> route.getName().equals(rName));
+        routeRegistry.removeIf(route -> route.getName().equals(rName));
     }
 
     /**
@@ -330,7 +515,8 @@ public class TrainSystem implements IsVerifiable {
      * @param rName the name of the route to be opened
      */
     public Event openRoute(String rName) {
-        return (getRouteByName(rName).verify()) ? getRouteByName(rName).open() : null;
+        Route route = getRouteByName(rName);
+        return (route.verify()) ? route.open() : null;
     }
 
     /**
@@ -352,7 +538,11 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        trains.add(new Train(name, startTime));
+        Train train = new Train(name, startTime, clock);
+        trainRegistry.add(train);
+        trainsById.put(train.getId(), train);
+        waitingTrains.add(train);
+        countdownMarks.put(train, countdown);
     }
 
     /**
@@ -366,7 +556,14 @@ public class TrainSystem implements IsVerifiable {
         if (currentStatus() != SystemStatus.Initialised) {
             throw new IllegalStateException("System is not in the Initialised state.");
         }
-        trains.removeIf(train -> train.getId() == id);
+        Train removed = trainsById.remove(id);
+        if (removed == null) return;
+        trainRegistry.removeIf(train -> train == removed);
+        waitingTrains.remove(removed);
+        activeTrains.remove(removed);
+        completedTrains.remove(removed);
+        countdownMarks.remove(removed);
+        if (removed.isAtDestination()) trainsAtDestination--;
     }
 
     /**
@@ -377,22 +574,95 @@ public class TrainSystem implements IsVerifiable {
      * @param stations  the stops of the train
      */
     public void registerTrain(String trainName, String routeName, String[] stations) {
-        ArrayList<String> stops = Arrays.stream(stations).collect(Collectors.toCollection(ArrayList::new));
-        // Find the train with the provided ID
-        Train train = this.trains.stream().filter(train1 -> train1.getName().equals(trainName)).findFirst().orElse(null);
-        // Find the route with the provided name
-        Route route = this.routes.stream().filter(route1 -> route1.getName().equals(routeName)).findFirst().orElse(null);
-
-        // If the train and route are found, and the train is not yet registered, and the route is verified and open
-        if (train != null && route != null && !train.isRegistered()) {
-            ArrayList<String> allStations = route.getStationList().stream()
-                    .map(Station::getName)
-                    .collect(Collectors.toCollection(ArrayList::new));
+        registerTrains(List.of(new TrainRegistration(trainName, routeName, stations)));
+    }
+
+    /**
+     * Registers a block of trains to their routes in the train system.
+     * The trains and routes are resolved in one pass and registrations that name an unknown train or route, or a
+     * train that is already registered, are skipped. Trains with the same stops on the same route share one
+     * stop plan. The registrations are applied in order, so a train listed twice is registered by its first line.
+     *
+     * @param registrations the registrations to apply
+     * @return the number of trains registered
+     */
+    public int registerTrains(List<TrainRegistration> registrations) {
+        // Resolve every name before changing anything
+        Train[] trains = new Train[registrations.size()];
+        Route[] targets = new Route[registrations.size()];
+        for (int i = 0; i < trains.length; i++) {
+            trains[i] = getTrainByName(registrations.get(i).getTrainName());
+            targets[i] = getRouteByName(registrations.get(i).getRouteName());
+        }
+
+        HashMap<Route, HashMap<List<String>, StopPlan>> plans = new HashMap<>();
+        ArrayList<Train> registered = new ArrayList<>(trains.length);
+        for (int i = 0; i < trains.length; i++) {
+            Train train = trains[i];
+            Route route = targets[i];
+            // If the train and route are found, and the train is not yet registered
+            if (train == null || route == null || train.isRegistered()) continue;
+            List<String> stops = List.of(registrations.get(i).getStops());
             // Register the train to the route with the provided start time
+            boolean wasAtDestination = train.isAtDestination();
             train.setCurrentRoute(route);
-            train.setDesignatedStops((stops.isEmpty()) ? allStations : stops);
             train.register(getCurrentTime());
+            // Trains stopping everywhere share the plan of the route
+            train.setStopPlan(stops.isEmpty() ? route.getTopology().allStops() : plans
+                    .computeIfAbsent(route, key -> new HashMap<>())
+                    .computeIfAbsent(stops, key -> StopPlan.of(key, route.getTopology())));
+            trainsAtDestination += destinationChange(train, wasAtDestination);
+            registered.add(train);
         }
+        registered.forEach(this::activate);
+        return registered.size();
+    }
+
+    /**
+     * Moves a train into the active set, first applying the countdown it missed while it was not active.
+     *
+     * @param train the train to activate
+     */
+    private void activate(Train train) {
+        Long mark = countdownMarks.remove(train);
+        if (mark != null) train.countDownWaitTime(countdown - mark);
+        waitingTrains.remove(train);
+        completedTrains.remove(train);
+        activeTrains.add(train);
+    }
+
+    /**
+     * Moves a train from the active set into the completed set.
+     *
+     * @param train the train that has finished its route
+     */
+    private void complete(Train train) {
+        activeTrains.remove(train);
+        completedTrains.add(train);
+        countdownMarks.put(train, countdown);
+    }
+
+    /**
+     * Returns how the count of trains at their destination changes after a train has moved.
+     *
+     * @param train            the train that has moved
+     * @param wasAtDestination whether the train was at its destination before it moved
+     * @return -1, 0 or 1
+     */
+    private static int destinationChange(Train train, boolean wasAtDestination) {
+        if (wasAtDestination == train.isAtDestination()) return 0;
+        return wasAtDestination ? -1 : 1;
+    }
+
+    /**
+     * Returns the wait time remaining of a train, including the countdown it has missed while not active.
+     *
+     * @param train the train
+     * @return the wait time remaining of the train
+     */
+    private int waitTimeRemaining(Train train) {
+        Long mark = countdownMarks.get(train);
+        return mark == null ? train.getWaitTimeRemaining() : (int) (train.getWaitTimeRemaining() - (countdown - mark));
     }
 
     /**
@@ -401,10 +671,11 @@ public class TrainSystem implements IsVerifiable {
      * @param trainName the id of the train to be deregistered
      */
     public void deRegisterTrain(String trainName) {
-        Train train = this.trains.stream().filter(train1 -> train1.getName().equals(trainName)).findFirst().orElse(null);
+        Train train = getTrainByName(trainName);
 
         if (train != null && train.isRegistered()) {
             train.deregister();
+            complete(train);
         }
     }
 
@@ -415,7 +686,7 @@ public class TrainSystem implements IsVerifiable {
      * @return true if the train system contains the station, false otherwise
      */
     public boolean containsStation(String station) {
-        return stations.stream().anyMatch(station1 -> station1.getName().equals(station.strip()));
+        return stationRegistry.contains(station);
     }
 
     /**
@@ -425,7 +696,7 @@ public class TrainSystem implements IsVerifiable {
      * @return true if the train system contains the segment, false otherwise
      */
     public boolean containsSegment(String segment) {
-        return segments.stream().anyMatch(segment1 -> segment1.getName().equals(segment));
+        return segmentRegistry.contains(segment);
     }
 
     /**
@@ -435,7 +706,7 @@ public class TrainSystem implements IsVerifiable {
      * @return true if the train system contains the route, false otherwise
      */
     public boolean containsRoute(String route) {
-        return routes.stream().anyMatch(route1 -> route1.getName().equals(route));
+        return routeRegistry.contains(route);
     }
 
     /**
@@ -445,7 +716,7 @@ public class TrainSystem implements IsVerifiable {
      * @return true if the train system contains the train, false otherwise
      */
     public boolean containsTrain(int train) {
-        return trains.stream().anyMatch(train1 -> train1.getId() == train);
+        return trainsById.containsKey(train);
     }
 
     /**
@@ -455,7 +726,7 @@ public class TrainSystem implements IsVerifiable {
      * @return the information of the station
      */
     public String getStationInfo(String station) {
-        return stations.stream().filter(station1 -> station1.getName().equals(station)).findFirst().toString();
+        return Optional.ofNullable(getStationByName(station)).toString();
     }
 
     /**
@@ -465,7 +736,7 @@ public class TrainSystem implements IsVerifiable {
      * @return the information of the segment
      */
     public String getSegmentInfo(String segment) {
-        return segments.stream().filter(segment1 -> segment1.getName().equals(segment)).findFirst().toString();
+        return Optional.ofNullable(getSegmentByName(segment)).toString();
     }
 
     /**
@@ -475,7 +746,7 @@ public class TrainSystem implements IsVerifiable {
      * @return the information of the route
      */
     public String getRouteInfo(String route) {
-        return routes.stream().filter(route1 -> route1.getName().equals(route)).findFirst().toString();
+        return Optional.ofNullable(getRouteByName(route)).toString();
     }
 
     /**
@@ -485,7 +756,7 @@ public class TrainSystem implements IsVerifiable {
      * @return the information of the train
      */
     public String getTrainInfo(int train) {
-        return trains.stream().filter(train1 -> train1.getId() == train).findFirst().toString();
+        return Optional.ofNullable(trainsById.get(train)).toString();
     }
 
     /**
@@ -493,6 +764,100 @@ public class TrainSystem implements IsVerifiable {
      */
     public void setToWorking() {
         this.status = SystemStatus.Operational;
+        if (parallelism > 1) partitionNetwork();
+    }
+
+    /**
+     * Sets how many threads advance the trains.
+     * With more than one thread, the network is split into partitions that share no segment or station, and the
+     * trains of each partition are advanced on a fork-join pool. The events are merged back into the order in
+     * which a single thread would have produced them.
+     *
+     * @param parallelism the number of threads, 1 to advance every train on the calling thread
+     * @throws IllegalArgumentException if the parallelism is less than 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        shutdown();
+        this.parallelism = parallelism;
+        partitions = null;
+        if (parallelism > 1 && currentStatus() != SystemStatus.Initialised) partitionNetwork();
+    }
+
+    /**
+     * Stops the threads that advance the trains in parallel, once the simulation is over. The parallelism is kept:
+     * if the trains are advanced again, a new pool is started.
+     */
+    public void shutdown() {
+        if (pool == null) return;
+        pool.shutdown();
+        pool = null;
+    }
+
+    /**
+     * Returns the number of partitions the network was split into for parallel advancing.
+     *
+     * @return the number of partitions, or 0 if the network has not been partitioned
+     */
+    public int getPartitionCount() {
+        return partitions == null ? 0 : partitionCount;
+    }
+
+    /**
+     * Splits the network into its connected components. Stations with the same name are the same vertex, and
+     * every segment joins its two stations. The segments of a route are joined as well, so every route, and
+     * every train on it, falls into exactly one partition.
+     */
+    private void partitionNetwork() {
+        HashMap<String, String> parent = new HashMap<>();
+        for (Segment segment : segments)
+            union(parent, segment.getSegmentStart().getName().strip(), segment.getSegmentEnd().getName().strip());
+        for (Route route : routes)
+            for (Segment segment : route.getSegmentList())
+                union(parent, route.getSegmentList().get(0).getSegmentStart().getName().strip(),
+                        segment.getSegmentStart().getName().strip());
+
+        HashMap<String, Integer> ids = new HashMap<>();
+        partitions = new HashMap<>();
+        for (Route route : routes) {
+            String root = route.getSegmentList().isEmpty() ? route.getName()
+                    : find(parent, route.getSegmentList().get(0).getSegmentStart().getName().strip());
+            partitions.put(route, ids.computeIfAbsent(root, key -> ids.size()));
+        }
+        partitionCount = ids.size();
+    }
+
+    /**
+     * Finds the representative of a station in the union-find forest, compressing the path on the way.
+     *
+     * @param parent the parent of each station
+     * @param name   the name of the station
+     * @return the name of the representative station
+     */
+    private static String find(HashMap<String, String> parent, String name) {
+        String root = name;
+        while (parent.containsKey(root) && !parent.get(root).equals(root)) root = parent.get(root);
+        while (!name.equals(root)) {
+            String next = parent.getOrDefault(name, root);
+            parent.put(name, root);
+            name = next;
+        }
+        parent.putIfAbsent(root, root);
+        return root;
+    }
+
+    /**
+     * Joins the partitions of two stations.
+     *
+     * @param parent the parent of each station
+     * @param a      the name of the first station
+     * @param b      the name of the second station
+     */
+    private static void union(HashMap<String, String> parent, String a, String b) {
+        String rootA = find(parent, a), rootB = find(parent, b);
+        if (!rootA.equals(rootB)) parent.put(rootA, rootB);
     }
 
     /**
@@ -531,20 +896,26 @@ public class TrainSystem implements IsVerifiable {
 
     /**
      * Checks if the closure is hindering the movement of the train.
+     * Once a train's wait time is no more than the current time it stays that way, since the wait time only
+     * counts down or is reset to the current time, so after the first false result the answer is remembered.
      *
      * @return true if the closure is hindering the movement of the train, false otherwise
      */
     public boolean closureHinderingMovement() {
-        return trains.stream().allMatch(train -> train.getWaitTimeRemaining() > currentTime);
+        if (movementUnhindered) return false;
+        boolean hindered = trains.stream().allMatch(train -> waitTimeRemaining(train) > getCurrentTime());
+        movementUnhindered = !hindered;
+        return hindered;
     }
 
     /**
      * Checks if all trains have reached their destination.
+     * A train that has never been registered has no destination and has not reached it.
      *
      * @return true if all trains have reached their destination, false otherwise
      */
     public boolean allTrainsReachedDestination() {
-        return trains.stream().allMatch(train -> train.getCurrentRoute().getEnd().getName().strip().equals(train.currentStation().strip()));
+        return trainsAtDestination == trains.size();
     }
 
     /**
@@ -562,40 +933,113 @@ public class TrainSystem implements IsVerifiable {
             return new ArrayList<>();
         }
 
-        List<Event> events = new ArrayList<>();
-        // Iterate over all trains
-        for (Train train : trains) {
-            // Set the trains waiting time
-            train.setWaitTimeRemaining();
-            if (train.isRegistered()) {
-                // Check if the train is at the start, it's not waiting, and it's not started
-                if (train.isAtStart() && !train.isWaiting() && train.getStatus() != TrainStatus.Started) {
-                    // Start the train
-                    events.add(train.start());
-                    // Open route
-                    if (!train.getCurrentRoute().isOpen()) events.add(openRoute(train.getCurrentRoute().getName()));
-                }
-                // Check the status of the train
-                checkTrainStatus(train, events);
+        // Trains that are not active count down in bulk when they become active again
+        countdown += getCurrentTime();
+        // Iterate over a copy of the active trains, as finished trains leave the active set
+        Train[] running = activeTrains.toArray(new Train[0]);
+        if (parallelism > 1 && partitions == null) partitionNetwork();
+        List<Event> events = (parallelism == 1) ? advanceSequentially(running) : advanceInParallel(running);
+        return events;
+    }
+
+    /**
+     * Advances the given trains one after the other on the calling thread.
+     *
+     * @param running the trains to advance, in the order they were added
+     * @return the events produced by the trains
+     */
+    private List<Event> advanceSequentially(Train[] running) {
+        AdvancePass pass = new AdvancePass(running.length);
+        for (Train train : running) pass.add(train);
+        pass.run();
+        finish(pass);
+        return pass.events;
+    }
+
+    /**
+     * Advances the trains of each partition of the network on the fork-join pool, then merges the events
+     * back into the order of the running trains.
+     *
+     * @param running the trains to advance, in the order they were added
+     * @return the events produced by the trains
+     */
+    private List<Event> advanceInParallel(Train[] running) {
+        AdvancePass[] passes = new AdvancePass[partitionCount];
+        int[] partitionOf = new int[running.length];
+        ArrayList<AdvancePass> used = new ArrayList<>();
+        for (int i = 0; i < running.length; i++) {
+            int partition = partitions.get(running[i].getCurrentRoute());
+            if (passes[partition] == null) {
+                passes[partition] = new AdvancePass(running.length);
+                used.add(passes[partition]);
             }
+            passes[partition].add(running[i]);
+            partitionOf[i] = partition;
         }
+        if (used.size() <= 1) return advanceSequentially(running);
+
+        if (pool == null) pool = new ForkJoinPool(parallelism);
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(used)));
+
+        List<Event> events = new ArrayList<>();
+        int[] trainCursor = new int[partitionCount];
+        int[] eventCursor = new int[partitionCount];
+        for (int i = 0; i < running.length; i++) {
+            AdvancePass pass = passes[partitionOf[i]];
+            int end = pass.ends[trainCursor[partitionOf[i]]++];
+            events.addAll(pass.events.subList(eventCursor[partitionOf[i]], end));
+            eventCursor[partitionOf[i]] = end;
+        }
+        for (AdvancePass pass : used) finish(pass);
         return events;
     }
 
+    /**
+     * Applies the bookkeeping that a pass deferred so that it could run alongside other passes.
+     *
+     * @param pass the pass that has run
+     */
+    private void finish(AdvancePass pass) {
+        pass.finished.forEach(this::complete);
+        trainsAtDestination += pass.destinationChange;
+    }
+
+    /**
+     * Advances one train by one time instant.
+     *
+     * @param train the train to advance
+     * @param pass  the pass collecting the results of the train
+     */
+    private void advanceTrain(Train train, AdvancePass pass) {
+        // Set the trains waiting time
+        train.setWaitTimeRemaining();
+        if (train.isRegistered()) {
+            // Check if the train is at the start, it's not waiting, and it's not started
+            if (train.isAtStart() && !train.isWaiting() && train.getStatus() != TrainStatus.Started) {
+                // Start the train
+                pass.events.add(train.start());
+                // Open route
+                if (!train.getCurrentRoute().isOpen()) pass.events.add(openRoute(train.getCurrentRoute().getName()));
+            }
+            // Check the status of the train
+            checkTrainStatus(train, pass);
+        }
+    }
+
     /**
      * Checks the status of the train.
      *
-     * @param train  The train to check the status.
-     * @param events A list of events that occur during the simulation.
+     * @param train The train to check the status.
+     * @param pass  The pass collecting the events that occur during the simulation.
      */
-    private void checkTrainStatus(Train train, List<Event> events) {
+    private void checkTrainStatus(Train train, AdvancePass pass) {
         Station currentStation = getStationByName(train.currentStation());
         Station nextStation = getStationByName(train.nextStation());
         // Check if the train is started, the current station is open, the next station is verified, and there are no closures hindering the movement
         if (train.getStatus() == TrainStatus.Started) {
             if (nextStation.verify() && currentStation.isOpen()) {
                 // Process entering and exiting the segments
-                processSegmentTransition(train, events);
+                processSegmentTransition(train, pass);
             } else {
                 // If the next station is not verified, reset the train's wait time
                 train.resetWaitTimeRemaining();
@@ -607,33 +1051,37 @@ public class TrainSystem implements IsVerifiable {
      * This method handles the transition of a train through a segment in the train system.
      * It checks the current state of the segment and the train and performs actions accordingly.
      *
-     * @param train  The train that is transitioning through the segment.
-     * @param events A list of events that occur during the simulation.
+     * @param train The train that is transitioning through the segment.
+     * @param pass  The pass collecting the events that occur during the simulation.
      */
-    private void processSegmentTransition(Train train, List<Event> events) {
+    private void processSegmentTransition(Train train, AdvancePass pass) {
         // If the current segment has a train, and it is not open, open the segment and release the train
         if (train.getCurrentSegment().hasTrain() && !train.getCurrentSegment().isOpen()) {
-            openSegmentAndReleaseTrain(train.getCurrentSegment(), train, currentTime, events);
+            openSegmentAndReleaseTrain(train.getCurrentSegment(), train, getCurrentTime(), pass);
         } else if (!train.getCurrentSegment().hasTrain() && !train.getCurrentSegment().isOpen()) { // If the current segment does not have a train, and it is not open, reset the trains wait time
             train.resetWaitTimeRemaining();
         }
 
         // If the train's current station is a designated stop, remove it from the list of designated stops and reset the train's wait time
-        if (train.getDesignatedStops().contains(train.currentStation())) {
-            train.getDesignatedStops().remove(train.currentStation());
+        if (train.isAtDesignatedStop()) {
+            train.makeDesignatedStop();
             train.resetWaitTimeRemaining();
         }
 
         // Check if the train is at the end, and its end time is the current time
-        if (train.getCurrentRoute().getEnd().getName().strip().equals(train.currentStation().strip())) {
-            events.add(train.finish());
-            deRegisterTrain(train.getName());
+        if (train.isAtDestination()) {
+            pass.events.add(train.finish());
+            // The train leaves the active set once the pass is over
+            if (train.isRegistered()) {
+                train.deregister();
+                pass.finished.add(train);
+            }
             return;
         }
 
         // If the current segment does not have a train, it is open, and the train is not waiting, accept the train into the segment
         if (!train.getCurrentSegment().hasTrain() && train.getCurrentSegment().isOpen() && !train.isWaiting()) {
-            acceptTrainIntoSegment(train.getCurrentSegment(), train, currentTime, events);
+            acceptTrainIntoSegment(train.getCurrentSegment(), train, getCurrentTime(), pass.events);
         }
     }
 
@@ -645,15 +1093,17 @@ public class TrainSystem implements IsVerifiable {
      * @param currentSegment The segment to be opened.
      * @param train          The train to be released.
      * @param currentTime    The current time in the simulation.
-     * @param events         A list of events that occur during the simulation.
+     * @param pass           The pass collecting the events that occur during the simulation.
      */
-    private void openSegmentAndReleaseTrain(Segment currentSegment, Train train, int currentTime, List<Event> events) {
-        events.add(currentSegment.open());
+    private void openSegmentAndReleaseTrain(Segment currentSegment, Train train, int currentTime, AdvancePass pass) {
+        pass.events.add(currentSegment.open());
         if (currentSegment.getTrafficLight().isRed()) {
-            events.add(currentSegment.changeLight(currentTime));
+            pass.events.add(currentSegment.changeLight(currentTime));
         }
-        events.add(currentSegment.releaseTrain(currentTime));
-        events.add(train.advance(currentTime));
+        pass.events.add(currentSegment.releaseTrain(currentTime));
+        boolean wasAtDestination = train.isAtDestination();
+        pass.events.add(train.advance(currentTime));
+        pass.destinationChange += destinationChange(train, wasAtDestination);
     }
 
     /**
@@ -675,6 +1125,205 @@ public class TrainSystem implements IsVerifiable {
         }
     }
 
+    /**
+     * Writes the state of the train system to a checkpoint: the time, the network with the status of every
+     * station, segment and route, the light and occupant of every segment, and the progress of every train.
+     * Entities refer to each other by their index in the lists of the system.
+     *
+     * @param out the checkpoint being written
+     * @throws IOException           if the checkpoint cannot be written
+     * @throws IllegalStateException if a route uses a segment that is no longer in the system
+     */
+    public void writeCheckpoint(DataOutput out) throws IOException {
+        out.writeInt(getCurrentTime());
+        out.writeByte(status.ordinal());
+        out.writeLong(countdown);
+        out.writeInt(trainsAtDestination);
+        out.writeBoolean(movementUnhindered);
+
+        IdentityHashMap<Train, Integer> trainIndexes = indexes(trains);
+        IdentityHashMap<Segment, Integer> segmentIndexes = indexes(segments);
+        IdentityHashMap<Route, Integer> routeIndexes = indexes(routes);
+        IdentityHashMap<RouteTopology, Integer> topologyIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < routes.size(); i++) topologyIndexes.put(routes.get(i).getTopology(), i);
+
+        out.writeInt(stations.size());
+        for (Station station : stations) writeStation(out, station);
+
+        out.writeInt(segments.size());
+        for (Segment segment : segments) {
+            out.writeUTF(segment.getName());
+            writeStation(out, segment.getSegmentStart());
+            writeStation(out, segment.getSegmentEnd());
+            out.writeByte(segment.getStatus().ordinal());
+            out.writeByte(segment.lightColour().ordinal());
+            Train occupant = segment.getCurrentTrain();
+            out.writeInt(occupant == null ? -1 : trainIndexes.getOrDefault(occupant, -1));
+        }
+
+        out.writeInt(routes.size());
+        for (Route route : routes) {
+            out.writeUTF(route.getName());
+            out.writeBoolean(route.isRoundTrip());
+            out.writeByte(route.getStatus().ordinal());
+            ArrayList<Segment> routeSegments = route.getSegmentList();
+            out.writeInt(routeSegments.size());
+            for (Segment segment : routeSegments) {
+                Integer index = segmentIndexes.get(segment);
+                if (index == null) {
+                    throw new IllegalStateException("Route " + route.getName() + " uses a segment that is no longer in the system.");
+                }
+                out.writeInt(index);
+            }
+            // The stations of a route are the stations of its segments, so each is written as where it is found
+            ArrayList<Station> routeStations = route.getStationList();
+            out.writeInt(routeStations.size());
+            for (Station station : routeStations) out.writeInt(stationPosition(routeSegments, station));
+        }
+
+        out.writeInt(trains.size());
+        for (Train train : trains) {
+            out.writeUTF(train.getName());
+            out.writeInt(train.getStartTime());
+            out.writeByte(waitingTrains.contains(train) ? 0 : activeTrains.contains(train) ? 1
+                    : completedTrains.contains(train) ? 2 : 3);
+            Long mark = countdownMarks.get(train);
+            out.writeBoolean(mark != null);
+            if (mark != null) out.writeLong(mark);
+            train.writeState(out, route -> routeIndexes.getOrDefault(route, -1),
+                    topology -> topologyIndexes.getOrDefault(topology, -1));
+        }
+    }
+
+    /**
+     * Reads a train system from a checkpoint written by writeCheckpoint().
+     * The trains are created in the order they were written, so they keep their order among themselves, although
+     * their ids are new.
+     *
+     * @param in the checkpoint, positioned on the train system
+     * @return the train system
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public static TrainSystem readCheckpoint(DataInput in) throws IOException {
+        TrainSystem system = new TrainSystem();
+        int now = in.readInt();
+        SystemStatus status = SystemStatus.values()[in.readByte()];
+        system.countdown = in.readLong();
+        system.trainsAtDestination = in.readInt();
+        system.movementUnhindered = in.readBoolean();
+
+        for (int i = in.readInt(); i > 0; i--) system.stationRegistry.add(system.readStation(in, in.readUTF()));
+
+        int segmentCount = in.readInt();
+        int[] occupants = new int[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            String name = in.readUTF();
+            String start = in.readUTF();
+            RSStatus startStatus = RSStatus.values()[in.readByte()];
+            String end = in.readUTF();
+            RSStatus endStatus = RSStatus.values()[in.readByte()];
+            Segment segment = new Segment(name, start, end, system.clock, system.segmentStates);
+            segment.getSegmentStart().setStatus(startStatus);
+            segment.getSegmentEnd().setStatus(endStatus);
+            segment.setStatus(RSStatus.values()[in.readByte()]);
+            segment.getTrafficLight().setColour(Light.values()[in.readByte()]);
+            occupants[i] = in.readInt();
+            system.segmentRegistry.add(segment);
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            String name = in.readUTF();
+            boolean isRoundTrip = in.readBoolean();
+            RSStatus routeStatus = RSStatus.values()[in.readByte()];
+            ArrayList<Segment> routeSegments = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; j--) routeSegments.add(system.segments.get(in.readInt()));
+            ArrayList<Station> routeStations = new ArrayList<>();
+            for (int j = in.readInt(); j > 0; j--) {
+                int position = in.readInt();
+                routeStations.add(position < routeSegments.size() ? routeSegments.get(position).getSegmentStart()
+                        : routeSegments.get(routeSegments.size() - 1).getSegmentEnd());
+            }
+            Route route = new Route(name, isRoundTrip, routeSegments, system.clock);
+            route.addStations(routeStations);
+            route.setStatus(routeStatus);
+            system.routeRegistry.add(route);
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            Train train = new Train(in.readUTF(), in.readInt(), system.clock);
+            system.trainRegistry.add(train);
+            system.trainsById.put(train.getId(), train);
+            switch (in.readByte()) {
+                case 0 -> system.waitingTrains.add(train);
+                case 1 -> system.activeTrains.add(train);
+                case 2 -> system.completedTrains.add(train);
+                default -> {
+                }
+            }
+            if (in.readBoolean()) system.countdownMarks.put(train, in.readLong());
+            train.restoreState(in, system.routes);
+        }
+        for (int i = 0; i < segmentCount; i++)
+            if (occupants[i] >= 0) system.segments.get(i).setCurrentTrain(system.trains.get(occupants[i]));
+
+        system.clock.advanceTo(now);
+        system.status = status;
+        return system;
+    }
+
+    /**
+     * Returns the index of every entity of a list.
+     *
+     * @param entities the entities
+     * @return the index of each entity in the list
+     */
+    private static <E> IdentityHashMap<E, Integer> indexes(List<E> entities) {
+        IdentityHashMap<E, Integer> indexes = new IdentityHashMap<>(entities.size());
+        for (int i = 0; i < entities.size(); i++) indexes.put(entities.get(i), i);
+        return indexes;
+    }
+
+    /**
+     * Writes the name and status of a station to a checkpoint.
+     *
+     * @param out     the checkpoint being written
+     * @param station the station
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private static void writeStation(DataOutput out, Station station) throws IOException {
+        out.writeUTF(station.getName());
+        out.writeByte(station.getStatus().ordinal());
+    }
+
+    /**
+     * Reads the status of a station from a checkpoint and creates the station.
+     *
+     * @param in   the checkpoint, positioned on the status of the station
+     * @param name the name of the station
+     * @return the station
+     * @throws IOException if the checkpoint cannot be read
+     */
+    private Station readStation(DataInput in, String name) throws IOException {
+        Station station = new Station(name, clock);
+        station.setStatus(RSStatus.values()[in.readByte()]);
+        return station;
+    }
+
+    /**
+     * Returns where a station of a route is found among the stations of its segments.
+     *
+     * @param segments the segments of the route
+     * @param station  the station
+     * @return the index of the segment the station starts, or the number of segments for the end of the last one
+     * @throws IllegalStateException if the station belongs to no segment of the route
+     */
+    private static int stationPosition(List<Segment> segments, Station station) {
+        for (int i = 0; i < segments.size(); i++)
+            if (segments.get(i).getSegmentStart() == station) return i;
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).getSegmentEnd() == station) return segments.size();
+        throw new IllegalStateException("A station of a route belongs to none of its segments.");
+    }
+
     /**
      * Returns the segment with the given name.
      *
@@ -682,7 +1331,7 @@ public class TrainSystem implements IsVerifiable {
      * @return The segment with the given name, or null if no such segment exists.
      */
     public Segment getSegmentByName(String segmentName) {
-        return segments.stream().filter(segment -> segment.getName().strip().equals(segmentName.strip())).findFirst().orElse(null);
+        return segmentRegistry.get(segmentName);
     }
 
     /**
@@ -692,7 +1341,7 @@ public class TrainSystem implements IsVerifiable {
      * @return The station with the given name, or null if no such station exists.
      */
     public Station getStationByName(String stationName) {
-        return stations.stream().filter(station -> station.getName().strip().equals(stationName.strip())).findFirst().orElse(null);
+        return stationRegistry.get(stationName);
     }
 
     /**
@@ -702,7 +1351,7 @@ public class TrainSystem implements IsVerifiable {
      * @return The route with the given name, or null if no such route exists.
      */
     public Route getRouteByName(String routeName) {
-        return routes.stream().filter(route -> route.getName().strip().equals(routeName.strip())).findFirst().orElse(null);
+        return routeRegistry.get(routeName);
     }
 
     /**
@@ -712,14 +1361,214 @@ public class TrainSystem implements IsVerifiable {
      * @return The train with the given name, or null if no such train exists.
      */
     public Train getTrainByName(String trainName) {
-        return trains.stream().filter(train -> train.getName().strip().equals(trainName.strip())).findFirst().orElse(null);
+        return trainRegistry.get(trainName);
     }
 
+    /**
+     * Checks the event log of an object: the object is in the train system, every event is an event of the object,
+     * the events are in time order and none of them repeats the event before it. The events are checked in one pass.
+     *
+     * @param object the type of the object; the events of a traffic light are logged under its segment
+     * @param name   the name of the object
+     * @param events the events of the object, as the log prints them
+     * @return true if the event log of the object is valid, false otherwise
+     */
     public boolean validateObjectLog(ObjectType object, String name, ArrayList<String> events) {
+        if (object == null || name == null || events == null) return false;
+        boolean known = switch (object) {
+            case Route_ -> containsRoute(name);
+            case Segment_, TrafficLight_ -> containsSegment(name);
+            case Station_ -> containsStation(name);
+            case Train_ -> getTrainByName(name) != null;
+        };
+        if (!known) return false;
+
+        String prefix = "Object=" + name + ", Time()=";
+        String last = null;
+        long previous = Long.MIN_VALUE;
+        for (String event : events) {
+            int at = event == null ? -1 : event.indexOf(prefix);
+            if (at < 0 || event.equals(last)) return false;
+            last = event;
+            long time = 0;
+            int digit = at + prefix.length();
+            boolean negative = digit < event.length() && event.charAt(digit) == '-';
+            if (negative) digit++;
+            if (digit == event.length() || !Character.isDigit(event.charAt(digit))) return false;
+            while (digit < event.length() && Character.isDigit(event.charAt(digit)))
+                time = time * 10 + (event.charAt(digit++) - '0');
+            if (negative) time = -time;
+            if (time < previous) return false;
+            previous = time;
+        }
         return true;
     }
 
     public boolean isFinished() {
         return currentStatus() == SystemStatus.Finished;
     }
+
+    /**
+     * Advances a group of trains by one time instant and collects the results. Changes to the shared train sets
+     * and counters are deferred until the pass is over, so passes over trains that share no segment or station
+     * can run on different threads.
+     */
+    private final class AdvancePass extends RecursiveAction {
+        // Passes are never serialized, but RecursiveAction is Serializable
+        private static final long serialVersionUID = 1L;
+
+        // The trains to advance, in the order they were added
+        private final ArrayList<Train> trains = new ArrayList<>();
+        // The events produced by the trains
+        private final ArrayList<Event> events = new ArrayList<>();
+        // The trains that finished their route
+        private final ArrayList<Train> finished = new ArrayList<>();
+        // The offset in events just after the last event of each train
+        private final int[] ends;
+        // The change in the number of trains at their destination
+        private int destinationChange;
+
+        /**
+         * Constructs an empty pass.
+         *
+         * @param capacity the maximum number of trains in the pass
+         */
+        AdvancePass(int capacity) {
+            this.ends = new int[capacity];
+        }
+
+        /**
+         * Adds a train to the pass.
+         *
+         * @param train the train to add
+         */
+        void add(Train train) {
+            trains.add(train);
+        }
+
+        /**
+         * Advances every train of the pass.
+         */
+        void run() {
+            for (int i = 0; i < trains.size(); i++) {
+                advanceTrain(trains.get(i), this);
+                ends[i] = events.size();
+            }
+        }
+
+        /**
+         * Advances every train of the pass on the fork-join pool.
+         */
+        @Override
+        protected void compute() {
+            run();
+        }
+    }
+
+    /**
+     * Holds the entities of one kind in insertion order, together with a hash index of their normalised names.
+     * The first entity added under a name wins, matching the first-match behaviour of a linear scan.
+     *
+     * @param <E> the type of entity held by the registry
+     */
+    private static final class Registry<E> {
+        // The entities in insertion order
+        private final ArrayList<E> entities = new ArrayList<>();
+        // The entities indexed by their normalised name
+        private final HashMap<String, E> byName = new HashMap<>();
+        // Extracts the name of an entity
+        private final Function<E, String> nameOf;
+        // The entities sorted for reports, or null once the entities have changed
+        private List<E> sorted;
+
+        /**
+         * Constructs an empty registry.
+         *
+         * @param nameOf extracts the name of an entity
+         */
+        Registry(Function<E, String> nameOf) {
+            this.nameOf = nameOf;
+        }
+
+        /**
+         * Normalises a name so that lookups ignore surrounding whitespace.
+         *
+         * @param name the name to normalise
+         * @return the normalised name
+         */
+        private static String normalise(String name) {
+            return name.strip();
+        }
+
+        /**
+         * Returns the backing list of entities.
+         *
+         * @return the entities in insertion order
+         */
+        ArrayList<E> list() {
+            return entities;
+        }
+
+        /**
+         * Adds an entity and indexes it by name.
+         *
+         * @param entity the entity to add
+         */
+        void add(E entity) {
+            entities.add(entity);
+            byName.putIfAbsent(normalise(nameOf.apply(entity)), entity);
+            sorted = null;
+        }
+
+        /**
+         * Removes all entities matching the filter and rebuilds the index if anything was removed.
+         *
+         * @param filter the entities to remove
+         */
+        void removeIf(Predicate<E> filter) {
+            if (entities.removeIf(filter)) {
+                sorted = null;
+                byName.clear();
+                for (E entity : entities)
+                    byName.putIfAbsent(normalise(nameOf.apply(entity)), entity);
+            }
+        }
+
+        /**
+         * Returns the entities in a given order, sorting them only if they have changed since the last call.
+         * Entities with the same rank keep their insertion order.
+         *
+         * @param order the order, which must be the same on every call
+         * @return the sorted entities, which must not be modified
+         */
+        List<E> sorted(Comparator<? super E> order) {
+            // The backing list is handed out, so a change made through it is caught by its size at least
+            if (sorted == null || sorted.size() != entities.size()) {
+                ArrayList<E> copy = new ArrayList<>(entities);
+                copy.sort(order);
+                sorted = copy;
+            }
+            return sorted;
+        }
+
+        /**
+         * Returns the entity with the given name.
+         *
+         * @param name the name of the entity
+         * @return the entity with the given name, or null if no such entity exists
+         */
+        E get(String name) {
+            return byName.get(normalise(name));
+        }
+
+        /**
+         * Checks if an entity with the given name exists.
+         *
+         * @param name the name of the entity
+         * @return true if such an entity exists, false otherwise
+         */
+        boolean contains(String name) {
+            return byName.containsKey(normalise(name));
+        }
+    }
 }
\ No newline at end of file